@@ -0,0 +1,48 @@
+package core;
+
+import util.MedidorDeAlocacao;
+import util.PostFactory;
+
+/**
+ * Mede quantos bytes cada curtida e cada rejeicao alocam, para cada nivel de
+ * popularidade de quem curte, com o dono do post no Ranking e fora dele. <br>
+ * E o caminho de Usuario.curtirPost e rejeitarPost, sem a notificacao e o log
+ * que o Controller acrescenta. O esperado e 0 B/op: o nivel so le campos e o
+ * Ranking so marca o usuario como desatualizado. As medidas sao do
+ * MedidorDeAlocacao. <br>
+ * Uso: java -cp bin:benchmark core.CurtidaBenchmark [operacoes]
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public class CurtidaBenchmark {
+	private static final int[] POPS_DE_QUEM_CURTE = { 0, 600, 2000 };
+
+	public static void main(String[] args) throws Exception {
+		int operacoes = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		for (int pops : POPS_DE_QUEM_CURTE) {
+			for (boolean noRanking : new boolean[] { false, true }) {
+				Usuario fa = new Usuario("Fa", "fa@email.com", "senha123", "01/01/1990", null);
+				Usuario dono = new Usuario("Dono", "dono@email.com", "senha123", "01/01/1990", null);
+				fa.adicionaPops(pops);
+				Post post = PostFactory.getInstance().criaPost("Um post #curtido", "01/08/2015 12:00:00");
+				dono.adicionaPost(post);
+				Ranking ranking = new Ranking();
+				if (noRanking) {
+					ranking.adiciona(fa);
+					ranking.adiciona(dono);
+				}
+				String nome = String.format("%-16s %-11s", fa.getPopularidade(), noRanking ? "no ranking" : "sem ranking");
+				MedidorDeAlocacao.mede(nome + " curtir  ", operacoes, () -> {
+					fa.curtirPost(post, dono);
+					return post;
+				});
+				MedidorDeAlocacao.mede(nome + " rejeitar", operacoes, () -> {
+					fa.rejeitarPost(post, dono);
+					return post;
+				});
+				MedidorDeAlocacao.consome(ranking.retornaRanking());
+			}
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package manager;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import util.ValidaDadosDoUsuario;
+
+/**
+ * Mede o cadastro de muitos usuarios de uma vez (1 milhao, por padrao). <br>
+ * Compara a validacao de e-mail e data original, que compilava o Pattern do
+ * e-mail a cada chamada e usava split, Integer.valueOf e excessoes na data,
+ * com a validacao atual, e depois cadastra os usuarios em um Controller novo
+ * com cadastraUsuario, um por vez, e com importaUsuarios, a partir de um CSV.
+ * Os tempos sao do relogio de parede; rode com heap suficiente para os
+ * usuarios (por exemplo -Xmx2g para 1 milhao). <br>
+ * Uso: java -cp bin:benchmark manager.CadastroEmMassaBenchmark [usuarios]
+ * 
+ * @author matteus
+ * 
+ */
+public class CadastroEmMassaBenchmark {
+	private static final String DATA = "09/02/1994";
+	private static volatile Object sumidouro;
+
+	public static void main(String[] args) throws Exception {
+		int usuarios = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		String[] emails = new String[usuarios];
+		for (int i = 0; i < usuarios; i++)
+			emails[i] = "usuario" + i + "@email.com.br";
+
+		long inicio = System.nanoTime();
+		for (String email : emails)
+			sumidouro = ValidacaoOriginal.valida(email, DATA);
+		imprime("validacao original       ", usuarios, inicio);
+
+		inicio = System.nanoTime();
+		for (String email : emails) {
+			ValidaDadosDoUsuario.validaEmail(email);
+			sumidouro = ValidaDadosDoUsuario.validaData(DATA);
+		}
+		imprime("validacao atual          ", usuarios, inicio);
+
+		Controller controller = new Controller();
+		inicio = System.nanoTime();
+		for (String email : emails)
+			controller.cadastraUsuario("Usuario", email, "senha123", DATA, null);
+		imprime("cadastraUsuario          ", usuarios, inicio);
+		controller = null;
+
+		StringBuilder csv = new StringBuilder("nome,email,senha,dataNasc,imagem\n");
+		for (String email : emails)
+			csv.append("Usuario,").append(email).append(",senha123,").append(DATA).append(",\n");
+		emails = null;
+		controller = new Controller();
+		inicio = System.nanoTime();
+		RelatorioDeImportacao relatorio = controller.importaUsuarios(new StringReader(csv.toString()),
+				ImportadorDeUsuarios.Formato.CSV);
+		imprime("importaUsuarios (CSV)    ", usuarios, inicio);
+		if (relatorio.getImportados().size() != usuarios)
+			throw new IllegalStateException("Importados " + relatorio.getImportados().size() + " de " + usuarios
+					+ ": " + relatorio.getFalhas().values().iterator().next());
+	}
+
+	private static void imprime(String nome, int operacoes, long inicio) {
+		long nanos = System.nanoTime() - inicio;
+		System.out.printf("%s %8.3f s %8.1f ns/usuario%n", nome, nanos / 1e9, (double) nanos / operacoes);
+	}
+
+	/**
+	 * Os passos da validacao original de e-mail e data de nascimento, sem as
+	 * excessoes do +Pop, para comparar o custo. O resultado e a data validada,
+	 * ou null se o e-mail ou a data eram invalidos.
+	 */
+	private static final class ValidacaoOriginal {
+		private static final DateTimeFormatter DATA_PATTERN = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+		private static final String EMAIL_PATTERN = "^[_A-Za-z0-9-\\+]+(\\.[_A-Za-z0-9-]+)*@"
+				+ "[A-Za-z0-9-]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$";
+
+		static LocalDate valida(String email, String dataNasc) {
+			Pattern pattern = Pattern.compile(EMAIL_PATTERN);
+			Matcher matcher = pattern.matcher(email);
+			if (!matcher.find())
+				return null;
+			if (isFormatoDeDataInvalido(dataNasc))
+				return null;
+			try {
+				LocalDate dataValidada = LocalDate.parse(dataNasc, DATA_PATTERN);
+				String[] dataSeparada = dataNasc.split("/");
+				if (Integer.parseInt(dataSeparada[0]) != dataValidada.getDayOfMonth())
+					return null;
+				return dataValidada;
+			} catch (Exception e) {
+				return null;
+			}
+		}
+
+		private static boolean isFormatoDeDataInvalido(String data) {
+			String[] dataSeparada = data.split("/");
+			if (dataSeparada[0].length() != 2 || dataSeparada[1].length() != 2 || dataSeparada[2].length() != 4)
+				return true;
+			try {
+				Integer.valueOf(dataSeparada[0]);
+				Integer.valueOf(dataSeparada[1]);
+				Integer.valueOf(dataSeparada[2]);
+			} catch (NumberFormatException e) {
+				return true;
+			}
+			return false;
+		}
+	}
+}
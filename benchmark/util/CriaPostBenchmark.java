@@ -0,0 +1,85 @@
+package util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Mede quantos bytes cada criaPost aloca, com as mensagens dos testes de
+ * aceitacao. <br>
+ * Compara o PostFactory atual, so o TokenizadorDeMensagem e o parser
+ * original, que procurava as midias e as hashtags com indexOf, substring e
+ * split e montava listas de substrings. As medidas sao do
+ * MedidorDeAlocacao. <br>
+ * Uso: java -cp bin:benchmark util.CriaPostBenchmark [operacoes]
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public class CriaPostBenchmark {
+	private static final String[] MENSAGENS = {
+			"Eu nao sou preconceituosa, mais aqui esta cheio de anta nordestina. #anta #separa",
+			"Esse frio esta mim deixando doida. #alucicrazy #CGDaDepressao",
+			"Nao sei porque tanto recalque, o que eh bonito eh pra se mostrar. <audio>musicas/poderosas.mp3</audio> #soulinda #naza",
+			"O Encontro de amanha estara otimo. Vamos falar sobre os problemas do preconceito na escola. <imagem>imagens/encontro_vinheta.jpg</imagem> <imagem>imagens/encontro_preview.jpg</imagem> #encontro #SemPreconceito" };
+	private static final String DATA = "01/08/2015 12:00:00";
+
+	public static void main(String[] args) throws Exception {
+		int operacoes = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		for (int i = 0; i < MENSAGENS.length; i++) {
+			String mensagem = MENSAGENS[i];
+			System.out.printf("mensagem %d (%d caracteres)%n", i + 1, mensagem.length());
+			MedidorDeAlocacao.mede("  parser original  ", operacoes, () -> ParserOriginal.criaPost(mensagem, DATA));
+			MedidorDeAlocacao.mede("  tokenizador      ", operacoes, () -> TokenizadorDeMensagem.tokeniza(mensagem));
+			MedidorDeAlocacao.mede("  criaPost atual   ", operacoes,
+					() -> PostFactory.getInstance().criaPost(mensagem, DATA));
+		}
+	}
+
+	/**
+	 * Os passos do PostFactory original, sem as validacoes que lancam
+	 * excessao, para comparar a alocacao. O resultado sao as listas de
+	 * conteudo e de hashtags e a data que o Post original guardava.
+	 */
+	private static final class ParserOriginal {
+		static Object[] criaPost(String mensagem, String stringComData) {
+			int indiceDaPrimeiraHashtag = mensagem.indexOf("#");
+			int indiceDaPrimeiraImagem = mensagem.indexOf("<imagem>");
+			int indiceDoPrimeiroAudio = mensagem.indexOf("<audio>");
+			int indiceDaPrimeiraMidia;
+			if (indiceDaPrimeiraImagem != -1 && indiceDoPrimeiroAudio != -1)
+				indiceDaPrimeiraMidia = Integer.min(indiceDaPrimeiraImagem, indiceDoPrimeiroAudio);
+			else if (indiceDoPrimeiroAudio != -1)
+				indiceDaPrimeiraMidia = indiceDoPrimeiroAudio;
+			else if (indiceDaPrimeiraImagem != -1)
+				indiceDaPrimeiraMidia = indiceDaPrimeiraImagem;
+			else if (indiceDaPrimeiraHashtag != -1)
+				indiceDaPrimeiraMidia = indiceDaPrimeiraHashtag;
+			else
+				indiceDaPrimeiraMidia = mensagem.length();
+			String texto = mensagem.substring(0, indiceDaPrimeiraMidia);
+			String[] midias;
+			if (indiceDaPrimeiraHashtag != -1)
+				midias = mensagem.substring(indiceDaPrimeiraMidia, indiceDaPrimeiraHashtag).split(" ");
+			else
+				midias = mensagem.substring(indiceDaPrimeiraMidia, mensagem.length()).split(" ");
+			midias[midias.length - 1] += " ";
+			String[] hashtags = indiceDaPrimeiraHashtag == -1 ? new String[0]
+					: mensagem.substring(indiceDaPrimeiraHashtag).split(" ");
+			for (String hashtag : hashtags)
+				hashtag.trim().equals("");
+			List<String> conteudo = new ArrayList<String>();
+			conteudo.add(texto);
+			Collections.addAll(conteudo, midias);
+			List<String> listaDeHashtags = new ArrayList<String>();
+			Collections.addAll(listaDeHashtags, hashtags);
+			LocalDate data = LocalDate.parse(stringComData.substring(0, 10), DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+			LocalTime hora = LocalTime.parse(stringComData.substring(11, 19), DateTimeFormatter.ofPattern("HH:mm:ss"));
+			return new Object[] { conteudo, listaDeHashtags, LocalDateTime.of(data, hora) };
+		}
+	}
+}
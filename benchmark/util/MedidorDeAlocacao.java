@@ -0,0 +1,78 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Mede quantos bytes e quantos nanossegundos uma operacao gasta, em media,
+ * para os benchmarks de alocacao. <br>
+ * Cada medicao roda a operacao AQUECIMENTO vezes antes de medir, para que o
+ * JIT ja tenha compilado o caminho medido, e guarda cada resultado em um campo
+ * volatile, para que o JIT nao descarte a operacao. A alocacao e lida do
+ * ThreadMXBean da JVM (com.sun.management), entao os benchmarks precisam de
+ * uma JVM HotSpot ou compativel.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class MedidorDeAlocacao {
+	private static final int AQUECIMENTO = 200000;
+	private static volatile Object sumidouro;
+
+	private MedidorDeAlocacao() {
+	}
+
+	/**
+	 * Roda a operacao e imprime a media de bytes alocados e de nanossegundos
+	 * por execucao.
+	 * 
+	 * @param nome
+	 *            Nome impresso antes das medias.
+	 * @param operacoes
+	 *            Quantidade de execucoes medidas.
+	 * @param operacao
+	 *            Operacao medida.
+	 * @throws Exception
+	 *             Excessao lancada quando a operacao lanca uma excessao.
+	 */
+	public static void mede(String nome, int operacoes, Operacao operacao) throws Exception {
+		for (int i = 0; i < AQUECIMENTO; i++)
+			sumidouro = operacao.executa();
+		long bytesAntes = bytesAlocados();
+		long inicio = System.nanoTime();
+		for (int i = 0; i < operacoes; i++)
+			sumidouro = operacao.executa();
+		long nanos = System.nanoTime() - inicio;
+		long bytes = bytesAlocados() - bytesAntes;
+		System.out.printf("%s %8.3f B/op %8.1f ns/op%n", nome, (double) bytes / operacoes, (double) nanos / operacoes);
+	}
+
+	/**
+	 * Guarda um resultado calculado fora de mede, para que o JIT nao o
+	 * descarte.
+	 * 
+	 * @param resultado
+	 *            Resultado a ser guardado.
+	 */
+	public static void consome(Object resultado) {
+		sumidouro = resultado;
+	}
+
+	/**
+	 * Retorna quantos bytes a thread atual ja alocou.
+	 * 
+	 * @return Bytes alocados pela thread atual desde que ela foi criada.
+	 */
+	public static long bytesAlocados() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Operacao medida. O resultado e guardado pelo medidor, para que o JIT nao
+	 * elimine a operacao.
+	 */
+	public interface Operacao {
+		Object executa() throws Exception;
+	}
+}
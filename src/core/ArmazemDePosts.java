@@ -0,0 +1,218 @@
+package core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Armazem que guarda o texto dos posts fora do heap, em arquivos mapeados em
+ * memoria. <br>
+ * A mensagem e os limites dos tokens de cada Post sao acrescentados ao fim de
+ * um segmento, um arquivo de tamanho fixo mapeado com FileChannel.map, e o
+ * Post guarda apenas o endereco do registro (segmento e posicao). Assim o
+ * texto de posts antigos fica nas paginas do arquivo, que o sistema
+ * operacional mantem em memoria ou devolve ao disco conforme o uso, e nao e
+ * percorrido pelo coletor de lixo. Os tokens lidos ficam em um cache de
+ * tamanho fixo indexado pelo endereco, entao so os posts consultados ha pouco
+ * tem texto no heap. <br>
+ * Os segmentos so servem para tirar os posts do heap: o estado duravel do
+ * +Pop esta no snapshot e no log de operacoes, e um armazem sempre comeca
+ * vazio, apagando os segmentos que encontrar no diretorio.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class ArmazemDePosts implements Closeable {
+	public static final int TAMANHO_DO_SEGMENTO = 64 << 20;
+	public static final int POSICOES_DO_CACHE = 1 << 12;
+	private static final String PREFIXO = "posts-";
+	private static final String EXTENSAO = ".seg";
+	private static final int TAMANHO_DO_CABECALHO = 3 * Integer.BYTES;
+	private final Path diretorio;
+	private final int tamanhoDoSegmento;
+	private final TokensLidos[] cache;
+	private volatile MappedByteBuffer[] segmentos;
+	private int posicao;
+
+	/**
+	 * Construtor de ArmazemDePosts.
+	 * 
+	 * @param diretorio
+	 *            Diretorio dos segmentos; e criado se nao existir.
+	 * @param tamanhoDoSegmento
+	 *            Tamanho, em bytes, de cada segmento.
+	 * @param posicoesDoCache
+	 *            Quantidade de posts cujos tokens lidos ficam no heap; deve ser
+	 *            uma potencia de 2.
+	 * @throws IOException
+	 *             Excessao lancada quando o diretorio nao pode ser criado ou
+	 *             limpo.
+	 */
+	public ArmazemDePosts(Path diretorio, int tamanhoDoSegmento, int posicoesDoCache) throws IOException {
+		if (tamanhoDoSegmento <= TAMANHO_DO_CABECALHO)
+			throw new IllegalArgumentException("Tamanho de segmento invalido: " + tamanhoDoSegmento + ".");
+		if (Integer.bitCount(posicoesDoCache) != 1)
+			throw new IllegalArgumentException("O cache deve ter uma potencia de 2 de posicoes.");
+		this.diretorio = diretorio;
+		this.tamanhoDoSegmento = tamanhoDoSegmento;
+		this.cache = new TokensLidos[posicoesDoCache];
+		this.segmentos = new MappedByteBuffer[0];
+		Files.createDirectories(diretorio);
+		apagaSegmentos();
+	}
+
+	/**
+	 * Abre um armazem com segmentos de TAMANHO_DO_SEGMENTO bytes e cache de
+	 * POSICOES_DO_CACHE posts.
+	 * 
+	 * @param diretorio
+	 *            Diretorio dos segmentos.
+	 * @return Armazem vazio.
+	 * @throws IOException
+	 *             Excessao lancada quando o diretorio nao pode ser criado ou
+	 *             limpo.
+	 */
+	public static ArmazemDePosts abre(Path diretorio) throws IOException {
+		return new ArmazemDePosts(diretorio, TAMANHO_DO_SEGMENTO, POSICOES_DO_CACHE);
+	}
+
+	/**
+	 * Cria um Post cujos tokens ficam no armazem.
+	 * 
+	 * @param tokens
+	 *            Tokens da mensagem do Post.
+	 * @param data
+	 *            Data do Post.
+	 * @return Post que le os tokens do armazem.
+	 * @throws IOException
+	 *             Excessao lancada quando um novo segmento nao pode ser
+	 *             criado.
+	 */
+	public Post criaPost(TokensDaMensagem tokens, LocalDateTime data) throws IOException {
+		return new Post(this, grava(tokens), data);
+	}
+
+	/**
+	 * Retorna quantos bytes de registros ja foram gravados nos segmentos.
+	 * 
+	 * @return Bytes usados.
+	 */
+	public synchronized long getBytesUsados() {
+		if (segmentos.length == 0)
+			return 0;
+		return (long) (segmentos.length - 1) * tamanhoDoSegmento + posicao;
+	}
+
+	/**
+	 * Apaga os segmentos. Os posts do armazem nao podem mais ser lidos.
+	 * 
+	 * @throws IOException
+	 *             Excessao lancada quando os segmentos nao podem ser apagados.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		segmentos = new MappedByteBuffer[0];
+		Arrays.fill(cache, null);
+		apagaSegmentos();
+	}
+
+	synchronized long grava(TokensDaMensagem tokens) throws IOException {
+		String mensagem = tokens.getMensagem();
+		int limites = 2 * (tokens.getQuantidadeDeConteudos() + tokens.getQuantidadeDeHashtags());
+		long tamanho = TAMANHO_DO_CABECALHO + (long) limites * Integer.BYTES + (long) mensagem.length() * Character.BYTES;
+		if (tamanho > tamanhoDoSegmento)
+			throw new IllegalArgumentException("O Post nao cabe em um segmento de " + tamanhoDoSegmento + " bytes.");
+		if (segmentos.length == 0 || posicao + tamanho > tamanhoDoSegmento)
+			criaSegmento();
+		MappedByteBuffer segmento = segmentos[segmentos.length - 1];
+		int inicio = posicao;
+		int i = inicio;
+		segmento.putInt(i, tokens.getQuantidadeDeConteudos() - 1);
+		segmento.putInt(i + Integer.BYTES, tokens.getQuantidadeDeHashtags());
+		segmento.putInt(i + 2 * Integer.BYTES, mensagem.length());
+		i += TAMANHO_DO_CABECALHO;
+		for (int conteudo = 0; conteudo < tokens.getQuantidadeDeConteudos(); conteudo++, i += 2 * Integer.BYTES) {
+			segmento.putInt(i, tokens.getInicioDoConteudo(conteudo));
+			segmento.putInt(i + Integer.BYTES, tokens.getFimDoConteudo(conteudo));
+		}
+		for (int hashtag = 0; hashtag < tokens.getQuantidadeDeHashtags(); hashtag++, i += 2 * Integer.BYTES) {
+			segmento.putInt(i, tokens.getInicioDaHashtag(hashtag));
+			segmento.putInt(i + Integer.BYTES, tokens.getFimDaHashtag(hashtag));
+		}
+		for (int c = 0; c < mensagem.length(); c++, i += Character.BYTES)
+			segmento.putChar(i, mensagem.charAt(c));
+		posicao = i;
+		return (long) (segmentos.length - 1) << 32 | inicio;
+	}
+
+	TokensDaMensagem le(long endereco) {
+		int slot = posicaoNoCache(endereco);
+		TokensLidos lidos = cache[slot];
+		if (lidos != null && lidos.endereco == endereco)
+			return lidos.tokens;
+		TokensDaMensagem tokens = decodifica(endereco);
+		cache[slot] = new TokensLidos(endereco, tokens);
+		return tokens;
+	}
+
+	private TokensDaMensagem decodifica(long endereco) {
+		MappedByteBuffer segmento = segmentos[(int) (endereco >>> 32)];
+		int i = (int) endereco;
+		int midias = segmento.getInt(i);
+		int hashtags = segmento.getInt(i + Integer.BYTES);
+		char[] mensagem = new char[segmento.getInt(i + 2 * Integer.BYTES)];
+		i += TAMANHO_DO_CABECALHO;
+		int[] limites = new int[2 * (1 + midias + hashtags)];
+		for (int limite = 0; limite < limites.length; limite++, i += Integer.BYTES)
+			limites[limite] = segmento.getInt(i);
+		for (int c = 0; c < mensagem.length; c++, i += Character.BYTES)
+			mensagem[c] = segmento.getChar(i);
+		return new TokensDaMensagem(new String(mensagem), limites, midias, hashtags);
+	}
+
+	private int posicaoNoCache(long endereco) {
+		long misturado = (endereco ^ (endereco >>> 29)) * 0x9E3779B97F4A7C15L;
+		return (int) (misturado >>> 32) & (cache.length - 1);
+	}
+
+	private void criaSegmento() throws IOException {
+		Path arquivo = diretorio.resolve(String.format("%s%05d%s", PREFIXO, segmentos.length, EXTENSAO));
+		try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			MappedByteBuffer segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoDoSegmento);
+			MappedByteBuffer[] novos = Arrays.copyOf(segmentos, segmentos.length + 1);
+			novos[segmentos.length] = segmento;
+			segmentos = novos;
+			posicao = 0;
+		}
+	}
+
+	private void apagaSegmentos() throws IOException {
+		try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, PREFIXO + "*" + EXTENSAO)) {
+			for (Path arquivo : arquivos)
+				Files.delete(arquivo);
+		}
+	}
+
+	/**
+	 * Tokens de um Post lidos do armazem, guardados no cache com o seu
+	 * endereco. Os campos sao finais, entao uma posicao do cache pode ser lida
+	 * e trocada por varias threads sem travas.
+	 */
+	private static final class TokensLidos {
+		private final long endereco;
+		private final TokensDaMensagem tokens;
+
+		TokensLidos(long endereco, TokensDaMensagem tokens) {
+			this.endereco = endereco;
+			this.tokens = tokens;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entidade que guarda as notificacoes de um Usuario em uma fila FIFO limitada.
+ * <br>
+ * Adicionar e retirar custam O(1). Quando a caixa esta cheia, a notificacao
+ * mais antiga e descartada para dar lugar a nova, entao a memoria de um usuario
+ * muito popular nao cresce sem limite. E sincronizada, pois varias sessoes
+ * notificam o mesmo usuario. <br>
+ * Com o agrupamento ligado, uma notificacao de tipo agrupavel sobre um Post que
+ * ja tem uma notificacao do mesmo tipo nao lida e somada a ela, no lugar onde
+ * ela esta na fila. A quantidade informada continua sendo a de notificacoes
+ * recebidas, e nao a de entradas na fila.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public class CaixaDeNotificacoes {
+	public static final int CAPACIDADE_PADRAO = 1000;
+	private final int capacidade;
+	private final Deque<Notificacao> notificacoes;
+	private final Map<TipoDeNotificacao, Map<Post, Notificacao>> agrupaveis;
+	private boolean agrupa;
+	private int quantidade;
+	private long descartadas;
+
+	/**
+	 * Construtor de CaixaDeNotificacoes com a capacidade padrao.
+	 */
+	public CaixaDeNotificacoes() {
+		this(CAPACIDADE_PADRAO);
+	}
+
+	/**
+	 * Construtor de CaixaDeNotificacoes.
+	 * 
+	 * @param capacidade
+	 *            Quantidade maxima de entradas na fila.
+	 */
+	public CaixaDeNotificacoes(int capacidade) {
+		if (capacidade < 1)
+			throw new IllegalArgumentException("A capacidade deve ser positiva.");
+		this.capacidade = capacidade;
+		this.notificacoes = new ArrayDeque<>();
+		this.agrupaveis = new EnumMap<>(TipoDeNotificacao.class);
+		this.agrupa = false;
+		this.quantidade = 0;
+		this.descartadas = 0;
+	}
+
+	/**
+	 * Liga ou desliga o agrupamento. Desligar nao separa as notificacoes ja
+	 * agrupadas.
+	 * 
+	 * @param agrupa
+	 *            true para agrupar as proximas notificacoes.
+	 */
+	public synchronized void setAgrupa(boolean agrupa) {
+		this.agrupa = agrupa;
+		if (!agrupa)
+			agrupaveis.clear();
+	}
+
+	/**
+	 * Adiciona uma notificacao no fim da fila, descartando a mais antiga se a
+	 * caixa estiver cheia. Com o agrupamento ligado, pode ser somada a uma
+	 * notificacao ainda nao lida.
+	 * 
+	 * @param notificacao
+	 *            Notificacao a ser adicionada.
+	 */
+	public synchronized void adiciona(Notificacao notificacao) {
+		quantidade += notificacao.getQuantidade();
+		Map<Post, Notificacao> pendentes = null;
+		if (agrupa && notificacao.getTipo().isAgrupavel()) {
+			pendentes = agrupaveis.get(notificacao.getTipo());
+			if (pendentes == null) {
+				pendentes = new IdentityHashMap<>();
+				agrupaveis.put(notificacao.getTipo(), pendentes);
+			}
+			Notificacao pendente = pendentes.get(notificacao.getPost());
+			if (pendente != null) {
+				pendente.agrupa(notificacao);
+				return;
+			}
+		}
+		if (notificacoes.size() == capacidade) {
+			Notificacao descartada = desenfileira();
+			descartadas += descartada.getQuantidade();
+		}
+		notificacoes.addLast(notificacao);
+		if (pendentes != null)
+			pendentes.put(notificacao.getPost(), notificacao);
+	}
+
+	/**
+	 * Retira a notificacao mais antiga da fila.
+	 * 
+	 * @return Notificacao mais antiga, ou null se a caixa estiver vazia.
+	 */
+	public synchronized Notificacao retira() {
+		if (notificacoes.isEmpty())
+			return null;
+		return desenfileira();
+	}
+
+	/**
+	 * Retira as proximas notificacoes da fila de uma vez.
+	 * 
+	 * @param quantidade
+	 *            Quantidade maxima de entradas a retirar.
+	 * @return Lista com as notificacoes, da mais antiga para a mais nova.
+	 */
+	public synchronized List<Notificacao> retira(int quantidade) {
+		if (quantidade < 0)
+			throw new IllegalArgumentException("A quantidade nao pode ser negativa.");
+		List<Notificacao> retiradas = new ArrayList<>(Math.min(quantidade, notificacoes.size()));
+		while (retiradas.size() < quantidade && !notificacoes.isEmpty())
+			retiradas.add(desenfileira());
+		return retiradas;
+	}
+
+	/**
+	 * Retorna a quantidade de notificacoes na caixa, contando cada uma das
+	 * agrupadas.
+	 * 
+	 * @return Quantidade de notificacoes ainda nao lidas.
+	 */
+	public synchronized int getQuantidade() {
+		return quantidade;
+	}
+
+	/**
+	 * Retorna a quantidade de notificacoes descartadas por falta de espaco.
+	 * 
+	 * @return Quantidade de notificacoes descartadas.
+	 */
+	public synchronized long getDescartadas() {
+		return descartadas;
+	}
+
+	public int getCapacidade() {
+		return capacidade;
+	}
+
+	synchronized boolean isAgrupa() {
+		return agrupa;
+	}
+
+	synchronized List<Notificacao> getNotificacoes() {
+		return new ArrayList<>(notificacoes);
+	}
+
+	/**
+	 * Verifica se a notificacao ainda recebe as curtidas ou rejeicoes seguintes
+	 * do mesmo Post.
+	 */
+	synchronized boolean isPendente(Notificacao notificacao) {
+		Map<Post, Notificacao> pendentes = agrupaveis.get(notificacao.getTipo());
+		return pendentes != null && pendentes.get(notificacao.getPost()) == notificacao;
+	}
+
+	/**
+	 * Coloca uma notificacao salva no fim da caixa, sem agrupar nem descartar.
+	 */
+	synchronized void restaura(Notificacao notificacao, boolean pendente) {
+		notificacoes.addLast(notificacao);
+		quantidade += notificacao.getQuantidade();
+		if (pendente)
+			agrupaveis.computeIfAbsent(notificacao.getTipo(), tipo -> new IdentityHashMap<>())
+					.put(notificacao.getPost(), notificacao);
+	}
+
+	synchronized void setDescartadas(long descartadas) {
+		this.descartadas = descartadas;
+	}
+
+	private Notificacao desenfileira() {
+		Notificacao notificacao = notificacoes.pollFirst();
+		quantidade -= notificacao.getQuantidade();
+		Map<Post, Notificacao> pendentes = agrupaveis.get(notificacao.getTipo());
+		if (pendentes != null && pendentes.get(notificacao.getPost()) == notificacao)
+			pendentes.remove(notificacao.getPost());
+		return notificacao;
+	}
+}
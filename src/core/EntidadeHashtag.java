@@ -40,6 +40,13 @@ public class EntidadeHashtag implements Comparable<EntidadeHashtag> {
 		this.frequencia++;
 	}
 
+	/**
+	 * Decrementa a Frequencia de hashtag.
+	 */
+	public void decrementaFrequencia() {
+		this.frequencia--;
+	}
+
 	/**
 	 * toString da Hashtag.
 	 */
@@ -51,7 +58,7 @@ public class EntidadeHashtag implements Comparable<EntidadeHashtag> {
 	/**
 	 * compareTo de Hashtag. Compara a frequencia de uma hashtag com um outra.
 	 * Caso a frequencia seja a mesma, compara pela ordem alfabetica ignorando
-	 * se e caixa alta ou nao.
+	 * se e caixa alta ou nao, e por ultimo diferenciando caixa alta e baixa.
 	 * 
 	 * @param outraHashtag
 	 *            Uma segunda hashTag para ser comparada.
@@ -61,7 +68,10 @@ public class EntidadeHashtag implements Comparable<EntidadeHashtag> {
 		if (this.getFrequencia() != outraHashtag.getFrequencia()) {
 			return this.getFrequencia() - outraHashtag.getFrequencia();
 		} else {
-			return this.toString().compareToIgnoreCase(outraHashtag.toString());
+			int comparacao = this.toString().compareToIgnoreCase(outraHashtag.toString());
+			if (comparacao != 0)
+				return comparacao;
+			return this.toString().compareTo(outraHashtag.toString());
 		}
 	}
 
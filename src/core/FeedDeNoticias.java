@@ -0,0 +1,320 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Feed de noticias do +Pop: os posts dos amigos de um usuario, do mais novo
+ * para o mais antigo. <br>
+ * Cada usuario que ja leu o feed tem uma linha do tempo com os posts mais
+ * recentes dos amigos, montada a partir dos murais na primeira leitura e
+ * depois atualizada a cada post criado por um amigo (distribuicao na escrita).
+ * Uma amizade nova traz os posts do amigo para a linha do tempo ja montada.
+ * <br>
+ * Usuarios acima do nivel inicial (Celebridade Pop e Icone Pop, nas regras
+ * padrao) podem ter milhares de amigos, entao os seus posts nao sao
+ * distribuidos: quem publica nesses niveis passa a ser lido na leitura do feed
+ * (distribuicao na leitura), mesmo que volte ao nivel inicial, e as suas
+ * entradas nas linhas do tempo sao ignoradas. Cada um deles tem uma linha so
+ * com os seus posts mais recentes, da mesma capacidade, entao a leitura nao
+ * percorre o mural inteiro. Amizades desfeitas e usuarios removidos sao
+ * filtrados na leitura. <br>
+ * Uma linha que ja descartou posts pode nao ter os que uma pagina mais
+ * antiga, ou muito filtrada, precisa; nesse caso a pagina e montada a partir
+ * dos murais.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class FeedDeNoticias {
+	public static final int CAPACIDADE_PADRAO = 500;
+	private static final Comparator<Entrada> MAIS_NOVA_PRIMEIRO = new Comparator<Entrada>() {
+		@Override
+		public int compare(Entrada primeira, Entrada segunda) {
+			return segunda.post.comparaData(primeira.post);
+		}
+	};
+	private static final Predicate<Usuario> TODOS = autor -> true;
+	private final GrafoSocial grafo;
+	private final int capacidade;
+	private final Map<Usuario, LinhaDoTempo> linhas;
+	private final Map<Usuario, LinhaDoTempo> lidosNaLeitura;
+
+	/**
+	 * Construtor de FeedDeNoticias, com linhas do tempo de CAPACIDADE_PADRAO
+	 * posts.
+	 * 
+	 * @param grafo
+	 *            Grafo com as amizades dos usuarios.
+	 */
+	public FeedDeNoticias(GrafoSocial grafo) {
+		this(grafo, CAPACIDADE_PADRAO);
+	}
+
+	/**
+	 * Construtor de FeedDeNoticias.
+	 * 
+	 * @param grafo
+	 *            Grafo com as amizades dos usuarios.
+	 * @param capacidade
+	 *            Quantidade de posts guardados na linha do tempo de cada
+	 *            usuario e na linha de cada usuario lido na leitura; posts mais
+	 *            antigos que esses sao lidos dos murais.
+	 */
+	public FeedDeNoticias(GrafoSocial grafo, int capacidade) {
+		if (capacidade < 1)
+			throw new IllegalArgumentException("A linha do tempo deve ter capacidade positiva.");
+		this.grafo = grafo;
+		this.capacidade = capacidade;
+		this.linhas = new ConcurrentHashMap<>();
+		this.lidosNaLeitura = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Distribui um post recem-criado para as linhas do tempo dos amigos do
+	 * autor, ou marca o autor para ser lido na leitura se ele estiver acima do
+	 * nivel inicial.
+	 * 
+	 * @param autor
+	 *            Usuario que criou o post; o post ja deve estar no seu mural.
+	 * @param post
+	 *            Post criado.
+	 */
+	public void registraPost(Usuario autor, Post post) {
+		LinhaDoTempo recentes = lidosNaLeitura.get(autor);
+		if (recentes != null) {
+			recentes.adiciona(autor, post);
+			return;
+		}
+		if (autor.isPopular()) {
+			passaParaLeitura(autor);
+			return;
+		}
+		for (Usuario amigo : grafo.getAmigos(autor)) {
+			LinhaDoTempo linha = linhas.get(amigo);
+			if (linha != null)
+				linha.adiciona(autor, post);
+		}
+	}
+
+	/**
+	 * Traz os posts de cada usuario para a linha do tempo do outro, depois que
+	 * eles se tornaram amigos no grafo.
+	 * 
+	 * @param usuario
+	 *            Um dos novos amigos.
+	 * @param amigo
+	 *            O outro.
+	 */
+	public void registraAmizade(Usuario usuario, Usuario amigo) {
+		preenche(linhas.get(usuario), amigo);
+		preenche(linhas.get(amigo), usuario);
+	}
+
+	/**
+	 * Descarta a linha do tempo de um usuario removido. Os posts dele saem do
+	 * feed dos amigos na leitura.
+	 * 
+	 * @param usuario
+	 *            Usuario removido.
+	 */
+	public void removeUsuario(Usuario usuario) {
+		linhas.remove(usuario);
+		lidosNaLeitura.remove(usuario);
+	}
+
+	/**
+	 * Retorna uma pagina do feed de um usuario.
+	 * 
+	 * @param leitor
+	 *            Usuario que le o feed.
+	 * @param inicio
+	 *            Quantos posts, a partir do mais novo, pular.
+	 * @param quantidade
+	 *            Quantidade maxima de posts da pagina.
+	 * @return Posts dos amigos, do mais novo para o mais antigo, cada um no
+	 *         formato "email do autor: post".
+	 */
+	public List<String> getFeed(Usuario leitor, int inicio, int quantidade) {
+		if (quantidade <= 0)
+			return Collections.emptyList();
+		int necessarias = (int) Math.min(Integer.MAX_VALUE, (long) inicio + quantidade);
+		LinhaDoTempo linha = getLinhaDoTempo(leitor);
+		List<Entrada> entradas = linha.getMaisRecentes(necessarias,
+				autor -> !lidosNaLeitura.containsKey(autor) && isAmigoAtivo(leitor, autor));
+		if (entradas.size() < necessarias && !linha.isCompleta()) {
+			entradas.clear();
+			for (Usuario amigo : grafo.getAmigos(leitor))
+				if (!lidosNaLeitura.containsKey(amigo) && !grafo.isRemovido(amigo))
+					adicionaMaisRecentesDoMural(entradas, amigo, necessarias);
+		}
+		for (Usuario autor : getLidosNaLeitura(leitor)) {
+			LinhaDoTempo recentes = lidosNaLeitura.get(autor);
+			List<Entrada> doAutor = recentes == null ? null : recentes.getMaisRecentes(necessarias, TODOS);
+			if (doAutor == null || doAutor.size() < necessarias && !recentes.isCompleta())
+				adicionaMaisRecentesDoMural(entradas, autor, necessarias);
+			else
+				entradas.addAll(doAutor);
+		}
+		entradas.sort(MAIS_NOVA_PRIMEIRO);
+		List<String> pagina = new ArrayList<>();
+		for (int i = inicio; i < entradas.size() && i < necessarias; i++)
+			pagina.add(entradas.get(i).autor.getEmail() + ": " + entradas.get(i).post);
+		return pagina;
+	}
+
+	private LinhaDoTempo getLinhaDoTempo(Usuario leitor) {
+		LinhaDoTempo linha = linhas.get(leitor);
+		if (linha != null)
+			return linha;
+		LinhaDoTempo nova = new LinhaDoTempo(capacidade);
+		synchronized (nova) {
+			linha = linhas.putIfAbsent(leitor, nova);
+			if (linha != null)
+				return linha;
+			for (Usuario amigo : grafo.getAmigos(leitor))
+				preenche(nova, amigo);
+		}
+		return nova;
+	}
+
+	private void passaParaLeitura(Usuario autor) {
+		LinhaDoTempo nova = new LinhaDoTempo(capacidade);
+		synchronized (nova) {
+			if (lidosNaLeitura.putIfAbsent(autor, nova) != null)
+				return;
+			for (Post post : autor.getPosts())
+				nova.adiciona(autor, post);
+		}
+	}
+
+	private void preenche(LinhaDoTempo linha, Usuario amigo) {
+		if (linha == null || lidosNaLeitura.containsKey(amigo))
+			return;
+		for (Post post : amigo.getPosts())
+			linha.adiciona(amigo, post);
+	}
+
+	private List<Usuario> getLidosNaLeitura(Usuario leitor) {
+		List<Usuario> autores = new ArrayList<>();
+		if (lidosNaLeitura.size() < grafo.getQtdAmigos(leitor)) {
+			for (Usuario autor : lidosNaLeitura.keySet())
+				if (isAmigoAtivo(leitor, autor))
+					autores.add(autor);
+		} else {
+			for (Usuario amigo : grafo.getAmigos(leitor))
+				if (lidosNaLeitura.containsKey(amigo) && !grafo.isRemovido(amigo))
+					autores.add(amigo);
+		}
+		return autores;
+	}
+
+	private boolean isAmigoAtivo(Usuario leitor, Usuario autor) {
+		return grafo.saoAmigos(leitor, autor) && !grafo.isRemovido(autor);
+	}
+
+	private static void adicionaMaisRecentesDoMural(List<Entrada> entradas, Usuario autor, int necessarias) {
+		PriorityQueue<Entrada> maisRecentes = new PriorityQueue<>(MAIS_NOVA_PRIMEIRO.reversed());
+		List<Post> mural = autor.getPosts();
+		for (ListIterator<Post> posts = mural.listIterator(mural.size()); posts.hasPrevious();) {
+			Post post = posts.previous();
+			if (maisRecentes.size() == necessarias) {
+				if (post.comparaData(maisRecentes.peek().post) <= 0)
+					continue;
+				maisRecentes.poll();
+			}
+			maisRecentes.add(new Entrada(autor, post));
+		}
+		entradas.addAll(maisRecentes);
+	}
+
+	/**
+	 * Post de um amigo no feed, com o seu autor.
+	 */
+	private static final class Entrada {
+		private final Usuario autor;
+		private final Post post;
+
+		Entrada(Usuario autor, Post post) {
+			this.autor = autor;
+			this.post = post;
+		}
+	}
+
+	/**
+	 * Os posts mais recentes dos amigos de um usuario, ou de um autor lido na
+	 * leitura, em ordem de data, do mais antigo para o mais novo. Quando a
+	 * linha enche, um post novo descarta o mais antigo; posts com a mesma data
+	 * ficam na ordem de chegada, e um post que ja esta na linha nao e
+	 * repetido. A linha e completa enquanto nunca descartou um post.
+	 */
+	private static final class LinhaDoTempo {
+		private final Post[] posts;
+		private final Usuario[] autores;
+		private int tamanho;
+		private boolean descartou;
+
+		LinhaDoTempo(int capacidade) {
+			this.posts = new Post[capacidade];
+			this.autores = new Usuario[capacidade];
+			this.tamanho = 0;
+			this.descartou = false;
+		}
+
+		synchronized void adiciona(Usuario autor, Post post) {
+			boolean cheia = tamanho == posts.length;
+			if (cheia && post.comparaData(posts[0]) < 0) {
+				descartou = true;
+				return;
+			}
+			int posicao = posicaoDepoisDe(post);
+			for (int i = posicao - 1; i >= 0 && posts[i].comparaData(post) == 0; i--)
+				if (posts[i] == post)
+					return;
+			if (cheia) {
+				descartou = true;
+				posicao--;
+				System.arraycopy(posts, 1, posts, 0, posicao);
+				System.arraycopy(autores, 1, autores, 0, posicao);
+			} else {
+				System.arraycopy(posts, posicao, posts, posicao + 1, tamanho - posicao);
+				System.arraycopy(autores, posicao, autores, posicao + 1, tamanho - posicao);
+				tamanho++;
+			}
+			posts[posicao] = post;
+			autores[posicao] = autor;
+		}
+
+		synchronized boolean isCompleta() {
+			return !descartou;
+		}
+
+		synchronized List<Entrada> getMaisRecentes(int quantidade, Predicate<Usuario> aceitaAutor) {
+			List<Entrada> entradas = new ArrayList<>();
+			for (int i = tamanho - 1; i >= 0 && entradas.size() < quantidade; i--)
+				if (aceitaAutor.test(autores[i]))
+					entradas.add(new Entrada(autores[i], posts[i]));
+			return entradas;
+		}
+
+		private int posicaoDepoisDe(Post post) {
+			int baixo = 0;
+			int alto = tamanho;
+			while (baixo < alto) {
+				int meio = (baixo + alto) >>> 1;
+				if (posts[meio].comparaData(post) > 0)
+					alto = meio;
+				else
+					baixo = meio + 1;
+			}
+			return baixo;
+		}
+	}
+}
@@ -0,0 +1,555 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import exceptions.NaoTemAmizadeException;
+import exceptions.SolicitacaoInexistenteException;
+
+/**
+ * Grafo das amizades e solicitacoes de amizade entre os usuarios do +Pop. <br>
+ * Cada Usuario recebe, na primeira vez que entra no grafo, um vertice: um
+ * inteiro denso, de 0 ao numero de usuarios. Os amigos e os solicitantes de
+ * cada vertice ficam em um vetor de int ordenado, entao verificar uma amizade
+ * e uma busca binaria, contar amigos e ler o tamanho do vetor e contar amigos
+ * em comum e percorrer dois vetores ordenados, sem objetos intermediarios.
+ * <br>
+ * Os vetores nunca sao alterados depois de publicados: cada mudanca cria um
+ * vetor novo para o vertice, com custo proporcional ao numero de vizinhos, e o
+ * troca em um AtomicReferenceArray. As alteracoes sao feitas com o monitor do
+ * grafo, o que mantem os dois lados de uma amizade sempre juntos, e as
+ * consultas nao usam travas: cada uma ve os vetores inteiros de algum estado
+ * ja publicado. <br>
+ * As sugestoes de amizade de cada vertice ficam em cache junto com a geracao
+ * do vertice lida antes do calculo. Cada alteracao, depois de publicar os
+ * vetores novos, avanca a geracao so dos vertices cujas sugestoes ela muda
+ * (os dois usuarios e os amigos de cada um), e um cache de geracao antiga e
+ * recalculado na proxima consulta.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class GrafoSocial {
+	private static final int[] VAZIO = new int[0];
+	private static final int CAPACIDADE_INICIAL = 16;
+	private static final int SEM_VERTICE = -1;
+	public static final int SUGESTOES_EM_CACHE = 10;
+	private volatile Vertices vertices;
+	private int quantidade;
+
+	/**
+	 * Construtor de GrafoSocial, sem usuarios.
+	 */
+	public GrafoSocial() {
+		this.vertices = new Vertices(CAPACIDADE_INICIAL);
+		this.quantidade = 0;
+	}
+
+	/**
+	 * Registra que um usuario solicitou a amizade de outro. Uma solicitacao
+	 * repetida nao tem efeito.
+	 * 
+	 * @param solicitante
+	 *            Usuario que pediu a amizade.
+	 * @param destinatario
+	 *            Usuario que recebe a solicitacao.
+	 */
+	public synchronized void solicitaAmizade(Usuario solicitante, Usuario destinatario) {
+		int de = registra(solicitante);
+		int para = registra(destinatario);
+		Vertices atuais = vertices;
+		atuais.solicitacoes.set(para, insere(atuais.solicitacoes.get(para), de));
+		atuais.invalida(de);
+		atuais.invalida(para);
+	}
+
+	/**
+	 * Remove a solicitacao de amizade feita a um usuario.
+	 * 
+	 * @param usuario
+	 *            Usuario que recebeu a solicitacao.
+	 * @param solicitante
+	 *            Usuario que pediu a amizade.
+	 * @throws SolicitacaoInexistenteException
+	 *             Excessao lancada quando o solicitante nao pediu a amizade do
+	 *             usuario.
+	 */
+	public synchronized void rejeitaAmizade(Usuario usuario, Usuario solicitante)
+			throws SolicitacaoInexistenteException {
+		removeSolicitacao(usuario, solicitante);
+	}
+
+	/**
+	 * Remove a solicitacao de amizade feita a um usuario e torna os dois
+	 * usuarios amigos um do outro, de forma atomica.
+	 * 
+	 * @param usuario
+	 *            Usuario que recebeu a solicitacao.
+	 * @param solicitante
+	 *            Usuario que pediu a amizade.
+	 * @throws SolicitacaoInexistenteException
+	 *             Excessao lancada quando o solicitante nao pediu a amizade do
+	 *             usuario.
+	 */
+	public synchronized void aceitaAmizade(Usuario usuario, Usuario solicitante)
+			throws SolicitacaoInexistenteException {
+		removeSolicitacao(usuario, solicitante);
+		int a = registra(usuario);
+		int b = registra(solicitante);
+		Vertices atuais = vertices;
+		atuais.amigos.set(a, insere(atuais.amigos.get(a), b));
+		atuais.amigos.set(b, insere(atuais.amigos.get(b), a));
+		atuais.invalidaVizinhanca(a);
+		atuais.invalidaVizinhanca(b);
+	}
+
+	/**
+	 * Desfaz a amizade entre dois usuarios, de forma atomica.
+	 * 
+	 * @param usuario
+	 *            Usuario que desfaz a amizade.
+	 * @param amigo
+	 *            Usuario que deixara de ser amigo.
+	 * @throws NaoTemAmizadeException
+	 *             Excessao lancada quando os usuarios nao sao amigos.
+	 */
+	public synchronized void desfazAmizade(Usuario usuario, Usuario amigo) throws NaoTemAmizadeException {
+		Vertices atuais = vertices;
+		int a = atuais.vertice(usuario);
+		int b = atuais.vertice(amigo);
+		if (a == SEM_VERTICE || b == SEM_VERTICE || Arrays.binarySearch(atuais.amigos.get(a), b) < 0)
+			throw new NaoTemAmizadeException(amigo);
+		atuais.amigos.set(a, remove(atuais.amigos.get(a), b));
+		atuais.amigos.set(b, remove(atuais.amigos.get(b), a));
+		atuais.invalidaVizinhanca(a);
+		atuais.invalidaVizinhanca(b);
+	}
+
+	/**
+	 * Marca um usuario removido do +Pop. Ele deixa de ser sugerido, mas as
+	 * amizades e solicitacoes que outros usuarios tem com ele continuam.
+	 * 
+	 * @param usuario
+	 *            Usuario removido.
+	 */
+	public synchronized void removeUsuario(Usuario usuario) {
+		Vertices atuais = vertices;
+		int vertice = atuais.vertice(usuario);
+		if (vertice == SEM_VERTICE)
+			return;
+		atuais.removidos.set(vertice, 1);
+		for (int amigo : atuais.amigos.get(vertice))
+			atuais.invalidaVizinhanca(amigo);
+	}
+
+	/**
+	 * Avisa o grafo que um usuario trocou de e-mail. O e-mail desempata as
+	 * sugestoes, entao os caches de quem pode ter o usuario entre as sugestoes
+	 * (os amigos dos amigos dele) sao descartados.
+	 * 
+	 * @param usuario
+	 *            Usuario, ja com o novo e-mail.
+	 */
+	public synchronized void registraMudancaDeEmail(Usuario usuario) {
+		Vertices atuais = vertices;
+		int vertice = atuais.vertice(usuario);
+		if (vertice == SEM_VERTICE)
+			return;
+		for (int amigo : atuais.amigos.get(vertice))
+			atuais.invalidaVizinhanca(amigo);
+	}
+
+	/**
+	 * Verifica se dois usuarios sao amigos.
+	 * 
+	 * @param usuario
+	 *            Um dos usuarios.
+	 * @param outro
+	 *            O outro usuario.
+	 * @return true se os usuarios sao amigos.
+	 */
+	public boolean saoAmigos(Usuario usuario, Usuario outro) {
+		Vertices atuais = vertices;
+		int a = atuais.vertice(usuario);
+		int b = atuais.vertice(outro);
+		return a != SEM_VERTICE && b != SEM_VERTICE && Arrays.binarySearch(atuais.amigos.get(a), b) >= 0;
+	}
+
+	/**
+	 * Verifica se dois usuarios sao amigos.
+	 * 
+	 * @param usuario
+	 *            Usuario cujos amigos sao consultados.
+	 * @param amigo
+	 *            Usuario que deve ser amigo.
+	 * @throws NaoTemAmizadeException
+	 *             Excessao lancada quando os usuarios nao sao amigos.
+	 */
+	public void verificaAmizade(Usuario usuario, Usuario amigo) throws NaoTemAmizadeException {
+		if (!saoAmigos(usuario, amigo))
+			throw new NaoTemAmizadeException(amigo);
+	}
+
+	/**
+	 * Indica se um usuario foi marcado como removido do +Pop.
+	 * 
+	 * @param usuario
+	 *            Usuario consultado.
+	 * @return true se removeUsuario foi chamado para o usuario.
+	 */
+	public boolean isRemovido(Usuario usuario) {
+		Vertices atuais = vertices;
+		int vertice = atuais.vertice(usuario);
+		return vertice != SEM_VERTICE && atuais.removidos.get(vertice) != 0;
+	}
+
+	/**
+	 * Retorna a quantidade de amigos de um usuario.
+	 * 
+	 * @param usuario
+	 *            Usuario consultado.
+	 * @return Quantidade de amigos.
+	 */
+	public int getQtdAmigos(Usuario usuario) {
+		return amigosDe(vertices, usuario).length;
+	}
+
+	/**
+	 * Conta os amigos que dois usuarios tem em comum.
+	 * 
+	 * @param usuario
+	 *            Um dos usuarios.
+	 * @param outro
+	 *            O outro usuario.
+	 * @return Quantidade de amigos em comum.
+	 */
+	public int getQtdAmigosEmComum(Usuario usuario, Usuario outro) {
+		Vertices atuais = vertices;
+		return contaEmComum(amigosDe(atuais, usuario), amigosDe(atuais, outro));
+	}
+
+	/**
+	 * Sugere amigos de amigos de um usuario, ordenados pela quantidade de
+	 * amigos em comum e, nos empates, pelo e-mail. Nao sao sugeridos o
+	 * proprio usuario, os seus amigos, usuarios removidos e usuarios com
+	 * solicitacao de amizade pendente com ele. <br>
+	 * Os vetores de amigos dos amigos sao juntados e ordenados, e cada
+	 * sequencia de vertices iguais tem o tamanho da intersecao entre os amigos
+	 * do usuario e os do vertice. As SUGESTOES_EM_CACHE primeiras ficam em
+	 * cache ate que uma alteracao no grafo as mude.
+	 * 
+	 * @param usuario
+	 *            Usuario que recebe as sugestoes.
+	 * @param quantidade
+	 *            Quantidade maxima de sugestoes.
+	 * @return Usuarios sugeridos, do que tem mais amigos em comum para o que
+	 *         tem menos.
+	 */
+	public List<Usuario> getSugestoesDeAmizade(Usuario usuario, int quantidade) {
+		Vertices atuais = vertices;
+		int vertice = atuais.vertice(usuario);
+		if (vertice == SEM_VERTICE || quantidade <= 0)
+			return Collections.emptyList();
+		int geracao = atuais.geracoes.get(vertice);
+		Sugestoes sugestoes = atuais.sugestoes.get(vertice);
+		if (sugestoes == null || sugestoes.geracao != geracao || !sugestoes.atende(quantidade)) {
+			sugestoes = calculaSugestoes(atuais, vertice, geracao, Math.max(quantidade, SUGESTOES_EM_CACHE));
+			atuais.sugestoes.set(vertice, sugestoes);
+		}
+		int[] sugeridos = sugestoes.vertices;
+		return usuariosDe(atuais, quantidade >= sugeridos.length ? sugeridos : Arrays.copyOf(sugeridos, quantidade));
+	}
+
+	/**
+	 * Retorna os amigos de um usuario.
+	 * 
+	 * @param usuario
+	 *            Usuario consultado.
+	 * @return Amigos, na ordem dos vertices.
+	 */
+	List<Usuario> getAmigos(Usuario usuario) {
+		Vertices atuais = vertices;
+		return usuariosDe(atuais, amigosDe(atuais, usuario));
+	}
+
+	/**
+	 * Retorna os usuarios que solicitaram a amizade de um usuario.
+	 * 
+	 * @param usuario
+	 *            Usuario consultado.
+	 * @return Solicitantes, na ordem dos vertices.
+	 */
+	List<Usuario> getSolicitacoesDeAmizade(Usuario usuario) {
+		Vertices atuais = vertices;
+		int vertice = atuais.vertice(usuario);
+		return usuariosDe(atuais, vertice == SEM_VERTICE ? VAZIO : atuais.solicitacoes.get(vertice));
+	}
+
+	/**
+	 * Restaura as relacoes de um usuario salvo. A amizade so fica completa
+	 * quando os dois lados sao restaurados.
+	 * 
+	 * @param usuario
+	 *            Usuario restaurado.
+	 * @param amigos
+	 *            Amigos do usuario.
+	 * @param solicitantes
+	 *            Usuarios que solicitaram a amizade do usuario.
+	 */
+	synchronized void restauraRelacoes(Usuario usuario, Collection<Usuario> amigos,
+			Collection<Usuario> solicitantes) {
+		int vertice = registra(usuario);
+		int[] verticesDosAmigos = registraTodos(amigos);
+		int[] verticesDosSolicitantes = registraTodos(solicitantes);
+		Vertices atuais = vertices;
+		atuais.amigos.set(vertice, verticesDosAmigos);
+		atuais.solicitacoes.set(vertice, verticesDosSolicitantes);
+	}
+
+	static int contaEmComum(int[] primeiros, int[] segundos) {
+		if (primeiros.length > segundos.length)
+			return contaEmComum(segundos, primeiros);
+		int comuns = 0;
+		if ((long) primeiros.length * (32 - Integer.numberOfLeadingZeros(segundos.length)) < segundos.length) {
+			int inicio = 0;
+			for (int vertice : primeiros) {
+				int posicao = Arrays.binarySearch(segundos, inicio, segundos.length, vertice);
+				if (posicao >= 0) {
+					comuns++;
+					inicio = posicao + 1;
+				} else {
+					inicio = -posicao - 1;
+				}
+			}
+			return comuns;
+		}
+		for (int i = 0, j = 0; i < primeiros.length && j < segundos.length;) {
+			if (primeiros[i] < segundos[j]) {
+				i++;
+			} else if (primeiros[i] > segundos[j]) {
+				j++;
+			} else {
+				comuns++;
+				i++;
+				j++;
+			}
+		}
+		return comuns;
+	}
+
+	private static Sugestoes calculaSugestoes(Vertices atuais, int vertice, int geracao, int limite) {
+		int[] amigos = atuais.amigos.get(vertice);
+		int total = 0;
+		int[][] amigosDosAmigos = new int[amigos.length][];
+		for (int i = 0; i < amigos.length; i++) {
+			amigosDosAmigos[i] = atuais.amigos.get(amigos[i]);
+			total += amigosDosAmigos[i].length;
+		}
+		int[] candidatos = new int[total];
+		int posicao = 0;
+		for (int[] vizinhos : amigosDosAmigos) {
+			System.arraycopy(vizinhos, 0, candidatos, posicao, vizinhos.length);
+			posicao += vizinhos.length;
+		}
+		Arrays.sort(candidatos);
+		int[] melhores = new int[limite];
+		int[] emComum = new int[limite];
+		int escolhidos = 0;
+		boolean completas = true;
+		int[] solicitantes = atuais.solicitacoes.get(vertice);
+		for (int inicio = 0, fim; inicio < total; inicio = fim) {
+			int candidato = candidatos[inicio];
+			for (fim = inicio + 1; fim < total && candidatos[fim] == candidato;)
+				fim++;
+			int comuns = fim - inicio;
+			if (escolhidos == limite && comuns < emComum[limite - 1]) {
+				completas = false;
+				continue;
+			}
+			if (candidato == vertice || atuais.removidos.get(candidato) != 0
+					|| Arrays.binarySearch(amigos, candidato) >= 0 || Arrays.binarySearch(solicitantes, candidato) >= 0
+					|| Arrays.binarySearch(atuais.solicitacoes.get(candidato), vertice) >= 0)
+				continue;
+			if (escolhidos == limite) {
+				completas = false;
+				if (!antes(atuais, comuns, candidato, emComum[limite - 1], melhores[limite - 1]))
+					continue;
+				escolhidos--;
+			}
+			int i = escolhidos++;
+			for (; i > 0 && antes(atuais, comuns, candidato, emComum[i - 1], melhores[i - 1]); i--) {
+				melhores[i] = melhores[i - 1];
+				emComum[i] = emComum[i - 1];
+			}
+			melhores[i] = candidato;
+			emComum[i] = comuns;
+		}
+		return new Sugestoes(Arrays.copyOf(melhores, escolhidos), geracao, limite, completas);
+	}
+
+	private static boolean antes(Vertices atuais, int comuns, int vertice, int outrosComuns, int outroVertice) {
+		if (comuns != outrosComuns)
+			return comuns > outrosComuns;
+		return atuais.usuarios.get(vertice).getEmail().compareTo(atuais.usuarios.get(outroVertice).getEmail()) < 0;
+	}
+
+	private void removeSolicitacao(Usuario usuario, Usuario solicitante) throws SolicitacaoInexistenteException {
+		Vertices atuais = vertices;
+		int para = atuais.vertice(usuario);
+		int de = atuais.vertice(solicitante);
+		if (para == SEM_VERTICE || de == SEM_VERTICE || Arrays.binarySearch(atuais.solicitacoes.get(para), de) < 0)
+			throw new SolicitacaoInexistenteException(solicitante.getNome());
+		atuais.solicitacoes.set(para, remove(atuais.solicitacoes.get(para), de));
+		atuais.invalida(de);
+		atuais.invalida(para);
+	}
+
+	private static int[] amigosDe(Vertices atuais, Usuario usuario) {
+		int vertice = atuais.vertice(usuario);
+		return vertice == SEM_VERTICE ? VAZIO : atuais.amigos.get(vertice);
+	}
+
+	private static List<Usuario> usuariosDe(Vertices atuais, int[] verticesDosUsuarios) {
+		List<Usuario> usuarios = new ArrayList<>(verticesDosUsuarios.length);
+		for (int vertice : verticesDosUsuarios)
+			usuarios.add(atuais.usuarios.get(vertice));
+		return usuarios;
+	}
+
+	private int[] registraTodos(Collection<Usuario> usuarios) {
+		int[] verticesDosUsuarios = new int[usuarios.size()];
+		int i = 0;
+		for (Usuario usuario : usuarios)
+			verticesDosUsuarios[i++] = registra(usuario);
+		Arrays.sort(verticesDosUsuarios);
+		int distintos = 0;
+		for (int j = 0; j < verticesDosUsuarios.length; j++)
+			if (j == 0 || verticesDosUsuarios[j] != verticesDosUsuarios[j - 1])
+				verticesDosUsuarios[distintos++] = verticesDosUsuarios[j];
+		return distintos == verticesDosUsuarios.length ? verticesDosUsuarios
+				: Arrays.copyOf(verticesDosUsuarios, distintos);
+	}
+
+	private int registra(Usuario usuario) {
+		Vertices atuais = vertices;
+		int vertice = atuais.vertice(usuario);
+		if (vertice != SEM_VERTICE)
+			return vertice;
+		if (usuario.getVertice() != SEM_VERTICE)
+			throw new IllegalStateException("O usuario " + usuario.getEmail() + " ja pertence a outro grafo.");
+		if (quantidade == atuais.usuarios.length()) {
+			atuais = atuais.copia(2 * quantidade);
+			vertices = atuais;
+		}
+		vertice = quantidade++;
+		atuais.usuarios.set(vertice, usuario);
+		atuais.amigos.set(vertice, VAZIO);
+		atuais.solicitacoes.set(vertice, VAZIO);
+		usuario.setVertice(vertice);
+		return vertice;
+	}
+
+	private static int[] insere(int[] vizinhos, int vertice) {
+		int posicao = Arrays.binarySearch(vizinhos, vertice);
+		if (posicao >= 0)
+			return vizinhos;
+		posicao = -posicao - 1;
+		int[] novos = new int[vizinhos.length + 1];
+		System.arraycopy(vizinhos, 0, novos, 0, posicao);
+		novos[posicao] = vertice;
+		System.arraycopy(vizinhos, posicao, novos, posicao + 1, vizinhos.length - posicao);
+		return novos;
+	}
+
+	private static int[] remove(int[] vizinhos, int vertice) {
+		int posicao = Arrays.binarySearch(vizinhos, vertice);
+		if (posicao < 0)
+			return vizinhos;
+		if (vizinhos.length == 1)
+			return VAZIO;
+		int[] novos = new int[vizinhos.length - 1];
+		System.arraycopy(vizinhos, 0, novos, 0, posicao);
+		System.arraycopy(vizinhos, posicao + 1, novos, posicao, novos.length - posicao);
+		return novos;
+	}
+
+	/**
+	 * Sugestoes calculadas para um vertice. Se completas, sao todos os
+	 * candidatos; senao, os limite primeiros.
+	 */
+	private static final class Sugestoes {
+		private final int[] vertices;
+		private final int geracao;
+		private final int limite;
+		private final boolean completas;
+
+		Sugestoes(int[] vertices, int geracao, int limite, boolean completas) {
+			this.vertices = vertices;
+			this.geracao = geracao;
+			this.limite = limite;
+			this.completas = completas;
+		}
+
+		boolean atende(int quantidade) {
+			return completas || quantidade <= limite;
+		}
+	}
+
+	/**
+	 * Usuarios, vizinhos e sugestoes de cada vertice. Quando os vertices nao
+	 * cabem mais, o grafo publica uma copia maior; uma consulta que ainda usa
+	 * a anterior ve o estado do momento da troca.
+	 */
+	private static final class Vertices {
+		private final AtomicReferenceArray<Usuario> usuarios;
+		private final AtomicReferenceArray<int[]> amigos;
+		private final AtomicReferenceArray<int[]> solicitacoes;
+		private final AtomicIntegerArray removidos;
+		private final AtomicIntegerArray geracoes;
+		private final AtomicReferenceArray<Sugestoes> sugestoes;
+
+		Vertices(int capacidade) {
+			this.usuarios = new AtomicReferenceArray<>(capacidade);
+			this.amigos = new AtomicReferenceArray<>(capacidade);
+			this.solicitacoes = new AtomicReferenceArray<>(capacidade);
+			this.removidos = new AtomicIntegerArray(capacidade);
+			this.geracoes = new AtomicIntegerArray(capacidade);
+			this.sugestoes = new AtomicReferenceArray<>(capacidade);
+		}
+
+		void invalida(int vertice) {
+			geracoes.incrementAndGet(vertice);
+		}
+
+		void invalidaVizinhanca(int vertice) {
+			invalida(vertice);
+			for (int amigo : amigos.get(vertice))
+				invalida(amigo);
+		}
+
+		int vertice(Usuario usuario) {
+			int vertice = usuario.getVertice();
+			if (vertice < 0 || vertice >= usuarios.length() || usuarios.get(vertice) != usuario)
+				return SEM_VERTICE;
+			return vertice;
+		}
+
+		Vertices copia(int capacidade) {
+			Vertices copia = new Vertices(capacidade);
+			for (int i = 0; i < usuarios.length(); i++) {
+				copia.usuarios.set(i, usuarios.get(i));
+				copia.amigos.set(i, amigos.get(i));
+				copia.solicitacoes.set(i, solicitacoes.get(i));
+				copia.removidos.set(i, removidos.get(i));
+				copia.geracoes.set(i, geracoes.get(i));
+				copia.sugestoes.set(i, sugestoes.get(i));
+			}
+			return copia;
+		}
+	}
+}
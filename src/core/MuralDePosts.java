@@ -0,0 +1,124 @@
+package core;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Mural de um Usuario: lista de Posts em que so se acrescenta no fim. <br>
+ * Os Posts ficam em um array que dobra de tamanho quando enche, entao
+ * acrescentar custa O(1) amortizado, ao contrario de uma CopyOnWriteArrayList,
+ * que copia o mural inteiro a cada Post. Quem escreve usa o monitor do mural;
+ * quem le nao trava: o array e publicado antes do tamanho, que e volatil, e
+ * um array novo sempre contem os Posts do anterior. <br>
+ * getPosts retorna uma visao do mural no momento da chamada, que nao muda
+ * quando novos Posts sao acrescentados.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+final class MuralDePosts {
+	private static final int CAPACIDADE_INICIAL = 8;
+	private volatile Post[] posts;
+	private volatile int tamanho;
+
+	/**
+	 * Construtor de MuralDePosts, vazio.
+	 */
+	MuralDePosts() {
+		this.posts = new Post[0];
+		this.tamanho = 0;
+	}
+
+	/**
+	 * Acrescenta um Post no fim do mural.
+	 * 
+	 * @param post
+	 *            Post a ser acrescentado.
+	 */
+	synchronized void adiciona(Post post) {
+		garanteCapacidade(tamanho + 1);
+		posts[tamanho] = post;
+		tamanho++;
+	}
+
+	/**
+	 * Acrescenta varios Posts no fim do mural, na ordem da lista.
+	 * 
+	 * @param novos
+	 *            Posts a serem acrescentados.
+	 */
+	synchronized void adicionaTodos(List<Post> novos) {
+		garanteCapacidade(tamanho + novos.size());
+		int i = tamanho;
+		for (Post post : novos)
+			posts[i++] = post;
+		tamanho = i;
+	}
+
+	/**
+	 * Retorna a quantidade de Posts do mural.
+	 * 
+	 * @return Quantidade de Posts.
+	 */
+	int getTamanho() {
+		return tamanho;
+	}
+
+	/**
+	 * Retorna um Post do mural. O indice deve ser menor que um tamanho ja lido.
+	 * 
+	 * @param indice
+	 *            Posicao do Post, a partir do mais antigo.
+	 * @return Post da posicao.
+	 */
+	Post get(int indice) {
+		return posts[indice];
+	}
+
+	/**
+	 * Retorna os Posts do mural no momento da chamada, sem copia-los.
+	 * 
+	 * @return Lista nao modificavel com os Posts.
+	 */
+	List<Post> getPosts() {
+		int quantidade = tamanho;
+		return new Visao(posts, quantidade);
+	}
+
+	private void garanteCapacidade(int necessaria) {
+		Post[] atuais = posts;
+		if (necessaria <= atuais.length)
+			return;
+		int capacidade = Math.max(CAPACIDADE_INICIAL, atuais.length);
+		while (capacidade < necessaria)
+			capacidade = capacidade << 1;
+		posts = Arrays.copyOf(atuais, capacidade);
+	}
+
+	/**
+	 * Prefixo de um array de Posts visto como lista nao modificavel.
+	 */
+	private static final class Visao extends AbstractList<Post> implements RandomAccess {
+		private final Post[] posts;
+		private final int tamanho;
+
+		Visao(Post[] posts, int tamanho) {
+			this.posts = posts;
+			this.tamanho = tamanho;
+		}
+
+		@Override
+		public Post get(int indice) {
+			if (indice < 0 || indice >= tamanho)
+				throw new IndexOutOfBoundsException("Indice: " + indice + ", tamanho: " + tamanho);
+			return posts[indice];
+		}
+
+		@Override
+		public int size() {
+			return tamanho;
+		}
+	}
+}
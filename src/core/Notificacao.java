@@ -0,0 +1,144 @@
+package core;
+
+/**
+ * Essa classe representa uma Notificacao recebida por um Usuario. <br>
+ * Guarda apenas o tipo, o autor, o Post envolvido e o momento em que ocorreu;
+ * o texto so e montado quando a Notificacao e lida, ja que a maioria delas
+ * nunca chega a ser exibida. O nome do autor e o do momento da Notificacao,
+ * como acontecia quando o texto era montado na hora, e o momento vem do
+ * Relogio do core, entao segue o relogio fixado nos testes. <br>
+ * Uma Notificacao agrupada representa varias do mesmo tipo sobre o mesmo Post:
+ * guarda o ultimo autor e a quantidade, e so e alterada pela
+ * CaixaDeNotificacoes enquanto ainda nao foi lida.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public class Notificacao {
+	private final TipoDeNotificacao tipo;
+	private final Post post;
+	private String autor;
+	private long momento;
+	private int quantidade;
+
+	/**
+	 * Construtor de Notificacao que nao envolve um Post.
+	 * 
+	 * @param tipo
+	 *            Tipo da Notificacao.
+	 * @param autor
+	 *            Nome do usuario que gerou a Notificacao.
+	 */
+	public Notificacao(TipoDeNotificacao tipo, String autor) {
+		this(tipo, autor, null);
+	}
+
+	/**
+	 * Construtor de Notificacao.
+	 * 
+	 * @param tipo
+	 *            Tipo da Notificacao.
+	 * @param autor
+	 *            Nome do usuario que gerou a Notificacao.
+	 * @param post
+	 *            Post envolvido na Notificacao, ou null.
+	 */
+	public Notificacao(TipoDeNotificacao tipo, String autor, Post post) {
+		this.tipo = tipo;
+		this.autor = autor;
+		this.post = post;
+		this.momento = Relogio.getAtual().getClock().millis();
+		this.quantidade = 1;
+	}
+
+	/**
+	 * Construtor usado para restaurar uma Notificacao salva.
+	 */
+	Notificacao(TipoDeNotificacao tipo, String autor, Post post, long momento, int quantidade) {
+		this.tipo = tipo;
+		this.autor = autor;
+		this.post = post;
+		this.momento = momento;
+		this.quantidade = quantidade;
+	}
+
+	/**
+	 * Agrupa uma nova ocorrencia a esta Notificacao.
+	 * 
+	 * @param outra
+	 *            Notificacao do mesmo tipo e sobre o mesmo Post.
+	 */
+	void agrupa(Notificacao outra) {
+		this.autor = outra.autor;
+		this.momento = outra.momento;
+		this.quantidade += outra.quantidade;
+	}
+
+	/**
+	 * Retorna o tipo da Notificacao, que define o seu texto.
+	 * 
+	 * @return Tipo da Notificacao.
+	 */
+	public TipoDeNotificacao getTipo() {
+		return tipo;
+	}
+
+	/**
+	 * Retorna o nome de quem gerou a Notificacao; se ela foi agrupada, o nome
+	 * do autor da ocorrencia mais recente.
+	 * 
+	 * @return Nome do autor.
+	 */
+	public String getAutor() {
+		return autor;
+	}
+
+	/**
+	 * Retorna o Post envolvido na Notificacao.
+	 * 
+	 * @return Post envolvido, ou null se a Notificacao nao menciona um Post.
+	 */
+	public Post getPost() {
+		return post;
+	}
+
+	/**
+	 * Retorna o momento em que a Notificacao ocorreu; se ela foi agrupada, o
+	 * momento da ocorrencia mais recente.
+	 * 
+	 * @return Milissegundos desde a epoca, lidos do Relogio do core.
+	 */
+	public long getMomento() {
+		return momento;
+	}
+
+	/**
+	 * Retorna quantas notificacoes esta representa.
+	 * 
+	 * @return 1, ou a quantidade agrupada.
+	 */
+	public int getQuantidade() {
+		return quantidade;
+	}
+
+	/**
+	 * Monta o texto da Notificacao.
+	 * 
+	 * @return Texto exibido ao Usuario.
+	 */
+	public String renderiza() {
+		if (quantidade > 1) {
+			int outros = quantidade - 1;
+			return autor + " e mais " + outros + (outros == 1 ? " pessoa" : " pessoas") + tipo.getTextoAgrupado()
+					+ post.getData() + ".";
+		}
+		if (!tipo.mencionaPost())
+			return autor + tipo.getTexto();
+		return autor + tipo.getTexto() + post.getData() + ".";
+	}
+
+	@Override
+	public String toString() {
+		return renderiza();
+	}
+}
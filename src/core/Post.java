@@ -1,42 +1,88 @@
 package core;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import exceptions.IndiceConteudoPostInvalido;
 
 /**
- * Classe que representa um post de um Usuario do +Pop.
+ * Classe que representa um post de um Usuario do +Pop. <br>
+ * O conteudo e as hashtags ficam nos tokens da mensagem original, sem copias de
+ * substrings; so as hashtags adicionadas depois da criacao (#epicwin e
+ * #epicfail) sao guardadas a parte, em um array que so e criado quando a
+ * primeira delas chega e e trocado por uma copia a cada nova hashtag. Os
+ * contadores sao ints volateis atualizados com AtomicIntegerFieldUpdater, de
+ * modo que curtidas e rejeicoes simultaneas nao se perdem e podem ser lidas
+ * sem travas, sem um objeto por contador. A data fica em segundos e
+ * nanossegundos, sem os objetos de um LocalDateTime. <br>
+ * O texto do Post, o conteudo e as hashtags sao montados uma vez e guardados.
+ * O conteudo nunca muda; os outros dois sao marcados com a versao das hashtags
+ * e montados de novo quando uma hashtag e adicionada. <br>
+ * Um Post criado por um ArmazemDePosts guarda so o endereco dos seus tokens no
+ * armazem e le os tokens de la a cada uso; para que o texto nao volte ao heap,
+ * ele tambem nao guarda os textos montados.
  * @author Matteus Silva
- *
+ * 
  */
 public class Post {
-	private List<String> conteudo;
-	private List<String> hashTags;
-	private LocalDateTime data;
-	private int popularidade;
-	private int curtidas;
-	private int rejeicoes;
+	private static final DateTimeFormatter FORMATTER_DATA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+	private static final long SEGUNDOS_POR_DIA = 24 * 60 * 60;
+	private static final String[] SEM_HASHTAGS = new String[0];
+	private static final AtomicIntegerFieldUpdater<Post> POPULARIDADE = AtomicIntegerFieldUpdater
+			.newUpdater(Post.class, "popularidade");
+	private static final AtomicIntegerFieldUpdater<Post> CURTIDAS = AtomicIntegerFieldUpdater
+			.newUpdater(Post.class, "curtidas");
+	private static final AtomicIntegerFieldUpdater<Post> REJEICOES = AtomicIntegerFieldUpdater
+			.newUpdater(Post.class, "rejeicoes");
+	private final TokensDaMensagem tokens;
+	private final ArmazemDePosts armazem;
+	private final long endereco;
+	private volatile String[] hashtagsAdicionadas;
+	private volatile TrendingTopics trendingTopics;
+	private long baldeNosTrendingTopics;
+	private final long segundos;
+	private final int nanos;
+	private volatile String dataFormatada;
+	private volatile String conteudo;
+	private volatile Renderizacao texto;
+	private volatile Renderizacao hashtags;
+	private volatile int versaoDasHashtags;
+	private volatile int popularidade;
+	private volatile int curtidas;
+	private volatile int rejeicoes;
 	
 	/**
 	 * Construtor de Post.
 	 * 
-	 * @param conteudo
-	 *            Tem o texto interno do Post.
-	 * @param hashTags
-	 *            Guarda as hashtags usadas no Post.
+	 * @param tokens
+	 *            Tokens da mensagem, com o texto, as midias e as hashtags.
 	 * @param data
 	 *            Indica a data que foi feito o Post.
 	 */
-	public Post(List<String> conteudo, List<String> hashTags, LocalDateTime data) {
-		this.conteudo = conteudo;
-		this.hashTags = hashTags;
-		this.data = data;
-		this.popularidade = 0;
-		this.curtidas = 0;
-		this.rejeicoes = 0;
+	public Post(TokensDaMensagem tokens, LocalDateTime data) {
+		this(tokens, null, 0, data);
+	}
+
+	/**
+	 * Construtor de um Post cujos tokens ficam em um ArmazemDePosts.
+	 */
+	Post(ArmazemDePosts armazem, long endereco, LocalDateTime data) {
+		this(null, armazem, endereco, data);
+	}
+
+	private Post(TokensDaMensagem tokens, ArmazemDePosts armazem, long endereco, LocalDateTime data) {
+		this.tokens = tokens;
+		this.armazem = armazem;
+		this.endereco = endereco;
+		this.hashtagsAdicionadas = SEM_HASHTAGS;
+		this.segundos = data.toEpochSecond(ZoneOffset.UTC);
+		this.nanos = data.getNano();
 	}
 	
 	@Override
@@ -44,10 +90,27 @@ public class Post {
 	 * toString da classe Post.
 	 */
 	public String toString() {
+		if (armazem != null)
+			return montaTexto();
+		int versao = versaoDasHashtags;
+		Renderizacao renderizacao = texto;
+		if (renderizacao == null || renderizacao.versao != versao) {
+			renderizacao = new Renderizacao(versao, montaTexto());
+			texto = renderizacao;
+		}
+		return renderizacao.texto;
+	}
+
+	private String montaTexto() {
+		TokensDaMensagem tokens = getTokens();
 		StringBuilder sb = new StringBuilder();
-		sb.append(passaConteudoPraString());
+		adicionaConteudo(sb, tokens);
 		sb.append(" ");
-		for (String ht : hashTags) {
+		for (int i = 0; i < tokens.getQuantidadeDeHashtags(); i++) {
+			adicionaHashtagOriginal(sb, tokens, i);
+			sb.append(" ");
+		}
+		for (String ht : hashtagsAdicionadas) {
 			sb.append(ht);
 			sb.append(" ");
 		}
@@ -67,13 +130,30 @@ public class Post {
 	 * @return o conteudo sem espacos execivos.
 	 */
 	public String passaConteudoPraString() {
-		StringBuilder sb = new StringBuilder();
-		sb.append(conteudo.get(0));
-		for (int i = 1; conteudo.size() > i; i++) {
-			sb.append(conteudo.get(i));
-			sb.append(" ");
+		String conteudoAtual = conteudo;
+		if (conteudoAtual == null) {
+			StringBuilder sb = new StringBuilder();
+			adicionaConteudo(sb, getTokens());
+			conteudoAtual = sb.toString();
+			if (armazem == null)
+				conteudo = conteudoAtual;
 		}
-		return sb.toString().trim();
+		return conteudoAtual;
+	}
+
+	private void adicionaConteudo(StringBuilder sb, TokensDaMensagem tokens) {
+		String mensagem = tokens.getMensagem();
+		int inicio = 0;
+		int fim = tokens.getFimDoConteudo(tokens.getQuantidadeDeConteudos() - 1);
+		while (inicio < fim && mensagem.charAt(inicio) <= ' ')
+			inicio++;
+		while (fim > inicio && mensagem.charAt(fim - 1) <= ' ')
+			fim--;
+		sb.append(mensagem, inicio, fim);
+	}
+
+	private void adicionaHashtagOriginal(StringBuilder sb, TokensDaMensagem tokens, int indice) {
+		sb.append(tokens.getMensagem(), tokens.getInicioDaHashtag(indice), tokens.getFimDaHashtag(indice));
 	}
 
 	/**
@@ -82,26 +162,71 @@ public class Post {
 	 * @return toString das hashtags.
 	 */
 	public String getHashtags() {
+		if (armazem != null)
+			return montaHashtags();
+		int versao = versaoDasHashtags;
+		Renderizacao renderizacao = hashtags;
+		if (renderizacao == null || renderizacao.versao != versao) {
+			renderizacao = new Renderizacao(versao, montaHashtags());
+			hashtags = renderizacao;
+		}
+		return renderizacao.texto;
+	}
+
+	private String montaHashtags() {
+		TokensDaMensagem tokens = getTokens();
 		StringBuilder sb = new StringBuilder();
-		sb.append(hashTags.get(0));
-		for (int i = 1; hashTags.size() > i; i++){
-			sb.append(",");
-			sb.append(hashTags.get(i));
+		for (int i = 0; i < tokens.getQuantidadeDeHashtags(); i++) {
+			if (i > 0)
+				sb.append(",");
+			adicionaHashtagOriginal(sb, tokens, i);
+		}
+		for (String ht : hashtagsAdicionadas) {
+			if (sb.length() > 0)
+				sb.append(",");
+			sb.append(ht);
 		}
 		return sb.toString();
 	}
 
 	/**
-	 * Pega a data do Post.
+	 * Pega a data do Post. A data nao muda, entao e formatada uma unica vez.
 	 * 
 	 * @return A string da Data.
 	 */
 	public String getData() {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-		String stringDaData = data.format(formatter);
+		String stringDaData = dataFormatada;
+		if (stringDaData == null) {
+			stringDaData = getDataHora().format(FORMATTER_DATA);
+			if (armazem == null)
+				dataFormatada = stringDaData;
+		}
 		return stringDaData;
 	}
 
+	/**
+	 * Pega a data e a hora do Post.
+	 * 
+	 * @return data
+	 */
+	public LocalDateTime getDataHora() {
+		return LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC);
+	}
+
+	/**
+	 * Compara a data deste Post com a de outro, sem montar um LocalDateTime.
+	 * 
+	 * @param outro
+	 *            Post a ser comparado.
+	 * @return Negativo, zero ou positivo, se este Post e mais antigo, da mesma
+	 *         data ou mais novo que o outro.
+	 */
+	int comparaData(Post outro) {
+		if (segundos != outro.segundos)
+			return segundos < outro.segundos ? -1 : 1;
+		return Integer.compare(nanos, outro.nanos);
+	}
+
 	/**
 	 * Pega o conteudo do Post.
 	 * 
@@ -114,9 +239,11 @@ public class Post {
 	 *             Excessão lancada quando o indice nao existe neste post.
 	 */
 	public String getConteudo(int indice) throws IndiceConteudoPostInvalido {
-		if (indice >= conteudo.size())
-			throw new IndiceConteudoPostInvalido(indice, conteudo.size());
-		String saida = conteudo.get(indice).trim();
+		TokensDaMensagem tokens = getTokens();
+		if (indice >= tokens.getQuantidadeDeConteudos())
+			throw new IndiceConteudoPostInvalido(indice, tokens.getQuantidadeDeConteudos());
+		String saida = tokens.getMensagem()
+				.substring(tokens.getInicioDoConteudo(indice), tokens.getFimDoConteudo(indice)).trim();
 		int tamanhoDaSaida = saida.length();
 		String complementoAudio = "$arquivo_audio:";
 		String complementoImagem = "$arquivo_imagem:";
@@ -130,12 +257,12 @@ public class Post {
 	/**
 	 * Adiciona curtida no Post.
 	 */
-	public void adicionaCurtida() {curtidas++;}
+	public void adicionaCurtida() {CURTIDAS.incrementAndGet(this);}
 	
 	/**
 	 * Adiciona rejeicao no Post.
 	 */
-	public void adicionaRejeicao() {rejeicoes++;}
+	public void adicionaRejeicao() {REJEICOES.incrementAndGet(this);}
 	
 	/**
 	 * Adiciona popularidade no Post.
@@ -143,7 +270,7 @@ public class Post {
 	 * @param valor
 	 *            Valor a ser adicionado no Post.
 	 */
-	public void adicionaPopularidade(int valor) {popularidade += valor;}
+	public void adicionaPopularidade(int valor) {POPULARIDADE.addAndGet(this, valor);}
 	
 	/**
 	 * Remove popularidade no Post.
@@ -151,7 +278,7 @@ public class Post {
 	 * @param valor
 	 *            Valor a ser removido no Post.
 	 */
-	public void removePopularidade(int valor) {popularidade -= valor;}
+	public void removePopularidade(int valor) {POPULARIDADE.addAndGet(this, -valor);}
 
 	/**
 	 * Lista contendo Hashtags
@@ -159,7 +286,13 @@ public class Post {
 	 * @return lista das hashtags.
 	 */
 	public List<String> getListaDeHashtags() {
-		return this.hashTags;
+		TokensDaMensagem tokens = getTokens();
+		String[] adicionadas = hashtagsAdicionadas;
+		List<String> hashtags = new ArrayList<>(tokens.getQuantidadeDeHashtags() + adicionadas.length);
+		for (int i = 0; i < tokens.getQuantidadeDeHashtags(); i++)
+			hashtags.add(tokens.getMensagem().substring(tokens.getInicioDaHashtag(i), tokens.getFimDaHashtag(i)));
+		Collections.addAll(hashtags, adicionadas);
+		return hashtags;
 	}
 
 	/**
@@ -169,24 +302,99 @@ public class Post {
 	 *            Nova hashtag a ser adicionada
 	 */
 	public void adicionaHashtag(String novaHashtag) {
-		hashTags.add(novaHashtag);
+		acrescentaHashtag(novaHashtag, false);
+		notificaTrendingTopics(novaHashtag);
+	}
+
+	/**
+	 * Adiciona uma hashtag apenas se o Post ainda nao a possui. A verificacao e
+	 * a insercao acontecem de forma atomica.
+	 * 
+	 * @param novaHashtag
+	 *            Nova hashtag a ser adicionada
+	 * @return true, se a hashtag foi adicionada. false, se o Post ja a possuia.
+	 */
+	public boolean adicionaHashtagSeAusente(String novaHashtag) {
+		if (temHashtagOriginal(novaHashtag) || !acrescentaHashtag(novaHashtag, true))
+			return false;
+		notificaTrendingTopics(novaHashtag);
+		return true;
+	}
+
+	private synchronized boolean acrescentaHashtag(String novaHashtag, boolean seAusente) {
+		String[] atuais = hashtagsAdicionadas;
+		if (seAusente)
+			for (String hashtag : atuais)
+				if (hashtag.equals(novaHashtag))
+					return false;
+		String[] novas = Arrays.copyOf(atuais, atuais.length + 1);
+		novas[atuais.length] = novaHashtag;
+		hashtagsAdicionadas = novas;
+		versaoDasHashtags++;
+		return true;
+	}
+
+	synchronized void restaura(List<String> hashtags, int popularidade, int curtidas, int rejeicoes) {
+		if (!hashtags.isEmpty()) {
+			String[] atuais = hashtagsAdicionadas;
+			String[] novas = Arrays.copyOf(atuais, atuais.length + hashtags.size());
+			for (int i = 0; i < hashtags.size(); i++)
+				novas[atuais.length + i] = hashtags.get(i);
+			hashtagsAdicionadas = novas;
+			versaoDasHashtags++;
+		}
+		this.popularidade = popularidade;
+		this.curtidas = curtidas;
+		this.rejeicoes = rejeicoes;
+	}
+
+	TokensDaMensagem getTokens() {
+		return tokens != null ? tokens : armazem.le(endereco);
+	}
+
+	List<String> getHashtagsAdicionadas() {
+		return Collections.unmodifiableList(Arrays.asList(hashtagsAdicionadas));
+	}
+
+	void setTrendingTopics(TrendingTopics trendingTopics) {
+		this.trendingTopics = trendingTopics;
+	}
+
+	long getBaldeNosTrendingTopics() {
+		return baldeNosTrendingTopics;
+	}
+
+	void setBaldeNosTrendingTopics(long balde) {
+		this.baldeNosTrendingTopics = balde;
+	}
+
+	private void notificaTrendingTopics(String novaHashtag) {
+		TrendingTopics trendingTopicsAtual = this.trendingTopics;
+		if (trendingTopicsAtual != null)
+			trendingTopicsAtual.incrementa(this, novaHashtag);
+	}
+
+	private boolean temHashtagOriginal(String hashtag) {
+		TokensDaMensagem tokens = getTokens();
+		String mensagem = tokens.getMensagem();
+		for (int i = 0; i < tokens.getQuantidadeDeHashtags(); i++) {
+			int inicio = tokens.getInicioDaHashtag(i);
+			if (tokens.getFimDaHashtag(i) - inicio == hashtag.length()
+					&& mensagem.regionMatches(inicio, hashtag, 0, hashtag.length()))
+				return true;
+		}
+		return false;
 	}
 	
 	/**
-	 * Metodo para verificar se o Post e recente.
+	 * Metodo para verificar se o Post e recente, ou seja, se e do dia de hoje no
+	 * Relogio do core.
 	 * 
 	 * @return true, se o post e recente
 	 *  	   false, se o post nao e recente.
 	 */
 	public boolean isRecente() {
-		LocalDateTime agora = LocalDateTime.now();
-		if (agora.getYear() == this.data.getYear()) {
-			if (agora.getMonth() == this.data.getMonth()) {
-				if (agora.getDayOfMonth() == this.data.getDayOfMonth())
-					return true;
-			}
-		}
-		return false;
+		return Math.floorDiv(segundos, SEGUNDOS_POR_DIA) == Relogio.getDiaDeHoje();
 	}
 
 	/**
@@ -215,4 +423,17 @@ public class Post {
 	public int getRejeicoes() {
 		return this.rejeicoes;
 	}
+
+	/**
+	 * Texto montado a partir de uma versao das hashtags do Post.
+	 */
+	private static final class Renderizacao {
+		private final int versao;
+		private final String texto;
+
+		Renderizacao(int versao, String texto) {
+			this.versao = versao;
+			this.texto = texto;
+		}
+	}
 }
@@ -1,108 +1,168 @@
 package core;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Entidade que realiza todas as operacoes necessarias pra retornar os treding
- * topics e o ranking de Usuarios do +Pop.
+ * Entidade que realiza todas as operacoes necessarias pra retornar o ranking de
+ * Usuarios do +Pop. <br>
+ * Os usuarios ficam em uma arvore ordenada por pops e e-mail (a mesma ordem de
+ * Usuario.compareTo). Os k mais e menos populares sao lidos nas pontas da
+ * arvore, sem ordenar a lista de usuarios. <br>
+ * Uma mudanca de pops ou de e-mail nao trava o ranking: o usuario so e
+ * marcado como desatualizado, com uma troca atomica, e entra em uma pilha sem
+ * travas encadeada pelos proprios usuarios, entao curtidas e rejeicoes nao
+ * alocam nem disputam o monitor do ranking. A arvore guarda a chave de cada
+ * usuario no momento em que ele foi posicionado, e os usuarios marcados sao
+ * reposicionados, uma vez cada, na proxima leitura do ranking.
  * 
  * @author Matteus Silva
  *
  */
 public class Ranking {
-	List<Usuario> maisPopulares;
-	List<Usuario> menosPopulares;
+	private static final int TAMANHO_DO_RANKING = 3;
+	private static final AtomicIntegerFieldUpdater<Usuario> DESATUALIZADO = AtomicIntegerFieldUpdater
+			.newUpdater(Usuario.class, "desatualizadoNoRanking");
+	private final NavigableSet<Posicao> usuariosOrdenados;
+	private final AtomicReference<Usuario> desatualizados;
 
 	/**
 	 * Construtor abstrato para o Ranking
 	 */
 	public Ranking() {
-		this.maisPopulares = new ArrayList<>();
-		this.menosPopulares = new ArrayList<>();
+		this.usuariosOrdenados = new TreeSet<>();
+		this.desatualizados = new AtomicReference<>();
 	}
 
 	/**
-	 * Pega o ranking de usuarios.
+	 * Adiciona um usuario ao ranking. A partir dai, o ranking acompanha as
+	 * mudancas de pops e de e-mail do usuario.
 	 * 
-	 * @param todosOsUsuarios
-	 *            Lista dos usuarios do sistema.
-	 * @return toString dos usuarios mais populares e menos populares
+	 * @param usuario
+	 *            Usuario a ser adicionado.
 	 */
-	public String retornaRanking(List<Usuario> todosOsUsuarios) {
-		maisPopulares = constroiMaisPopulares(todosOsUsuarios);
-		menosPopulares = constroiMenosPopulares(todosOsUsuarios);
-		StringBuilder sb = new StringBuilder();
-		int countMaisPopulares = 1;
-		int countMenosPopulares = 1;
-		sb.append("Mais Populares:");
-		for (Usuario usuario : maisPopulares) {
-			sb.append(" (" + countMaisPopulares + ") " + usuario.getNome() + " " + usuario.getPops() + ";");
-			countMaisPopulares++;
-		}
-		sb.append(" | Menos Populares:");
-		for (Usuario usuario : menosPopulares) {
-			sb.append(" (" + countMenosPopulares + ") " + usuario.getNome() + " " + usuario.getPops() + ";");
-			countMenosPopulares++;
-		}
-		return sb.toString();
+	public synchronized void adiciona(Usuario usuario) {
+		usuario.setRanking(this);
+		posiciona(usuario);
 	}
 
 	/**
-	 * Atualiza a lista dos topicos.
+	 * Adiciona varios usuarios ao ranking, travando-o uma unica vez.
 	 * 
-	 * @param hashtagsDoMaisPop
-	 *            lista dos topicos mais falados.
-	 * @return String com os treding topics.
+	 * @param usuarios
+	 *            Usuarios a serem adicionados.
 	 */
-	public String atualizaTrendingTopics(List<String> hashtagsDoMaisPop) {
-		List<EntidadeHashtag> entidadesHashtags = new ArrayList<EntidadeHashtag>();
-
-		Map<String, Integer> mapaDeHastags = new HashMap<>();
-		for (String hashTag : hashtagsDoMaisPop) {
-			if (!mapaDeHastags.containsKey(hashTag))
-				mapaDeHastags.put(hashTag, new Integer(1));
-			else
-				mapaDeHastags.put(hashTag, new Integer(mapaDeHastags.get(hashTag).intValue() + 1));
+	public synchronized void adicionaTodos(Collection<Usuario> usuarios) {
+		for (Usuario usuario : usuarios) {
+			usuario.setRanking(this);
+			posiciona(usuario);
 		}
+	}
 
-		for (String string : mapaDeHastags.keySet()) {
-			EntidadeHashtag hashtag = new EntidadeHashtag(string, mapaDeHastags.get(string));
-			entidadesHashtags.add(hashtag);
-		}
+	/**
+	 * Remove um usuario do ranking.
+	 * 
+	 * @param usuario
+	 *            Usuario a ser removido.
+	 */
+	public synchronized void remove(Usuario usuario) {
+		usuario.setRanking(null);
+		Posicao posicao = usuario.getPosicaoNoRanking();
+		if (posicao != null)
+			usuariosOrdenados.remove(posicao);
+		usuario.setPosicaoNoRanking(null);
+	}
 
-		Collections.sort(entidadesHashtags);
+	/**
+	 * Marca um usuario cujos pops ou e-mail mudaram, para que ele seja
+	 * reposicionado na proxima leitura. Nao trava nem aloca; um usuario ja
+	 * marcado nao entra de novo na pilha.
+	 * 
+	 * @param usuario
+	 *            Usuario que mudou.
+	 */
+	void marcaDesatualizado(Usuario usuario) {
+		if (!DESATUALIZADO.compareAndSet(usuario, 0, 1))
+			return;
+		Usuario topo;
+		do {
+			topo = desatualizados.get();
+			usuario.setProximoDesatualizado(topo);
+		} while (!desatualizados.compareAndSet(topo, usuario));
+	}
 
+	/**
+	 * Pega o ranking de usuarios.
+	 * 
+	 * @return toString dos usuarios mais populares e menos populares
+	 */
+	public synchronized String retornaRanking() {
+		atualiza();
 		StringBuilder sb = new StringBuilder();
-		sb.append("Trending Topics:  ");
-		int counter = 1;
-		for (int i = entidadesHashtags.size() - 1; i > entidadesHashtags.size() - 4; i--) {
-			sb.append("(" + (counter) + ") " + entidadesHashtags.get(i).toString().trim() + ": "
-					+ entidadesHashtags.get(i).getFrequencia() + "; ");
-			counter++;
+		sb.append("Mais Populares:");
+		adicionaPrimeiros(sb, usuariosOrdenados.descendingIterator());
+		sb.append(" | Menos Populares:");
+		adicionaPrimeiros(sb, usuariosOrdenados.iterator());
+		return sb.toString();
+	}
+
+	private void atualiza() {
+		Usuario usuario = desatualizados.getAndSet(null);
+		while (usuario != null) {
+			Usuario proximo = usuario.getProximoDesatualizado();
+			usuario.setProximoDesatualizado(null);
+			DESATUALIZADO.set(usuario, 0);
+			if (usuario.getPosicaoNoRanking() != null)
+				posiciona(usuario);
+			usuario = proximo;
 		}
+	}
 
-		return sb.toString().trim();
+	private void posiciona(Usuario usuario) {
+		Posicao antiga = usuario.getPosicaoNoRanking();
+		if (antiga != null)
+			usuariosOrdenados.remove(antiga);
+		Posicao nova = new Posicao(usuario);
+		usuariosOrdenados.add(nova);
+		usuario.setPosicaoNoRanking(nova);
 	}
-	
-	private List<Usuario> constroiMenosPopulares(List<Usuario> todosOsUsuarios) {
-		Collections.sort(todosOsUsuarios);
-		List<Usuario> menosPopulares = new ArrayList<>();
-		menosPopulares.add(todosOsUsuarios.get(0));
-		menosPopulares.add(todosOsUsuarios.get(1));
-		menosPopulares.add(todosOsUsuarios.get(2));
-		return menosPopulares;
+
+	private void adicionaPrimeiros(StringBuilder sb, Iterator<Posicao> posicoes) {
+		for (int posicao = 1; posicao <= TAMANHO_DO_RANKING && posicoes.hasNext(); posicao++) {
+			Posicao atual = posicoes.next();
+			sb.append(" (").append(posicao).append(") ").append(atual.usuario.getNome()).append(" ")
+					.append(atual.pops).append(";");
+		}
 	}
 
-	private List<Usuario> constroiMaisPopulares(List<Usuario> todosOsUsuarios) {
-		Collections.sort(todosOsUsuarios);
-		List<Usuario> maisPopulares = new ArrayList<>();
-		maisPopulares.add(todosOsUsuarios.get(todosOsUsuarios.size() - 1));
-		maisPopulares.add(todosOsUsuarios.get(todosOsUsuarios.size() - 2));
-		maisPopulares.add(todosOsUsuarios.get(todosOsUsuarios.size() - 3));
-		return maisPopulares;
+	/**
+	 * Chave de um usuario na arvore: os pops e o e-mail que ele tinha quando
+	 * foi posicionado. Como a chave nao muda, o usuario pode ser removido da
+	 * arvore mesmo depois que os seus pops mudaram.
+	 */
+	static final class Posicao implements Comparable<Posicao> {
+		private final Usuario usuario;
+		private final int pops;
+		private final String email;
+
+		Posicao(Usuario usuario) {
+			this.usuario = usuario;
+			this.pops = usuario.getPops();
+			this.email = usuario.getEmail();
+		}
+
+		@Override
+		public int compareTo(Posicao outra) {
+			if (pops != outra.pops)
+				return pops < outra.pops ? -1 : 1;
+			int porEmail = email.compareToIgnoreCase(outra.email);
+			if (porEmail != 0)
+				return porEmail;
+			return Integer.compare(usuario.getId(), outra.usuario.getId());
+		}
 	}
 }
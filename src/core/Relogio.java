@@ -0,0 +1,112 @@
+package core;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Relogio usado pelo core do +Pop para saber o dia de hoje. <br>
+ * Guarda o dia atual (em dias desde a epoca) junto com o intervalo de
+ * milissegundos em que ele vale, entao consultar o dia custa uma leitura do
+ * relogio e duas comparacoes; a data so e calculada de novo na virada do dia.
+ * O relogio pode ser trocado, o que permite testar regras que dependem da data
+ * em momentos fixos.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class Relogio {
+	private static volatile Relogio atual = new Relogio(Clock.systemDefaultZone());
+	private final Clock clock;
+	private volatile Dia hoje;
+
+	/**
+	 * Construtor de Relogio.
+	 * 
+	 * @param clock
+	 *            Fonte do momento atual e do fuso horario.
+	 */
+	public Relogio(Clock clock) {
+		this.clock = clock;
+		this.hoje = calculaDia(clock.millis());
+	}
+
+	/**
+	 * Retorna o Relogio em uso pelo core.
+	 * 
+	 * @return Relogio atual.
+	 */
+	public static Relogio getAtual() {
+		return atual;
+	}
+
+	/**
+	 * Troca o Relogio usado pelo core.
+	 * 
+	 * @param relogio
+	 *            Novo Relogio.
+	 */
+	public static void setAtual(Relogio relogio) {
+		if (relogio == null)
+			throw new IllegalArgumentException("O relogio nao pode ser nulo.");
+		atual = relogio;
+	}
+
+	/**
+	 * Retorna o dia de hoje no Relogio atual.
+	 * 
+	 * @return Dias desde 01/01/1970, como em LocalDate.toEpochDay().
+	 */
+	public static long getDiaDeHoje() {
+		return atual.getDia();
+	}
+
+	/**
+	 * Retorna o dia de hoje neste Relogio.
+	 * 
+	 * @return Dias desde 01/01/1970, como em LocalDate.toEpochDay().
+	 */
+	public long getDia() {
+		long agora = clock.millis();
+		Dia dia = hoje;
+		if (agora < dia.inicio || agora >= dia.fim) {
+			dia = calculaDia(agora);
+			hoje = dia;
+		}
+		return dia.epoca;
+	}
+
+	/**
+	 * Retorna o Clock deste Relogio, para quem precisa do momento exato e nao
+	 * so do dia.
+	 * 
+	 * @return Fonte do momento atual e do fuso horario.
+	 */
+	public Clock getClock() {
+		return clock;
+	}
+
+	private Dia calculaDia(long agora) {
+		ZoneId fuso = clock.getZone();
+		LocalDate data = Instant.ofEpochMilli(agora).atZone(fuso).toLocalDate();
+		long inicio = data.atStartOfDay(fuso).toInstant().toEpochMilli();
+		long fim = data.plusDays(1).atStartOfDay(fuso).toInstant().toEpochMilli();
+		return new Dia(data.toEpochDay(), inicio, fim);
+	}
+
+	/**
+	 * Um dia e o intervalo de milissegundos [inicio, fim) que ele ocupa.
+	 */
+	private static final class Dia {
+		private final long epoca;
+		private final long inicio;
+		private final long fim;
+
+		Dia(long epoca, long inicio, long fim) {
+			this.epoca = epoca;
+			this.inicio = inicio;
+			this.fim = fim;
+		}
+	}
+}
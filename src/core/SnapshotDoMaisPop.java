@@ -0,0 +1,440 @@
+package core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.tiposDeUsuario.NivelDePopularidade;
+import core.tiposDeUsuario.RegrasDePopularidade;
+import util.EntradaBinaria;
+import util.SaidaBinaria;
+
+/**
+ * Entidade que salva e carrega o estado dos usuarios do +Pop em um arquivo
+ * binario compacto. <br>
+ * O arquivo guarda os usuarios com os murais e, em uma segunda parte, as
+ * relacoes entre eles: amigos, solicitacoes de amizade e notificacoes. Cada
+ * usuario e identificado pela sua posicao no arquivo, entao amizades e
+ * solicitacoes sao listas de inteiros, e o Post de uma notificacao e o par
+ * (dono, posicao no mural). Usuarios removidos que ainda aparecem como amigos
+ * ou solicitantes de alguem tambem sao salvos, depois dos cadastrados.
+ * <br>
+ * A escrita vai para um arquivo temporario, que so substitui o anterior depois
+ * de gravado por inteiro e forcado para o disco, com um CRC32 no fim. Ranking
+ * e trending topics nao sao salvos: sao refeitos a partir dos usuarios.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class SnapshotDoMaisPop {
+	private static final int ASSINATURA = 0x4D504F50;
+	private static final int VERSAO = 1;
+	private static final int SEM_POST = -1;
+	private static final int CAPACIDADE_INICIAL_MAXIMA = 1 << 16;
+	private static final int TAMANHO_MINIMO = 4 * Integer.BYTES + Long.BYTES;
+
+	private SnapshotDoMaisPop() {
+	}
+
+	/**
+	 * Salva os usuarios cadastrados e todos os usuarios ligados a eles.
+	 * 
+	 * @param arquivo
+	 *            Arquivo de destino; o conteudo anterior so e substituido se a
+	 *            escrita terminar.
+	 * @param cadastrados
+	 *            Usuarios cadastrados no +Pop.
+	 * @param grafo
+	 *            Grafo com as amizades e solicitacoes dos usuarios.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser escrito.
+	 */
+	public static void salva(Path arquivo, Collection<Usuario> cadastrados, GrafoSocial grafo) throws IOException {
+		List<Usuario> usuarios = new ArrayList<>(cadastrados);
+		int quantidadeDeCadastrados = usuarios.size();
+		Map<Usuario, Integer> indices = indexaAlcancaveis(usuarios, grafo);
+		Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+		try (SaidaBinaria saida = new SaidaBinaria(temporario)) {
+			saida.escreveInt(ASSINATURA);
+			saida.escreveInt(VERSAO);
+			saida.escreveInt(usuarios.size());
+			saida.escreveInt(quantidadeDeCadastrados);
+			for (Usuario usuario : usuarios)
+				escreveUsuario(saida, usuario);
+			LocalizadorDePosts localizador = new LocalizadorDePosts(usuarios, indices);
+			for (Usuario usuario : usuarios)
+				escreveRelacoes(saida, usuario, grafo, indices, localizador);
+			saida.finaliza();
+		}
+		try {
+			Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Carrega os usuarios de um arquivo salvo.
+	 * 
+	 * @param arquivo
+	 *            Arquivo a ser lido.
+	 * @param grafo
+	 *            Grafo vazio, onde as amizades e solicitacoes sao restauradas.
+	 * @return Usuarios cadastrados, na ordem em que foram salvos. Os nao
+	 *         cadastrados so sao alcancaveis pelas relacoes.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser lido ou esta
+	 *             corrompido.
+	 */
+	public static List<Usuario> carrega(Path arquivo, GrafoSocial grafo) throws IOException {
+		return carrega(arquivo, grafo, null);
+	}
+
+	/**
+	 * Carrega os usuarios de um arquivo salvo, guardando os tokens dos posts em
+	 * um ArmazemDePosts.
+	 * 
+	 * @param arquivo
+	 *            Arquivo a ser lido.
+	 * @param grafo
+	 *            Grafo vazio, onde as amizades e solicitacoes sao restauradas.
+	 * @param armazem
+	 *            Armazem dos tokens dos posts, ou null para guarda-los nos
+	 *            proprios posts.
+	 * @return Usuarios cadastrados, na ordem em que foram salvos.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser lido, esta
+	 *             corrompido ou o armazem nao pode criar um segmento.
+	 */
+	public static List<Usuario> carrega(Path arquivo, GrafoSocial grafo, ArmazemDePosts armazem)
+			throws IOException {
+		try (EntradaBinaria entrada = new EntradaBinaria(arquivo)) {
+			if (entrada.leInt() != ASSINATURA)
+				throw new IOException("O arquivo " + arquivo + " nao e um snapshot do +Pop.");
+			int versao = entrada.leInt();
+			if (versao != VERSAO)
+				throw new IOException("Versao de snapshot nao suportada: " + versao + ".");
+			int quantidade = entrada.leInt();
+			int cadastrados = entrada.leInt();
+			if (quantidade < 0 || cadastrados < 0 || cadastrados > quantidade || quantidade > Files.size(arquivo))
+				throw new IOException("Quantidade de usuarios invalida no snapshot.");
+			Map<String, NivelDePopularidade> niveis = new HashMap<>();
+			for (NivelDePopularidade nivel : RegrasDePopularidade.getAtuais().getNiveis())
+				niveis.put(nivel.toString(), nivel);
+			Usuario[] usuarios = new Usuario[quantidade];
+			try {
+				for (int i = 0; i < quantidade; i++)
+					usuarios[i] = leUsuario(entrada, niveis, armazem);
+				for (Usuario usuario : usuarios)
+					leRelacoes(entrada, usuario, usuarios, grafo);
+			} catch (DateTimeException e) {
+				throw new IOException("Data invalida no snapshot.", e);
+			}
+			entrada.verificaFim();
+			for (int i = cadastrados; i < quantidade; i++)
+				grafo.removeUsuario(usuarios[i]);
+			List<Usuario> lista = new ArrayList<>(cadastrados);
+			for (int i = 0; i < cadastrados; i++)
+				lista.add(usuarios[i]);
+			return lista;
+		}
+	}
+
+	/**
+	 * Le o CRC32 gravado no fim de um snapshot, que o identifica sem que ele
+	 * precise ser carregado.
+	 * 
+	 * @param arquivo
+	 *            Arquivo com o snapshot.
+	 * @return CRC32 do snapshot.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser lido ou e
+	 *             pequeno demais para ser um snapshot.
+	 */
+	public static long leCrc(Path arquivo) throws IOException {
+		try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+			if (canal.size() < TAMANHO_MINIMO)
+				throw new IOException("O arquivo " + arquivo + " nao e um snapshot do +Pop.");
+			ByteBuffer crc = ByteBuffer.allocate(Long.BYTES);
+			long posicao = canal.size() - Long.BYTES;
+			while (crc.hasRemaining())
+				if (canal.read(crc, posicao + crc.position()) < 0)
+					throw new EOFException("O arquivo " + arquivo + " terminou antes do esperado.");
+			crc.flip();
+			return crc.getLong();
+		}
+	}
+
+	private static Map<Usuario, Integer> indexaAlcancaveis(List<Usuario> usuarios, GrafoSocial grafo) {
+		Map<Usuario, Integer> indices = new IdentityHashMap<>(usuarios.size() * 2);
+		for (Usuario usuario : usuarios)
+			indices.put(usuario, indices.size());
+		Deque<Usuario> pendentes = new ArrayDeque<>(usuarios);
+		while (!pendentes.isEmpty()) {
+			Usuario usuario = pendentes.poll();
+			for (Usuario vizinho : grafo.getAmigos(usuario))
+				indexaSeNovo(vizinho, usuarios, indices, pendentes);
+			for (Usuario vizinho : grafo.getSolicitacoesDeAmizade(usuario))
+				indexaSeNovo(vizinho, usuarios, indices, pendentes);
+		}
+		return indices;
+	}
+
+	private static void indexaSeNovo(Usuario usuario, List<Usuario> usuarios, Map<Usuario, Integer> indices,
+			Deque<Usuario> pendentes) {
+		if (indices.containsKey(usuario))
+			return;
+		indices.put(usuario, indices.size());
+		usuarios.add(usuario);
+		pendentes.add(usuario);
+	}
+
+	private static void escreveUsuario(SaidaBinaria saida, Usuario usuario) throws IOException {
+		saida.escreveTexto(usuario.getNome());
+		saida.escreveTexto(usuario.getEmail());
+		saida.escreveTexto(usuario.getSenha());
+		saida.escreveLong(usuario.getDataNasc().toEpochDay());
+		saida.escreveTexto(usuario.getImagem());
+		saida.escreveInt(usuario.getPops());
+		saida.escreveTexto(usuario.getNivel().toString());
+		List<Post> mural = usuario.getPosts();
+		saida.escreveInt(mural.size());
+		for (Post post : mural)
+			escrevePost(saida, post);
+	}
+
+	private static Usuario leUsuario(EntradaBinaria entrada, Map<String, NivelDePopularidade> niveis,
+			ArmazemDePosts armazem) throws IOException {
+		String nome = entrada.leTexto();
+		String email = entrada.leTexto();
+		String senha = entrada.leTexto();
+		LocalDate dataNasc = LocalDate.ofEpochDay(entrada.leLong());
+		String imagem = entrada.leTexto();
+		int popularidade = entrada.leInt();
+		NivelDePopularidade nivel = niveis.get(entrada.leTexto());
+		if (nivel == null)
+			nivel = RegrasDePopularidade.getAtuais().getNivel(popularidade);
+		Usuario usuario = new Usuario(nome, email, senha, dataNasc, imagem, popularidade, nivel);
+		int quantidadeDePosts = naoNegativo(entrada.leInt(), "posts");
+		List<Post> mural = new ArrayList<>(capacidadeInicial(quantidadeDePosts));
+		for (int i = 0; i < quantidadeDePosts; i++)
+			mural.add(lePost(entrada, armazem));
+		usuario.restauraMural(mural);
+		return usuario;
+	}
+
+	private static void escrevePost(SaidaBinaria saida, Post post) throws IOException {
+		TokensDaMensagem tokens = post.getTokens();
+		int conteudos = tokens.getQuantidadeDeConteudos();
+		int hashtags = tokens.getQuantidadeDeHashtags();
+		saida.escreveTexto(tokens.getMensagem());
+		saida.escreveInt(conteudos - 1);
+		saida.escreveInt(hashtags);
+		for (int i = 0; i < conteudos; i++) {
+			saida.escreveInt(tokens.getInicioDoConteudo(i));
+			saida.escreveInt(tokens.getFimDoConteudo(i));
+		}
+		for (int i = 0; i < hashtags; i++) {
+			saida.escreveInt(tokens.getInicioDaHashtag(i));
+			saida.escreveInt(tokens.getFimDaHashtag(i));
+		}
+		LocalDateTime data = post.getDataHora();
+		saida.escreveLong(data.toEpochSecond(ZoneOffset.UTC));
+		saida.escreveInt(data.getNano());
+		List<String> adicionadas = post.getHashtagsAdicionadas();
+		saida.escreveInt(adicionadas.size());
+		for (String hashtag : adicionadas)
+			saida.escreveTexto(hashtag);
+		saida.escreveInt(post.getPopularidade());
+		saida.escreveInt(post.getCurtidas());
+		saida.escreveInt(post.getRejeicoes());
+	}
+
+	private static Post lePost(EntradaBinaria entrada, ArmazemDePosts armazem) throws IOException {
+		String mensagem = entrada.leTexto();
+		int midias = naoNegativo(entrada.leInt(), "midias");
+		int hashtags = naoNegativo(entrada.leInt(), "hashtags");
+		if (mensagem == null || (long) midias + hashtags > mensagem.length())
+			throw new IOException("Tokens invalidos no snapshot.");
+		int[] limites = new int[2 * (1 + midias + hashtags)];
+		for (int i = 0; i < limites.length; i++) {
+			limites[i] = entrada.leInt();
+			if (limites[i] < 0 || limites[i] > mensagem.length())
+				throw new IOException("Limite de token invalido no snapshot.");
+		}
+		LocalDateTime data = LocalDateTime.ofEpochSecond(entrada.leLong(), entrada.leInt(), ZoneOffset.UTC);
+		TokensDaMensagem tokens = new TokensDaMensagem(mensagem, limites, midias, hashtags);
+		Post post = armazem == null ? new Post(tokens, data) : armazem.criaPost(tokens, data);
+		int quantidadeDeAdicionadas = naoNegativo(entrada.leInt(), "hashtags adicionadas");
+		List<String> adicionadas = new ArrayList<>(capacidadeInicial(quantidadeDeAdicionadas));
+		for (int i = 0; i < quantidadeDeAdicionadas; i++)
+			adicionadas.add(entrada.leTexto());
+		post.restaura(adicionadas, entrada.leInt(), entrada.leInt(), entrada.leInt());
+		return post;
+	}
+
+	private static void escreveRelacoes(SaidaBinaria saida, Usuario usuario, GrafoSocial grafo,
+			Map<Usuario, Integer> indices, LocalizadorDePosts localizador) throws IOException {
+		escreveIndices(saida, grafo.getAmigos(usuario), indices);
+		escreveIndices(saida, grafo.getSolicitacoesDeAmizade(usuario), indices);
+		CaixaDeNotificacoes caixa = usuario.getCaixaDeNotificacoes();
+		synchronized (caixa) {
+			saida.escreveInt(caixa.getCapacidade());
+			saida.escreveByte(caixa.isAgrupa() ? 1 : 0);
+			saida.escreveLong(caixa.getDescartadas());
+			List<Notificacao> notificacoes = caixa.getNotificacoes();
+			saida.escreveInt(notificacoes.size());
+			for (Notificacao notificacao : notificacoes) {
+				saida.escreveByte(notificacao.getTipo().ordinal());
+				saida.escreveTexto(notificacao.getAutor());
+				localizador.escreve(saida, notificacao.getPost(), usuario);
+				saida.escreveLong(notificacao.getMomento());
+				saida.escreveInt(notificacao.getQuantidade());
+				saida.escreveByte(caixa.isPendente(notificacao) ? 1 : 0);
+			}
+		}
+	}
+
+	private static void leRelacoes(EntradaBinaria entrada, Usuario usuario, Usuario[] usuarios, GrafoSocial grafo)
+			throws IOException {
+		List<Usuario> amigos = leIndices(entrada, usuarios);
+		List<Usuario> solicitacoes = leIndices(entrada, usuarios);
+		grafo.restauraRelacoes(usuario, amigos, solicitacoes);
+		int capacidade = entrada.leInt();
+		if (capacidade < 1)
+			throw new IOException("Capacidade de notificacoes invalida no snapshot.");
+		CaixaDeNotificacoes caixa = new CaixaDeNotificacoes(capacidade);
+		caixa.setAgrupa(entrada.leByte() != 0);
+		caixa.setDescartadas(entrada.leLong());
+		int quantidade = naoNegativo(entrada.leInt(), "notificacoes");
+		TipoDeNotificacao[] tipos = TipoDeNotificacao.values();
+		for (int i = 0; i < quantidade; i++) {
+			int tipo = entrada.leByte();
+			if (tipo < 0 || tipo >= tipos.length)
+				throw new IOException("Tipo de notificacao invalido no snapshot.");
+			String autor = entrada.leTexto();
+			Post post = lePostDaNotificacao(entrada, usuarios);
+			Notificacao notificacao = new Notificacao(tipos[tipo], autor, post, entrada.leLong(), entrada.leInt());
+			caixa.restaura(notificacao, entrada.leByte() != 0);
+		}
+		usuario.restauraCaixaDeNotificacoes(caixa);
+	}
+
+	private static Post lePostDaNotificacao(EntradaBinaria entrada, Usuario[] usuarios) throws IOException {
+		int dono = entrada.leInt();
+		if (dono == SEM_POST)
+			return null;
+		int posicao = entrada.leInt();
+		if (dono < 0 || dono >= usuarios.length || posicao < 0 || posicao >= usuarios[dono].getPosts().size())
+			throw new IOException("Post de notificacao invalido no snapshot.");
+		return usuarios[dono].getPosts().get(posicao);
+	}
+
+	private static void escreveIndices(SaidaBinaria saida, List<Usuario> relacionados, Map<Usuario, Integer> indices)
+			throws IOException {
+		saida.escreveInt(relacionados.size());
+		for (Usuario relacionado : relacionados)
+			saida.escreveInt(indices.get(relacionado));
+	}
+
+	private static List<Usuario> leIndices(EntradaBinaria entrada, Usuario[] usuarios) throws IOException {
+		int quantidade = naoNegativo(entrada.leInt(), "relacoes");
+		List<Usuario> relacionados = new ArrayList<>(capacidadeInicial(quantidade));
+		for (int i = 0; i < quantidade; i++) {
+			int indice = entrada.leInt();
+			if (indice < 0 || indice >= usuarios.length)
+				throw new IOException("Usuario invalido no snapshot: " + indice + ".");
+			relacionados.add(usuarios[indice]);
+		}
+		return relacionados;
+	}
+
+	private static int capacidadeInicial(int quantidade) {
+		return Math.min(quantidade, CAPACIDADE_INICIAL_MAXIMA);
+	}
+
+	private static int naoNegativo(int valor, String descricao) throws IOException {
+		if (valor < 0)
+			throw new IOException("Quantidade de " + descricao + " invalida no snapshot.");
+		return valor;
+	}
+
+	/**
+	 * Encontra o dono e a posicao no mural do Post de uma notificacao. O Post
+	 * costuma ser do proprio usuario notificado, entao so o mural dele e
+	 * indexado; um indice de todos os posts so e montado se algum Post nao
+	 * estiver la.
+	 */
+	private static final class LocalizadorDePosts {
+		private final List<Usuario> usuarios;
+		private final Map<Usuario, Integer> indices;
+		private Usuario usuarioDoMural;
+		private Map<Post, Integer> posicoesNoMural;
+		private Map<Post, int[]> todosOsPosts;
+
+		LocalizadorDePosts(List<Usuario> usuarios, Map<Usuario, Integer> indices) {
+			this.usuarios = usuarios;
+			this.indices = indices;
+		}
+
+		void escreve(SaidaBinaria saida, Post post, Usuario notificado) throws IOException {
+			if (post == null) {
+				saida.escreveInt(SEM_POST);
+				return;
+			}
+			if (usuarioDoMural != notificado) {
+				usuarioDoMural = notificado;
+				posicoesNoMural = indexaMural(notificado);
+			}
+			Integer posicao = posicoesNoMural.get(post);
+			if (posicao != null) {
+				saida.escreveInt(indices.get(notificado));
+				saida.escreveInt(posicao);
+				return;
+			}
+			int[] local = getTodosOsPosts().get(post);
+			if (local == null)
+				throw new IllegalStateException("Notificacao de um Post que nao esta em nenhum mural.");
+			saida.escreveInt(local[0]);
+			saida.escreveInt(local[1]);
+		}
+
+		private Map<Post, int[]> getTodosOsPosts() {
+			if (todosOsPosts == null) {
+				todosOsPosts = new IdentityHashMap<>();
+				for (int i = 0; i < usuarios.size(); i++) {
+					List<Post> mural = usuarios.get(i).getPosts();
+					for (int posicao = 0; posicao < mural.size(); posicao++)
+						todosOsPosts.put(mural.get(posicao), new int[] { i, posicao });
+				}
+			}
+			return todosOsPosts;
+		}
+
+		private static Map<Post, Integer> indexaMural(Usuario usuario) {
+			List<Post> mural = usuario.getPosts();
+			Map<Post, Integer> posicoes = new IdentityHashMap<>(mural.size() * 2);
+			for (int posicao = 0; posicao < mural.size(); posicao++)
+				posicoes.put(mural.get(posicao), posicao);
+			return posicoes;
+		}
+	}
+}
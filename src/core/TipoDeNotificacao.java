@@ -0,0 +1,67 @@
+package core;
+
+/**
+ * Enumeracao dos tipos de Notificacao, com o texto usado para exibi-las. <br>
+ * Os tipos que envolvem um Post podem ser agrupados: varias notificacoes do
+ * mesmo tipo sobre o mesmo Post viram uma so, exibida com o texto agrupado.
+ * Uma rejeicao de Post sozinha mantem o texto que o +Pop sempre exibiu; so o
+ * texto agrupado menciona o Post.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public enum TipoDeNotificacao {
+	SOLICITACAO_DE_AMIZADE(" quer sua amizade.", false, null),
+	AMIZADE_ACEITA(" aceitou sua amizade.", false, null),
+	AMIZADE_REJEITADA(" rejeitou sua amizade.", false, null),
+	AMIZADE_DESFEITA(" removeu a sua amizade.", false, null),
+	POST_CURTIDO(" curtiu seu post de ", true, " curtiram seu post de "),
+	POST_REJEITADO(" rejeitou sua amizade.", false, " rejeitaram seu post de ");
+
+	private final String texto;
+	private final boolean mencionaPost;
+	private final String textoAgrupado;
+
+	private TipoDeNotificacao(String texto, boolean mencionaPost, String textoAgrupado) {
+		this.texto = texto;
+		this.mencionaPost = mencionaPost;
+		this.textoAgrupado = textoAgrupado;
+	}
+
+	/**
+	 * Retorna o texto que segue o nome do autor da Notificacao.
+	 * 
+	 * @return Texto do tipo de Notificacao.
+	 */
+	public String getTexto() {
+		return texto;
+	}
+
+	/**
+	 * Indica se o texto termina com a data do Post da Notificacao.
+	 * 
+	 * @return true se a data do Post faz parte do texto.
+	 */
+	public boolean mencionaPost() {
+		return mencionaPost;
+	}
+
+	/**
+	 * Retorna o texto de uma Notificacao agrupada, que e sempre seguido da data
+	 * do Post.
+	 * 
+	 * @return Texto agrupado, ou null se o tipo nao pode ser agrupado.
+	 */
+	public String getTextoAgrupado() {
+		return textoAgrupado;
+	}
+
+	/**
+	 * Indica se notificacoes desse tipo sobre o mesmo Post podem ser agrupadas.
+	 * 
+	 * @return true se o tipo pode ser agrupado.
+	 */
+	public boolean isAgrupavel() {
+		return textoAgrupado != null;
+	}
+}
@@ -0,0 +1,108 @@
+package core;
+
+/**
+ * Tokens da mensagem de um Post do +Pop. <br>
+ * Guarda apenas a mensagem original e os limites (inicio e fim) de cada token,
+ * sem copiar substrings. O primeiro token e sempre o texto, seguido das midias
+ * e, por ultimo, das hashtags.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class TokensDaMensagem {
+	private final String mensagem;
+	private final int[] limites;
+	private final int quantidadeDeMidias;
+	private final int quantidadeDeHashtags;
+
+	/**
+	 * Construtor de TokensDaMensagem.
+	 * 
+	 * @param mensagem
+	 *            Mensagem original do Post.
+	 * @param limites
+	 *            Pares de inicio e fim de cada token, na ordem texto, midias e
+	 *            hashtags.
+	 * @param quantidadeDeMidias
+	 *            Quantidade de tokens de midia.
+	 * @param quantidadeDeHashtags
+	 *            Quantidade de tokens de hashtag.
+	 */
+	public TokensDaMensagem(String mensagem, int[] limites, int quantidadeDeMidias, int quantidadeDeHashtags) {
+		this.mensagem = mensagem;
+		this.limites = limites;
+		this.quantidadeDeMidias = quantidadeDeMidias;
+		this.quantidadeDeHashtags = quantidadeDeHashtags;
+	}
+
+	/**
+	 * Pega a mensagem original.
+	 * 
+	 * @return mensagem
+	 */
+	public String getMensagem() {
+		return this.mensagem;
+	}
+
+	/**
+	 * Pega a quantidade de itens de conteudo: o texto mais as midias.
+	 * 
+	 * @return quantidade de conteudos.
+	 */
+	public int getQuantidadeDeConteudos() {
+		return 1 + quantidadeDeMidias;
+	}
+
+	/**
+	 * Pega o inicio de um item de conteudo na mensagem.
+	 * 
+	 * @param indice
+	 *            Indice do conteudo, sendo 0 o texto.
+	 * @return inicio do conteudo.
+	 */
+	public int getInicioDoConteudo(int indice) {
+		return limites[2 * indice];
+	}
+
+	/**
+	 * Pega o fim (exclusivo) de um item de conteudo na mensagem.
+	 * 
+	 * @param indice
+	 *            Indice do conteudo, sendo 0 o texto.
+	 * @return fim do conteudo.
+	 */
+	public int getFimDoConteudo(int indice) {
+		return limites[2 * indice + 1];
+	}
+
+	/**
+	 * Pega a quantidade de hashtags da mensagem.
+	 * 
+	 * @return quantidade de hashtags.
+	 */
+	public int getQuantidadeDeHashtags() {
+		return this.quantidadeDeHashtags;
+	}
+
+	/**
+	 * Pega o inicio de uma hashtag na mensagem.
+	 * 
+	 * @param indice
+	 *            Indice da hashtag.
+	 * @return inicio da hashtag.
+	 */
+	public int getInicioDaHashtag(int indice) {
+		return limites[2 * (getQuantidadeDeConteudos() + indice)];
+	}
+
+	/**
+	 * Pega o fim (exclusivo) de uma hashtag na mensagem.
+	 * 
+	 * @param indice
+	 *            Indice da hashtag.
+	 * @return fim da hashtag.
+	 */
+	public int getFimDaHashtag(int indice) {
+		return limites[2 * (getQuantidadeDeConteudos() + indice) + 1];
+	}
+}
@@ -0,0 +1,158 @@
+package core;
+
+import java.time.Duration;
+import java.util.List;
+
+import core.trendingTopics.ContadorDeHashtags;
+import core.trendingTopics.ContadorExato;
+import core.trendingTopics.ContadorPorJanela;
+
+/**
+ * Entidade que mantem os trending topics do +Pop. <br>
+ * A frequencia de cada hashtag e atualizada quando um Post e registrado e
+ * quando um Post registrado recebe uma nova hashtag (#epicwin e #epicfail).
+ * A contagem fica com um ContadorDeHashtags: o ContadorExato, padrao, ou um
+ * contador aproximado de memoria fixa, como o ContadorSpaceSaving. Com um
+ * ContadorPorJanela, tambem responde os topicos de janelas recentes, como a
+ * ultima hora, usando a data de cada Post. O balde de janela em que um Post
+ * foi contado fica guardado no Post, para que as hashtags adicionadas depois e
+ * o descarte usem o mesmo balde.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public class TrendingTopics {
+	private static final int TAMANHO_DOS_TRENDING_TOPICS = 3;
+	private final ContadorDeHashtags contador;
+	private final ContadorPorJanela contadorPorJanela;
+
+	/**
+	 * Construtor de TrendingTopics, com contagem exata.
+	 */
+	public TrendingTopics() {
+		this(new ContadorExato());
+	}
+
+	/**
+	 * Construtor de TrendingTopics, sem janelas de tempo.
+	 * 
+	 * @param contador
+	 *            Contador usado para as frequencias das hashtags.
+	 */
+	public TrendingTopics(ContadorDeHashtags contador) {
+		this(contador, null);
+	}
+
+	/**
+	 * Construtor de TrendingTopics.
+	 * 
+	 * @param contador
+	 *            Contador usado para as frequencias das hashtags.
+	 * @param contadorPorJanela
+	 *            Contador das janelas de tempo, ou null para nao usar janelas.
+	 */
+	public TrendingTopics(ContadorDeHashtags contador, ContadorPorJanela contadorPorJanela) {
+		this.contador = contador;
+		this.contadorPorJanela = contadorPorJanela;
+	}
+
+	/**
+	 * Conta as hashtags de um Post e passa a acompanhar as hashtags que forem
+	 * adicionadas a ele.
+	 * 
+	 * @param post
+	 *            Post a ser registrado.
+	 */
+	public synchronized void registra(Post post) {
+		if (contadorPorJanela != null)
+			post.setBaldeNosTrendingTopics(contadorPorJanela.getBalde(post.getDataHora()));
+		for (String hashtag : post.getListaDeHashtags())
+			incrementa(post, hashtag);
+		post.setTrendingTopics(this);
+	}
+
+	/**
+	 * Registra todos os posts de uma lista.
+	 * 
+	 * @param posts
+	 *            Posts a serem registrados.
+	 */
+	public synchronized void registraTodos(List<Post> posts) {
+		for (Post post : posts)
+			registra(post);
+	}
+
+	/**
+	 * Descarta as hashtags de um Post, por exemplo quando o dono do Post e
+	 * removido do +Pop.
+	 * 
+	 * @param post
+	 *            Post a ser descartado.
+	 */
+	public synchronized void remove(Post post) {
+		post.setTrendingTopics(null);
+		for (String hashtag : post.getListaDeHashtags()) {
+			contador.decrementa(hashtag);
+			if (contadorPorJanela != null)
+				contadorPorJanela.decrementa(hashtag, post.getBaldeNosTrendingTopics());
+		}
+	}
+
+	/**
+	 * Conta uma nova ocorrencia de uma hashtag em um Post.
+	 * 
+	 * @param post
+	 *            Post que usou a hashtag.
+	 * @param hashtag
+	 *            Hashtag usada.
+	 */
+	synchronized void incrementa(Post post, String hashtag) {
+		contador.incrementa(hashtag);
+		if (contadorPorJanela != null)
+			contadorPorJanela.incrementa(hashtag, post.getBaldeNosTrendingTopics());
+	}
+
+	/**
+	 * Retorna os topicos mais frequentes.
+	 * 
+	 * @return String com os treding topics.
+	 */
+	public synchronized String retornaTrendingTopics() {
+		return formata(contador.getMaisFrequentes(TAMANHO_DOS_TRENDING_TOPICS));
+	}
+
+	/**
+	 * Retorna os topicos mais frequentes nos posts de uma janela de tempo.
+	 * 
+	 * @param janela
+	 *            Uma das janelas configuradas no ContadorPorJanela.
+	 * @return String com os treding topics da janela.
+	 */
+	public synchronized String retornaTrendingTopics(Duration janela) {
+		if (contadorPorJanela == null)
+			throw new IllegalStateException("Os trending topics nao tem janelas de tempo.");
+		return formata(contadorPorJanela.getMaisFrequentes(janela, TAMANHO_DOS_TRENDING_TOPICS));
+	}
+
+	private String formata(List<EntidadeHashtag> maisFrequentes) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Trending Topics:  ");
+		int posicao = 1;
+		for (EntidadeHashtag hashtag : maisFrequentes) {
+			sb.append("(").append(posicao++).append(") ").append(hashtag.toString().trim()).append(": ")
+					.append(hashtag.getFrequencia()).append("; ");
+		}
+		return sb.toString().trim();
+	}
+
+	/**
+	 * Descarta as hashtags de todos os posts de uma lista.
+	 * 
+	 * @param posts
+	 *            Posts a serem descartados.
+	 */
+	public synchronized void removeTodos(List<Post> posts) {
+		for (Post post : posts)
+			remove(post);
+	}
+}
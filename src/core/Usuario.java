@@ -2,15 +2,11 @@ package core;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import core.tiposDeUsuario.CelebridadePop;
-import core.tiposDeUsuario.IconePop;
-import core.tiposDeUsuario.Normal;
-import core.tiposDeUsuario.TipoDeUsuario;
+import core.tiposDeUsuario.NivelDePopularidade;
+import core.tiposDeUsuario.RegrasDePopularidade;
 import exceptions.DataNaoExisteException;
 import exceptions.EmailInvalidoException;
 import exceptions.FormatoDeDataInvalidoException;
@@ -18,35 +14,44 @@ import exceptions.IndiceConteudoPostInvalido;
 import exceptions.IndiceDePostNaoExisteException;
 import exceptions.IndiceMenorQueZeroException;
 import exceptions.NaoHaNotificacoesException;
-import exceptions.NaoTemAmizadeException;
 import exceptions.NomeUsuarioException;
 import exceptions.PostTalNaoExisteException;
 import exceptions.RequisicaoInvalidaException;
 import exceptions.SenhaIncorretaException;
 import exceptions.SenhaInvalidaException;
 import exceptions.SenhaProtegidaException;
-import exceptions.SolicitacaoInexistenteException;
 import util.ValidaDadosDoUsuario;
 
 /**
- * Essa classe representa um Usuario do +Pop.
+ * Essa classe representa um Usuario do +Pop. <br>
+ * Pode ser usada por varias sessoes ao mesmo tempo: o mural so cresce no fim
+ * e e lido sem travas, as notificacoes ficam em uma caixa sincronizada, e a
+ * popularidade e o tipo de usuario so mudam com o monitor do usuario.
+ * Curtidas e rejeicoes sao aplicadas com o monitor do dono do Post. Amigos e
+ * solicitacoes de amizade ficam no GrafoSocial, onde o Usuario guarda apenas
+ * o seu vertice.
  * 
  * @author matteus
  *
  */
 public class Usuario implements Comparable<Usuario> {
 	private static final String IMAGEM_DEFAULT = "resources/default.jpg";
+	private static final AtomicInteger PROXIMO_ID = new AtomicInteger();
+	private final int id;
 	private String nome;
 	private String email;
 	private String senha;
 	private LocalDate dataNasc;
 	private String imagem;
-	private List<Post> mural;
-	private List<String> notificacoes;
-	private Set<Usuario> solicitacoesDeAmizade;
-	private Set<Usuario> amigos;
-	private int popularidade;
-	private TipoDeUsuario tipoDeUsuario;
+	private final MuralDePosts mural;
+	private CaixaDeNotificacoes notificacoes;
+	private volatile int vertice;
+	private volatile int popularidade;
+	private volatile NivelDePopularidade nivel;
+	private volatile Ranking ranking;
+	volatile int desatualizadoNoRanking;
+	private Usuario proximoDesatualizado;
+	private Ranking.Posicao posicaoNoRanking;
 
 	/**
 	 * Construtor de Usuario.
@@ -74,21 +79,72 @@ public class Usuario implements Comparable<Usuario> {
 	 */
 	public Usuario(String nome, String email, String senha, String dataNasc, String imagem) throws NomeUsuarioException,
 			EmailInvalidoException, FormatoDeDataInvalidoException, DataNaoExisteException {
+		this.id = PROXIMO_ID.incrementAndGet();
 		setNome(nome);
 		setEmail(email);
 		setSenha(senha);
 		setImagem(imagem);
 		setDataNasc(dataNasc);
-		this.mural = new ArrayList<>();
-		this.notificacoes = new ArrayList<>();
-		this.solicitacoesDeAmizade = new HashSet<>();
-		this.amigos = new HashSet<>();
+		this.mural = new MuralDePosts();
+		this.notificacoes = new CaixaDeNotificacoes();
+		this.vertice = -1;
 		this.popularidade = 0;
-		this.tipoDeUsuario = new Normal();
+		this.nivel = RegrasDePopularidade.getAtuais().getNivel(0);
+	}
+
+	/**
+	 * Construtor usado para restaurar um Usuario salvo, cujos dados ja foram
+	 * validados. O mural e as relacoes sao restaurados depois.
+	 */
+	Usuario(String nome, String email, String senha, LocalDate dataNasc, String imagem, int popularidade,
+			NivelDePopularidade nivel) {
+		this.id = PROXIMO_ID.incrementAndGet();
+		this.nome = nome;
+		this.email = email;
+		this.senha = senha;
+		this.dataNasc = dataNasc;
+		this.imagem = imagem;
+		this.mural = new MuralDePosts();
+		this.notificacoes = new CaixaDeNotificacoes();
+		this.vertice = -1;
+		this.popularidade = popularidade;
+		this.nivel = nivel;
+	}
+
+	void restauraMural(List<Post> posts) {
+		mural.adicionaTodos(posts);
+	}
+
+	void restauraCaixaDeNotificacoes(CaixaDeNotificacoes notificacoes) {
+		this.notificacoes = notificacoes;
+	}
+
+	String getImagem() {
+		return imagem;
+	}
+
+	LocalDate getDataNasc() {
+		return dataNasc;
+	}
+
+	NivelDePopularidade getNivel() {
+		return nivel;
+	}
+
+	CaixaDeNotificacoes getCaixaDeNotificacoes() {
+		return notificacoes;
+	}
+
+	int getVertice() {
+		return vertice;
+	}
+
+	void setVertice(int vertice) {
+		this.vertice = vertice;
 	}
 
 	public void adicionaPost(Post post) {
-		mural.add(post);
+		mural.adiciona(post);
 	}
 
 	private void setDataNasc(String dataNasc) throws FormatoDeDataInvalidoException, DataNaoExisteException {
@@ -140,6 +196,15 @@ public class Usuario implements Comparable<Usuario> {
 		}
 	}
 
+	/**
+	 * Retorna o identificador unico do Usuario, usado para ordenar as travas.
+	 * 
+	 * @return Atributo id de Usuario.
+	 */
+	public int getId() {
+		return this.id;
+	}
+
 	/**
 	 * Retona o e-mail de Usuario.
 	 * 
@@ -243,10 +308,37 @@ public class Usuario implements Comparable<Usuario> {
 	private void setEmail(String email) throws EmailInvalidoException {
 		ValidaDadosDoUsuario.validaEmail(email);
 		this.email = email;
+		marcaNoRanking();
+	}
+
+	void setRanking(Ranking ranking) {
+		this.ranking = ranking;
+	}
+
+	Usuario getProximoDesatualizado() {
+		return proximoDesatualizado;
+	}
+
+	void setProximoDesatualizado(Usuario proximo) {
+		this.proximoDesatualizado = proximo;
+	}
+
+	Ranking.Posicao getPosicaoNoRanking() {
+		return posicaoNoRanking;
+	}
+
+	void setPosicaoNoRanking(Ranking.Posicao posicao) {
+		this.posicaoNoRanking = posicao;
+	}
+
+	private void marcaNoRanking() {
+		Ranking rankingAtual = this.ranking;
+		if (rankingAtual != null)
+			rankingAtual.marcaDesatualizado(this);
 	}
 
 	private void setNome(String nome) throws NomeUsuarioException {
-		if (isStringVazia(nome))
+		if (!ValidaDadosDoUsuario.isNomeValido(nome))
 			throw new NomeUsuarioException();
 		this.nome = nome;
 	}
@@ -268,7 +360,7 @@ public class Usuario implements Comparable<Usuario> {
 	public String getPost(int post) throws RequisicaoInvalidaException {
 		if (post < 0)
 			throw new RequisicaoInvalidaException(new IndiceMenorQueZeroException());
-		if (post >= mural.size())
+		if (post >= mural.getTamanho())
 			throw new RequisicaoInvalidaException(new IndiceDePostNaoExisteException(post));
 		return mural.get(post).toString();
 	}
@@ -289,18 +381,15 @@ public class Usuario implements Comparable<Usuario> {
 	public String getPost(String atributo, int post) throws RequisicaoInvalidaException {
 		if (post < 0)
 			throw new RequisicaoInvalidaException(new IndiceMenorQueZeroException());
-		if (post >= mural.size())
+		if (post >= mural.getTamanho())
 			throw new RequisicaoInvalidaException(new IndiceDePostNaoExisteException(post));
-		switch (atributo.toUpperCase()) {
-		case "MENSAGEM":
+		if (atributo.equalsIgnoreCase("MENSAGEM"))
 			return mural.get(post).passaConteudoPraString();
-		case "DATA":
+		if (atributo.equalsIgnoreCase("DATA"))
 			return mural.get(post).getData();
-		case "HASHTAGS":
+		if (atributo.equalsIgnoreCase("HASHTAGS"))
 			return mural.get(post).getHashtags();
-		default:
-			throw new RequisicaoInvalidaException();
-		}
+		throw new RequisicaoInvalidaException();
 	}
 	
 	/**
@@ -320,28 +409,27 @@ public class Usuario implements Comparable<Usuario> {
 	public String getConteudoPost(int indice, int post) throws RequisicaoInvalidaException, IndiceConteudoPostInvalido {
 		if (post < 0 || indice < 0)
 			throw new RequisicaoInvalidaException(new IndiceMenorQueZeroException());
-		return mural.get(post).getConteudo(indice);
+		return mural.getPosts().get(post).getConteudo(indice);
 	}
 	
 	/**
-	 * Metodo que adiciona o Usuario na lista de solicitacao de amizades.
+	 * Metodo que adiciona novas notificacoes.
 	 * 
-	 * @param usuarioLogado
-	 * 			Usuario que sera adicionado na lista de solicitacao de amizade.
-	 * 			
+	 * @param novaNotificacao
+	 * 			Notificacao que sera adicionada na lista de novas notificacoes.
 	 */
-	public void adicionaSolicitacaoDeAmizade(Usuario usuarioLogado) {
-		solicitacoesDeAmizade.add(usuarioLogado);
+	public void adicionaNotificacao(Notificacao novaNotificacao) {
+		notificacoes.adiciona(novaNotificacao);
 	}
-	
+
 	/**
-	 * Metodo que adiciona novas notificacoes.
+	 * Metodo que liga ou desliga o agrupamento das notificacoes.
 	 * 
-	 * @param novaNotificacao
-	 * 			String que sera adicionada na lista de novas notificacoes.
+	 * @param agrupa
+	 * 			true para agrupar curtidas e rejeicoes do mesmo Post.
 	 */
-	public void adicionaNotificacao(String novaNotificacao) {
-		notificacoes.add(novaNotificacao);
+	public void setAgrupaNotificacoes(boolean agrupa) {
+		notificacoes.setAgrupa(agrupa);
 	}
 
 	/**
@@ -350,7 +438,7 @@ public class Usuario implements Comparable<Usuario> {
 	 * @return Retorna um inteiro do tamanho da lista pelo metodo.
 	 */
 	public int getNotificacoes() {
-		return notificacoes.size();
+		return notificacoes.getQuantidade();
 	}
 	
 	/**
@@ -362,72 +450,26 @@ public class Usuario implements Comparable<Usuario> {
 	 * 			Excessao lancada quando a lista de notificacoes esta vazia.
 	 */
 	public String getNextNotificacao() throws NaoHaNotificacoesException {
-		if (notificacoes.isEmpty())
+		Notificacao notificacao = notificacoes.retira();
+		if (notificacao == null)
 			throw new NaoHaNotificacoesException();
-		String notificacao = notificacoes.get(0);
-		notificacoes.remove(0);
-		return notificacao;
-	}
-	
-	/**
-	 * Metodo que remove o usuario selecionado da lista de soliciatacoes de amizades.
-	 * 
-	 * @param usuario
-	 * 			Usuario que sera dado como parametro para ser removido.
-	 * @throws SolicitacaoInexistenteException
-	 * 			Excessao lancada quando o usuario nao solicitou amizade.
-	 */
-	public void rejeitaAmizade(Usuario usuario) throws SolicitacaoInexistenteException {
-		if (naoTemNotificacaoDe(usuario))
-			throw new SolicitacaoInexistenteException(usuario.getNome());
-		solicitacoesDeAmizade.remove(usuario);
+		return notificacao.renderiza();
 	}
 
-	private boolean naoTemNotificacaoDe(Usuario usuario) {
-		if (solicitacoesDeAmizade.contains(usuario))
-			return false;
-		return true;
-	}
-	
 	/**
-	 * Metodo que retorna a quantidade de amigos.
+	 * Metodo que retira as proximas notificacoes de uma vez.
 	 * 
-	 * @return Retorna o tamanho da lista de amigos pelo metodo.
+	 * @param quantidade
+	 * 			Quantidade maxima de notificacoes a retirar.
+	 * @return Retorna as notificacoes, da mais antiga para a mais nova; a lista
+	 * 			fica vazia se nao houver notificacoes.
 	 */
-	public int getQtdAmigos() {
-		return amigos.size();
-	}
-
-	/**
-	 * Metodo que adiciona amigo e o remove das solicitacoes de amizade.
-	 * 
-	 * @param usuario
-	 * 			Usuario dado como parametro para ser adicionado como amigo.
-	 * @throws SolicitacaoInexistenteException
-	 * 			Excessao lancada quando o usuario nao solicitou amizade.
-	 */
-	public void aceitaAmizade(Usuario usuario) throws SolicitacaoInexistenteException {
-		if (naoTemNotificacaoDe(usuario))
-			throw new SolicitacaoInexistenteException(usuario.getNome());
-		adicionaAmigo(usuario);
-		solicitacoesDeAmizade.remove(usuario);
-	}
-
-	private void adicionaAmigo(Usuario usuario) {
-		amigos.add(usuario);
-	}
-	
-	/**
-	 * Metodo que verifica se a amizade nao existe.
-	 * 
-	 * @param usuario
-	 * 			Usuario dado como parametro para verificar se ele nao est na lista de amigos.
-	 * @throws NaoTemAmizadeException
-	 * 			Excessao lancada quando o usuario nao esta na lista de amigos.
-	 */
-	public void verificaAmizade(Usuario usuario) throws NaoTemAmizadeException {
-		if (!amigos.contains(usuario))
-			throw new NaoTemAmizadeException(usuario);
+	public List<String> getNextNotificacoes(int quantidade) {
+		List<Notificacao> retiradas = notificacoes.retira(quantidade);
+		List<String> textos = new ArrayList<>(retiradas.size());
+		for (Notificacao notificacao : retiradas)
+			textos.add(notificacao.renderiza());
+		return textos;
 	}
 	
 	/**
@@ -449,28 +491,17 @@ public class Usuario implements Comparable<Usuario> {
 		return mural.get(post);
 	}
 
-	private int getQuantidadeDePosts() {
-		return mural.size();
-	}
-	
 	/**
-	 * Metodo que adiciona o usuario na lista de amigos.
+	 * Metodo que retorna os Posts do mural de um Usuario.
 	 * 
-	 * @param usuario
-	 * 			Usuario dado como parametro que sera adicionado na lista de amigos.
+	 * @return Retorna uma lista, nao modificavel, com os posts do mural.
 	 */
-	public void adionaAmigo(Usuario usuario) {
-		amigos.add(usuario);
+	public List<Post> getPosts() {
+		return mural.getPosts();
 	}
-	
-	/**
-	 * Metodo que remove usuario da lista de amigos.
-	 * 
-	 * @param usuarioParaRemover
-	 * 			Usuario dado como parametro que sera removido da lista de amigos.
-	 */
-	public void removeAmigo(Usuario usuarioParaRemover) {
-		amigos.remove(usuarioParaRemover);
+
+	private int getQuantidadeDePosts() {
+		return mural.getTamanho();
 	}
 	
 	/**
@@ -482,7 +513,9 @@ public class Usuario implements Comparable<Usuario> {
 	 * 			Usuario dado como parametro que tera o post curtido.
 	 */
 	public void curtirPost(Post post, Usuario usuarioAmigo) {
-		tipoDeUsuario.curtirPost(post, usuarioAmigo);
+		synchronized (usuarioAmigo) {
+			getNivelAtual().curtirPost(post, usuarioAmigo);
+		}
 	}
 	
 	/**
@@ -494,33 +527,50 @@ public class Usuario implements Comparable<Usuario> {
 	 * 			Usuario dado como parametro que tera o post rejeitado.
 	 */
 	public void rejeitarPost(Post post, Usuario usuarioAmigo) {
-		tipoDeUsuario.rejeitarPost(post, usuarioAmigo);
+		synchronized (usuarioAmigo) {
+			getNivelAtual().rejeitarPost(post, usuarioAmigo);
+		}
 	}
 	
 	/**
-	 * Metodo que adiciona a popularidade a partir da quantidade de popularidades criara um novo tipo de Usuario.
+	 * Metodo que adiciona a popularidade e, se ela cruzar o limite do nivel atual, troca o nivel do Usuario.
 	 * 
 	 * @param pops
-	 * 			Inteiro dado como parametro que sera somado no atributo para saber qual objeto criar.
+	 * 			Inteiro dado como parametro que sera somado no atributo para saber qual nivel usar.
 	 */
-	public void adicionaPops(int pops) { // Usar um singleton para evitar varios
-											// objetos criados.
+	public synchronized void adicionaPops(int pops) {
 		popularidade += pops;
-		if (popularidade < 500)
-			tipoDeUsuario = new Normal();
-		else if (popularidade >= 500 && popularidade <= 1000)
-			tipoDeUsuario = new CelebridadePop();
-		else
-			tipoDeUsuario = new IconePop();
+		marcaNoRanking();
+		RegrasDePopularidade regras = RegrasDePopularidade.getAtuais();
+		if (nivel.getRegras() != regras || !nivel.contem(popularidade))
+			nivel = regras.getNivel(popularidade);
 	}
 	
 	/**
-	 * Metodo que retorna o nome do tipo de Usuario
+	 * Metodo que retorna o nome do nivel de popularidade do Usuario
 	 * 
-	 * @return Retorna o toString do tipo de Usuario.
+	 * @return Retorna o toString do nivel do Usuario.
 	 */
 	public String getPopularidade() {
-		return tipoDeUsuario.toString();
+		return getNivelAtual().toString();
+	}
+
+	/**
+	 * Indica se o usuario esta acima do nivel inicial de popularidade
+	 * (Celebridade Pop ou Icone Pop, nas regras padrao).
+	 * 
+	 * @return true se o usuario nao esta no nivel inicial.
+	 */
+	public boolean isPopular() {
+		return !getNivelAtual().isInicial();
+	}
+
+	private NivelDePopularidade getNivelAtual() {
+		NivelDePopularidade nivelAtual = nivel;
+		RegrasDePopularidade regras = RegrasDePopularidade.getAtuais();
+		if (nivelAtual.getRegras() != regras)
+			return regras.getNivel(popularidade);
+		return nivelAtual;
 	}
 	
 	/**
@@ -538,8 +588,9 @@ public class Usuario implements Comparable<Usuario> {
 	 * @param valor
 	 * 			Inteiro dado como parametro para este valor ser diminuido do atributo de popularidade.
 	 */
-	public void removePops(int valor) {
+	public synchronized void removePops(int valor) {
 		popularidade -= valor;
+		marcaNoRanking();
 	}
 	
 	@Override
@@ -568,7 +619,7 @@ public class Usuario implements Comparable<Usuario> {
 	 */
 	public List<String> getHashtags() {
 		List<String> hashtags = new ArrayList<>();
-		for (Post post : mural) {
+		for (Post post : mural.getPosts()) {
 			hashtags.addAll(post.getListaDeHashtags());
 		}
 		return hashtags;
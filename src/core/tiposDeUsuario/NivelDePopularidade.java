@@ -0,0 +1,129 @@
+package core.tiposDeUsuario;
+
+import core.Post;
+import core.Usuario;
+
+/**
+ * Entidade que implementa TipoDeUsuario a partir de uma linha das
+ * RegrasDePopularidade. <br>
+ * Guarda os valores ja convertidos (pops por curtida ou rejeicao, bonus para
+ * posts recentes e hashtags automaticas), entao curtir e rejeitar so leem
+ * campos. A classe e final, para que as chamadas pelo Usuario nao dependam de
+ * despacho virtual.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class NivelDePopularidade implements TipoDeUsuario {
+	private final RegrasDePopularidade regras;
+	private final String nome;
+	private final int piso;
+	private final int teto;
+	private final int pops;
+	private final int bonusRecente;
+	private final boolean rejeicaoSempreComBonus;
+	private final String hashtagCurtida;
+	private final String hashtagRejeicao;
+
+	NivelDePopularidade(RegrasDePopularidade regras, String nome, int piso, int teto, int pops, int bonusRecente,
+			boolean rejeicaoSempreComBonus, String hashtagCurtida, String hashtagRejeicao) {
+		this.regras = regras;
+		this.nome = nome;
+		this.piso = piso;
+		this.teto = teto;
+		this.pops = pops;
+		this.bonusRecente = bonusRecente;
+		this.rejeicaoSempreComBonus = rejeicaoSempreComBonus;
+		this.hashtagCurtida = hashtagCurtida;
+		this.hashtagRejeicao = hashtagRejeicao;
+	}
+
+	@Override
+	public void curtirPost(Post post, Usuario usuarioAmigo) {
+		int valor = pops;
+		if (bonusRecente != 0 && post.isRecente())
+			valor += bonusRecente;
+		post.adicionaCurtida();
+		post.adicionaPopularidade(valor);
+		usuarioAmigo.adicionaPops(valor);
+		if (hashtagCurtida != null)
+			post.adicionaHashtagSeAusente(hashtagCurtida);
+	}
+
+	@Override
+	public void rejeitarPost(Post post, Usuario usuarioAmigo) {
+		int valor = pops;
+		if (bonusRecente != 0 && post.isRecente())
+			valor += bonusRecente;
+		post.adicionaRejeicao();
+		post.removePopularidade(valor);
+		usuarioAmigo.removePops(rejeicaoSempreComBonus ? pops + bonusRecente : valor);
+		if (hashtagRejeicao != null)
+			post.adicionaHashtagSeAusente(hashtagRejeicao);
+	}
+
+	/**
+	 * Indica se uma quantidade de pops pertence a este nivel.
+	 * 
+	 * @param popularidade
+	 *            Pops do usuario.
+	 * @return true se os pops estao entre o piso e o teto do nivel.
+	 */
+	public boolean contem(int popularidade) {
+		return popularidade >= piso && popularidade <= teto;
+	}
+
+	/**
+	 * Indica se este e o primeiro nivel, o de quem ainda nao ganhou pops
+	 * suficientes para subir.
+	 * 
+	 * @return true se o nivel nao tem piso.
+	 */
+	public boolean isInicial() {
+		return piso == Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Retorna as regras de onde este nivel veio.
+	 * 
+	 * @return RegrasDePopularidade do nivel.
+	 */
+	public RegrasDePopularidade getRegras() {
+		return regras;
+	}
+
+	/**
+	 * Retorna os pops dados a um post curtido, e tirados de um rejeitado, por
+	 * um usuario deste nivel.
+	 * 
+	 * @return Pops por curtida ou rejeicao, sem o bonus.
+	 */
+	public int getPops() {
+		return pops;
+	}
+
+	/**
+	 * Retorna os pops a mais quando o post curtido ou rejeitado e do dia.
+	 * 
+	 * @return Bonus para posts recentes, ou 0 se o nivel nao tem bonus.
+	 */
+	public int getBonusRecente() {
+		return bonusRecente;
+	}
+
+	/**
+	 * Indica se o dono de um post rejeitado perde o bonus mesmo quando o post
+	 * nao e do dia, como na Celebridade Pop original. O post so perde o bonus
+	 * quando e recente.
+	 * 
+	 * @return true se a rejeicao sempre tira o bonus do dono do post.
+	 */
+	public boolean isRejeicaoSempreComBonus() {
+		return rejeicaoSempreComBonus;
+	}
+
+	@Override
+	public String toString() {
+		return nome;
+	}
+}
@@ -0,0 +1,197 @@
+package core.tiposDeUsuario;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Entidade que guarda os niveis de popularidade do +Pop, carregados de um
+ * arquivo de configuracao. <br>
+ * Cada nivel vira um NivelDePopularidade com os valores ja convertidos, em uma
+ * tabela ordenada pelo piso, entao mudar a pontuacao nao exige recompilar. As
+ * regras atuais sao lidas de ARQUIVO_PADRAO, ou do caminho na propriedade de
+ * sistema maispop.regras; sem arquivo, valem as regras originais do +Pop.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class RegrasDePopularidade {
+	public static final String ARQUIVO_PADRAO = "resources/regrasDePopularidade.properties";
+	public static final String PROPRIEDADE_DO_ARQUIVO = "maispop.regras";
+	private static volatile RegrasDePopularidade atuais;
+	private final NivelDePopularidade[] niveis;
+
+	private RegrasDePopularidade(Properties propriedades) {
+		String[] nomes = obrigatoria(propriedades, "niveis").split(",");
+		this.niveis = new NivelDePopularidade[nomes.length];
+		int[] pisos = new int[nomes.length];
+		for (int i = 0; i < nomes.length; i++) {
+			nomes[i] = nomes[i].trim();
+			pisos[i] = i == 0 ? Integer.MIN_VALUE : inteiro(propriedades, nomes[i] + ".piso", null);
+			if (i > 0 && pisos[i] <= pisos[i - 1])
+				throw new IllegalArgumentException("O piso de " + nomes[i] + " deve ser maior que o do nivel anterior.");
+		}
+		for (int i = 0; i < nomes.length; i++) {
+			String nivel = nomes[i];
+			int teto = i == nomes.length - 1 ? Integer.MAX_VALUE : pisos[i + 1] - 1;
+			niveis[i] = new NivelDePopularidade(this, obrigatoria(propriedades, nivel + ".nome"), pisos[i], teto,
+					inteiro(propriedades, nivel + ".pops", null), inteiro(propriedades, nivel + ".bonusRecente", 0),
+					booleano(propriedades, nivel + ".rejeicaoSempreComBonus"), hashtag(propriedades, nivel + ".hashtagCurtida"), hashtag(propriedades, nivel + ".hashtagRejeicao"));
+		}
+	}
+
+	/**
+	 * Retorna as regras em uso, carregando-as na primeira chamada.
+	 * 
+	 * @return RegrasDePopularidade atuais.
+	 */
+	public static RegrasDePopularidade getAtuais() {
+		RegrasDePopularidade regras = atuais;
+		if (regras == null) {
+			synchronized (RegrasDePopularidade.class) {
+				regras = atuais;
+				if (regras == null)
+					atuais = regras = carregaConfiguradas();
+			}
+		}
+		return regras;
+	}
+
+	/**
+	 * Le de novo o arquivo de regras e passa a usa-lo. Os usuarios mudam para o
+	 * nivel das novas regras na proxima curtida, rejeicao ou ganho de pops.
+	 * 
+	 * @return RegrasDePopularidade recarregadas.
+	 */
+	public static RegrasDePopularidade recarrega() {
+		RegrasDePopularidade regras = carregaConfiguradas();
+		atuais = regras;
+		return regras;
+	}
+
+	/**
+	 * Carrega regras de um arquivo no formato de java.util.Properties.
+	 * 
+	 * @param arquivo
+	 *            Caminho do arquivo de regras.
+	 * @return RegrasDePopularidade do arquivo.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser lido.
+	 */
+	public static RegrasDePopularidade carrega(Path arquivo) throws IOException {
+		Properties propriedades = new Properties();
+		try (InputStream entrada = Files.newInputStream(arquivo)) {
+			propriedades.load(entrada);
+		}
+		return new RegrasDePopularidade(propriedades);
+	}
+
+	/**
+	 * Cria regras a partir de propriedades ja lidas.
+	 * 
+	 * @param propriedades
+	 *            Propriedades no formato do arquivo de regras.
+	 * @return RegrasDePopularidade correspondentes.
+	 */
+	public static RegrasDePopularidade de(Properties propriedades) {
+		return new RegrasDePopularidade(propriedades);
+	}
+
+	/**
+	 * Retorna o nivel de uma quantidade de pops.
+	 * 
+	 * @param popularidade
+	 *            Pops do usuario.
+	 * @return NivelDePopularidade cujo intervalo contem os pops.
+	 */
+	public NivelDePopularidade getNivel(int popularidade) {
+		int nivel = niveis.length - 1;
+		while (!niveis[nivel].contem(popularidade))
+			nivel--;
+		return niveis[nivel];
+	}
+
+	/**
+	 * Retorna os niveis, do menos para o mais popular.
+	 * 
+	 * @return Lista com os niveis.
+	 */
+	public List<NivelDePopularidade> getNiveis() {
+		List<NivelDePopularidade> lista = new ArrayList<>(niveis.length);
+		for (NivelDePopularidade nivel : niveis)
+			lista.add(nivel);
+		return lista;
+	}
+
+	private static RegrasDePopularidade carregaConfiguradas() {
+		Path arquivo = Paths.get(System.getProperty(PROPRIEDADE_DO_ARQUIVO, ARQUIVO_PADRAO));
+		if (!Files.exists(arquivo))
+			return new RegrasDePopularidade(padrao());
+		try {
+			return carrega(arquivo);
+		} catch (IOException e) {
+			throw new IllegalStateException("Nao foi possivel ler as regras de popularidade em " + arquivo + ".", e);
+		}
+	}
+
+	private static Properties padrao() {
+		Properties propriedades = new Properties();
+		propriedades.setProperty("niveis", "normal, celebridade, icone");
+		propriedades.setProperty("normal.nome", "Normal Pop");
+		propriedades.setProperty("normal.pops", "10");
+		propriedades.setProperty("celebridade.nome", "Celebridade Pop");
+		propriedades.setProperty("celebridade.piso", "500");
+		propriedades.setProperty("celebridade.pops", "25");
+		propriedades.setProperty("celebridade.bonusRecente", "10");
+		propriedades.setProperty("celebridade.rejeicaoSempreComBonus", "true");
+		propriedades.setProperty("icone.nome", "Icone Pop");
+		propriedades.setProperty("icone.piso", "1001");
+		propriedades.setProperty("icone.pops", "50");
+		propriedades.setProperty("icone.hashtagCurtida", "#epicwin");
+		propriedades.setProperty("icone.hashtagRejeicao", "#epicfail");
+		return propriedades;
+	}
+
+	private static String obrigatoria(Properties propriedades, String chave) {
+		String valor = propriedades.getProperty(chave);
+		if (valor == null || valor.trim().isEmpty())
+			throw new IllegalArgumentException("Regra de popularidade ausente: " + chave + ".");
+		return valor.trim();
+	}
+
+	private static int inteiro(Properties propriedades, String chave, Integer padrao) {
+		String valor = propriedades.getProperty(chave);
+		if (valor == null && padrao != null)
+			return padrao;
+		try {
+			return Integer.parseInt(obrigatoria(propriedades, chave));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Regra de popularidade nao numerica: " + chave + ".", e);
+		}
+	}
+
+	private static boolean booleano(Properties propriedades, String chave) {
+		String valor = propriedades.getProperty(chave);
+		if (valor == null || valor.trim().isEmpty())
+			return false;
+		valor = valor.trim();
+		if (!valor.equals("true") && !valor.equals("false"))
+			throw new IllegalArgumentException("Regra de popularidade nao booleana: " + chave + ".");
+		return Boolean.parseBoolean(valor);
+	}
+
+	private static String hashtag(Properties propriedades, String chave) {
+		String valor = propriedades.getProperty(chave);
+		if (valor == null || valor.trim().isEmpty())
+			return null;
+		valor = valor.trim();
+		if (!valor.startsWith("#") || valor.length() == 1 || valor.contains(" "))
+			throw new IllegalArgumentException("Hashtag invalida em " + chave + ": " + valor + ".");
+		return valor;
+	}
+}
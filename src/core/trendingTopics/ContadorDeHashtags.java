@@ -0,0 +1,43 @@
+package core.trendingTopics;
+
+import java.util.List;
+
+import core.EntidadeHashtag;
+
+/**
+ * Interface usada para atribuir um comportamento polimorfico a contagem dos
+ * trending topics. <br>
+ * As implementacoes nao sao sincronizadas: sao usadas com o monitor de
+ * TrendingTopics.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public interface ContadorDeHashtags {
+
+	/**
+	 * Conta uma nova ocorrencia de uma hashtag.
+	 * 
+	 * @param hashtag
+	 *            Hashtag usada.
+	 */
+	public void incrementa(String hashtag);
+
+	/**
+	 * Desconta uma ocorrencia de uma hashtag.
+	 * 
+	 * @param hashtag
+	 *            Hashtag descartada.
+	 */
+	public void decrementa(String hashtag);
+
+	/**
+	 * Retorna as hashtags mais frequentes, da mais para a menos frequente, na
+	 * ordem de EntidadeHashtag.
+	 * 
+	 * @param quantidade
+	 *            Quantidade maxima de hashtags a retornar.
+	 * @return Lista com as hashtags mais frequentes.
+	 */
+	public List<EntidadeHashtag> getMaisFrequentes(int quantidade);
+}
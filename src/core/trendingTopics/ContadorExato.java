@@ -0,0 +1,80 @@
+package core.trendingTopics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import core.EntidadeHashtag;
+
+/**
+ * Entidade que implementa ContadorDeHashtags contando exatamente cada hashtag.
+ * <br>
+ * Guarda uma entrada por hashtag distinta, ordenada por frequencia, entao a
+ * memoria cresce com a quantidade de hashtags diferentes.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public class ContadorExato implements ContadorDeHashtags {
+	private final Map<String, EntidadeHashtag> hashtagsPorTexto;
+	private final NavigableSet<EntidadeHashtag> hashtagsOrdenadas;
+
+	/**
+	 * Construtor de ContadorExato.
+	 */
+	public ContadorExato() {
+		this.hashtagsPorTexto = new HashMap<>();
+		this.hashtagsOrdenadas = new TreeSet<>();
+	}
+
+	@Override
+	public void incrementa(String hashtag) {
+		EntidadeHashtag entidade = hashtagsPorTexto.get(hashtag);
+		if (entidade == null) {
+			entidade = new EntidadeHashtag(hashtag, 0);
+			hashtagsPorTexto.put(hashtag, entidade);
+		} else {
+			hashtagsOrdenadas.remove(entidade);
+		}
+		entidade.incrementaFrequencia();
+		hashtagsOrdenadas.add(entidade);
+	}
+
+	@Override
+	public void decrementa(String hashtag) {
+		EntidadeHashtag entidade = hashtagsPorTexto.get(hashtag);
+		if (entidade == null)
+			return;
+		hashtagsOrdenadas.remove(entidade);
+		entidade.decrementaFrequencia();
+		if (entidade.getFrequencia() > 0)
+			hashtagsOrdenadas.add(entidade);
+		else
+			hashtagsPorTexto.remove(hashtag);
+	}
+
+	@Override
+	public List<EntidadeHashtag> getMaisFrequentes(int quantidade) {
+		List<EntidadeHashtag> maisFrequentes = new ArrayList<>(quantidade);
+		Iterator<EntidadeHashtag> hashtags = hashtagsOrdenadas.descendingIterator();
+		while (maisFrequentes.size() < quantidade && hashtags.hasNext())
+			maisFrequentes.add(hashtags.next());
+		return maisFrequentes;
+	}
+
+	/**
+	 * Retorna a frequencia exata de uma hashtag.
+	 * 
+	 * @param hashtag
+	 *            Hashtag a ser consultada.
+	 * @return Frequencia da hashtag, ou 0 se ela nao foi usada.
+	 */
+	public int getFrequencia(String hashtag) {
+		EntidadeHashtag entidade = hashtagsPorTexto.get(hashtag);
+		return entidade == null ? 0 : entidade.getFrequencia();
+	}
+}
@@ -0,0 +1,203 @@
+package core.trendingTopics;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.EntidadeHashtag;
+import core.Relogio;
+
+/**
+ * Entidade que conta as hashtags usadas nas ultimas horas, dias, etc. <br>
+ * O tempo e dividido em baldes de largura fixa, guardados em um buffer
+ * circular que cobre a maior janela configurada. Cada janela tem o seu proprio
+ * ContadorExato com as hashtags dos baldes que ela cobre; quando o relogio
+ * avanca, os baldes que saem de uma janela sao descontados do contador dela.
+ * Cada ocorrencia e descontada uma unica vez por janela, entao a expiracao
+ * custa O(1) amortizado e as consultas nao percorrem os posts. <br>
+ * O balde de uma ocorrencia vem da data do Post, por getBalde: ocorrencias
+ * mais antigas que a maior janela sao ignoradas e as datadas no futuro contam
+ * no balde atual. Quem conta guarda o balde e o usa de novo para descontar, ja
+ * que o balde atual de um Post do futuro muda com o tempo. O momento atual vem
+ * do Relogio do core. Nao e sincronizada: e usada com o monitor de
+ * TrendingTopics.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public class ContadorPorJanela {
+	private final Relogio relogio;
+	private final long larguraDoBalde;
+	private final Duration[] janelas;
+	private final long[] baldesPorJanela;
+	private final ContadorExato[] contadoresDasJanelas;
+	private final Map<String, int[]>[] baldes;
+	private final long[] numeroDoBalde;
+	private long baldeAtual;
+
+	/**
+	 * Construtor de ContadorPorJanela que usa o Relogio atual do core, mesmo
+	 * que ele seja trocado depois.
+	 * 
+	 * @param larguraDoBalde
+	 *            Intervalo de tempo coberto por cada balde.
+	 * @param janelas
+	 *            Janelas que poderao ser consultadas, como uma hora ou um dia.
+	 */
+	public ContadorPorJanela(Duration larguraDoBalde, Duration... janelas) {
+		this(null, larguraDoBalde, janelas);
+	}
+
+	/**
+	 * Construtor de ContadorPorJanela.
+	 * 
+	 * @param relogio
+	 *            Relogio usado para saber o momento atual, ou null para usar o
+	 *            Relogio atual do core.
+	 * @param larguraDoBalde
+	 *            Intervalo de tempo coberto por cada balde.
+	 * @param janelas
+	 *            Janelas que poderao ser consultadas, como uma hora ou um dia.
+	 */
+	public ContadorPorJanela(Relogio relogio, Duration larguraDoBalde, Duration... janelas) {
+		if (larguraDoBalde.getSeconds() < 1)
+			throw new IllegalArgumentException("A largura do balde deve ser de pelo menos um segundo.");
+		if (janelas.length == 0)
+			throw new IllegalArgumentException("Deve haver pelo menos uma janela.");
+		this.relogio = relogio;
+		this.larguraDoBalde = larguraDoBalde.getSeconds();
+		this.janelas = janelas.clone();
+		this.baldesPorJanela = new long[janelas.length];
+		this.contadoresDasJanelas = new ContadorExato[janelas.length];
+		long maiorJanela = 0;
+		for (int i = 0; i < janelas.length; i++) {
+			long segundos = janelas[i].getSeconds();
+			if (segundos < this.larguraDoBalde)
+				throw new IllegalArgumentException("A janela deve cobrir pelo menos um balde.");
+			baldesPorJanela[i] = (segundos + this.larguraDoBalde - 1) / this.larguraDoBalde;
+			contadoresDasJanelas[i] = new ContadorExato();
+			maiorJanela = Math.max(maiorJanela, baldesPorJanela[i]);
+		}
+		this.baldes = criaBaldes((int) maiorJanela);
+		this.numeroDoBalde = new long[baldes.length];
+		this.baldeAtual = Math.floorDiv(getClock().instant().getEpochSecond(), this.larguraDoBalde);
+	}
+
+	/**
+	 * Retorna o balde em que uma ocorrencia de agora, datada em um momento,
+	 * deve ser contada.
+	 * 
+	 * @param momento
+	 *            Data do Post que usou a hashtag.
+	 * @return Numero do balde do momento, ou do balde atual se o momento
+	 *         estiver no futuro.
+	 */
+	public long getBalde(LocalDateTime momento) {
+		avanca();
+		long balde = Math.floorDiv(momento.atZone(getClock().getZone()).toEpochSecond(), larguraDoBalde);
+		return Math.min(balde, baldeAtual);
+	}
+
+	/**
+	 * Conta uma ocorrencia de uma hashtag.
+	 * 
+	 * @param hashtag
+	 *            Hashtag usada.
+	 * @param balde
+	 *            Balde da ocorrencia, retornado por getBalde.
+	 */
+	public void incrementa(String hashtag, long balde) {
+		avanca();
+		if (balde <= baldeAtual - baldes.length)
+			return;
+		int posicao = (int) Math.floorMod(balde, (long) baldes.length);
+		if (baldes[posicao] == null || numeroDoBalde[posicao] != balde) {
+			baldes[posicao] = new HashMap<>();
+			numeroDoBalde[posicao] = balde;
+		}
+		int[] contagem = baldes[posicao].get(hashtag);
+		if (contagem == null)
+			baldes[posicao].put(hashtag, new int[] { 1 });
+		else
+			contagem[0]++;
+		for (int i = 0; i < janelas.length; i++)
+			if (balde > baldeAtual - baldesPorJanela[i])
+				contadoresDasJanelas[i].incrementa(hashtag);
+	}
+
+	/**
+	 * Desconta uma ocorrencia de uma hashtag, se ela ainda estiver em alguma
+	 * janela.
+	 * 
+	 * @param hashtag
+	 *            Hashtag descartada.
+	 * @param balde
+	 *            Balde em que a ocorrencia foi contada.
+	 */
+	public void decrementa(String hashtag, long balde) {
+		avanca();
+		if (balde <= baldeAtual - baldes.length)
+			return;
+		int posicao = (int) Math.floorMod(balde, (long) baldes.length);
+		if (baldes[posicao] == null || numeroDoBalde[posicao] != balde)
+			return;
+		int[] contagem = baldes[posicao].get(hashtag);
+		if (contagem == null)
+			return;
+		if (--contagem[0] == 0)
+			baldes[posicao].remove(hashtag);
+		for (int i = 0; i < janelas.length; i++)
+			if (balde > baldeAtual - baldesPorJanela[i])
+				contadoresDasJanelas[i].decrementa(hashtag);
+	}
+
+	/**
+	 * Retorna as hashtags mais usadas em uma janela.
+	 * 
+	 * @param janela
+	 *            Uma das janelas configuradas.
+	 * @param quantidade
+	 *            Quantidade maxima de hashtags a retornar.
+	 * @return Lista com as hashtags mais frequentes da janela.
+	 */
+	public List<EntidadeHashtag> getMaisFrequentes(Duration janela, int quantidade) {
+		avanca();
+		for (int i = 0; i < janelas.length; i++)
+			if (janelas[i].equals(janela))
+				return contadoresDasJanelas[i].getMaisFrequentes(quantidade);
+		throw new IllegalArgumentException("Janela nao configurada: " + janela);
+	}
+
+	private void avanca() {
+		long agora = Math.floorDiv(getClock().instant().getEpochSecond(), larguraDoBalde);
+		if (agora <= baldeAtual)
+			return;
+		for (int i = 0; i < janelas.length; i++) {
+			long ultimoQueSai = Math.min(agora - baldesPorJanela[i], baldeAtual);
+			for (long balde = baldeAtual - baldesPorJanela[i] + 1; balde <= ultimoQueSai; balde++)
+				expira(balde, contadoresDasJanelas[i]);
+		}
+		baldeAtual = agora;
+	}
+
+	private void expira(long balde, ContadorExato contadorDaJanela) {
+		int posicao = (int) Math.floorMod(balde, (long) baldes.length);
+		if (baldes[posicao] == null || numeroDoBalde[posicao] != balde)
+			return;
+		for (Map.Entry<String, int[]> contagem : baldes[posicao].entrySet())
+			for (int i = 0; i < contagem.getValue()[0]; i++)
+				contadorDaJanela.decrementa(contagem.getKey());
+	}
+
+	private Clock getClock() {
+		return (relogio != null ? relogio : Relogio.getAtual()).getClock();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, int[]>[] criaBaldes(int quantidade) {
+		return (Map<String, int[]>[]) new Map<?, ?>[quantidade];
+	}
+}
@@ -0,0 +1,152 @@
+package core.trendingTopics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import core.EntidadeHashtag;
+
+/**
+ * Entidade que implementa ContadorDeHashtags de forma aproximada, com o
+ * algoritmo Space-Saving. <br>
+ * Monitora no maximo "capacidade" hashtags. Quando chega uma hashtag nova e nao
+ * ha espaco, ela substitui a hashtag monitorada de menor frequencia e herda essa
+ * frequencia como erro. Com N ocorrencias contadas, a frequencia informada
+ * nunca e menor que a real e passa dela em no maximo N / capacidade; toda
+ * hashtag com frequencia real acima de N / capacidade esta sendo monitorada.
+ * <br>
+ * Descontar uma hashtag que nao esta sendo monitorada nao tem efeito.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public class ContadorSpaceSaving implements ContadorDeHashtags {
+	private final int capacidade;
+	private final Map<String, HashtagMonitorada> hashtagsPorTexto;
+	private final NavigableSet<HashtagMonitorada> hashtagsOrdenadas;
+	private long totalDeOcorrencias;
+
+	/**
+	 * Construtor de ContadorSpaceSaving.
+	 * 
+	 * @param capacidade
+	 *            Quantidade maxima de hashtags monitoradas.
+	 */
+	public ContadorSpaceSaving(int capacidade) {
+		if (capacidade < 1)
+			throw new IllegalArgumentException("A capacidade deve ser positiva.");
+		this.capacidade = capacidade;
+		this.hashtagsPorTexto = new HashMap<>();
+		this.hashtagsOrdenadas = new TreeSet<>();
+		this.totalDeOcorrencias = 0;
+	}
+
+	/**
+	 * Cria um ContadorSpaceSaving cujo erro de cada frequencia e no maximo uma
+	 * fracao do total de ocorrencias contadas.
+	 * 
+	 * @param erroMaximo
+	 *            Fracao do total de ocorrencias aceita como erro, entre 0 e 1.
+	 * @return Retorna o contador com a capacidade necessaria.
+	 */
+	public static ContadorSpaceSaving comErroMaximo(double erroMaximo) {
+		if (erroMaximo <= 0 || erroMaximo > 1)
+			throw new IllegalArgumentException("O erro maximo deve estar entre 0 e 1.");
+		return new ContadorSpaceSaving((int) Math.ceil(1 / erroMaximo));
+	}
+
+	@Override
+	public void incrementa(String hashtag) {
+		totalDeOcorrencias++;
+		HashtagMonitorada monitorada = hashtagsPorTexto.get(hashtag);
+		if (monitorada != null) {
+			hashtagsOrdenadas.remove(monitorada);
+			monitorada.incrementaFrequencia();
+			hashtagsOrdenadas.add(monitorada);
+			return;
+		}
+		int erro = 0;
+		if (hashtagsPorTexto.size() == capacidade) {
+			HashtagMonitorada menosFrequente = hashtagsOrdenadas.pollFirst();
+			hashtagsPorTexto.remove(menosFrequente.toString());
+			erro = menosFrequente.getFrequencia();
+		}
+		monitorada = new HashtagMonitorada(hashtag, erro + 1, erro);
+		hashtagsPorTexto.put(hashtag, monitorada);
+		hashtagsOrdenadas.add(monitorada);
+	}
+
+	@Override
+	public void decrementa(String hashtag) {
+		HashtagMonitorada monitorada = hashtagsPorTexto.get(hashtag);
+		if (monitorada == null)
+			return;
+		totalDeOcorrencias--;
+		hashtagsOrdenadas.remove(monitorada);
+		monitorada.decrementaFrequencia();
+		if (monitorada.getFrequencia() > monitorada.getErro())
+			hashtagsOrdenadas.add(monitorada);
+		else
+			hashtagsPorTexto.remove(hashtag);
+	}
+
+	@Override
+	public List<EntidadeHashtag> getMaisFrequentes(int quantidade) {
+		List<EntidadeHashtag> maisFrequentes = new ArrayList<>(quantidade);
+		Iterator<HashtagMonitorada> hashtags = hashtagsOrdenadas.descendingIterator();
+		while (maisFrequentes.size() < quantidade && hashtags.hasNext())
+			maisFrequentes.add(hashtags.next());
+		return maisFrequentes;
+	}
+
+	/**
+	 * Retorna a frequencia estimada de uma hashtag.
+	 * 
+	 * @param hashtag
+	 *            Hashtag a ser consultada.
+	 * @return Frequencia estimada, ou 0 se a hashtag nao esta sendo monitorada.
+	 */
+	public int getFrequencia(String hashtag) {
+		HashtagMonitorada monitorada = hashtagsPorTexto.get(hashtag);
+		return monitorada == null ? 0 : monitorada.getFrequencia();
+	}
+
+	/**
+	 * Retorna a quantidade de hashtags monitoradas, que nunca passa da
+	 * capacidade.
+	 * 
+	 * @return Quantidade de hashtags monitoradas.
+	 */
+	public int getQuantidadeDeHashtagsMonitoradas() {
+		return hashtagsPorTexto.size();
+	}
+
+	/**
+	 * Retorna o erro maximo atual de qualquer frequencia informada.
+	 * 
+	 * @return Total de ocorrencias dividido pela capacidade.
+	 */
+	public long getErroMaximo() {
+		return totalDeOcorrencias / capacidade;
+	}
+
+	/**
+	 * Hashtag monitorada pelo Space-Saving, com o erro herdado na substituicao.
+	 */
+	private static final class HashtagMonitorada extends EntidadeHashtag {
+		private final int erro;
+
+		HashtagMonitorada(String hashtag, int frequencia, int erro) {
+			super(hashtag, frequencia);
+			this.erro = erro;
+		}
+
+		int getErro() {
+			return this.erro;
+		}
+	}
+}
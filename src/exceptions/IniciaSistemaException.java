@@ -0,0 +1,10 @@
+package exceptions;
+
+public class IniciaSistemaException extends Exception {
+	
+	private static final long serialVersionUID = 2846103579137326318L;
+	
+	public IniciaSistemaException(Exception e) {
+		super("Nao foi possivel iniciar o sistema. " + e.getMessage());
+	}
+}
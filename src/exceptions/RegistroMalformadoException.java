@@ -0,0 +1,10 @@
+package exceptions;
+
+public class RegistroMalformadoException extends Exception {
+
+	private static final long serialVersionUID = 3470858194225011937L;
+
+	public RegistroMalformadoException(String motivo) {
+		super("Registro malformado: " + motivo + ".");
+	}
+}
@@ -1,12 +1,30 @@
 package manager;
 
-import java.io.Serializable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
+import core.ArmazemDePosts;
+import core.FeedDeNoticias;
+import core.GrafoSocial;
+import core.Notificacao;
 import core.Post;
 import core.Ranking;
+import core.Relogio;
+import core.SnapshotDoMaisPop;
+import core.TipoDeNotificacao;
+import core.TrendingTopics;
 import core.Usuario;
+import core.trendingTopics.ContadorDeHashtags;
+import core.trendingTopics.ContadorExato;
+import core.trendingTopics.ContadorPorJanela;
 import exceptions.AtualizaPerfilNaoLogado;
 import exceptions.AtualizacaoDePerfilException;
 import exceptions.CadastroDeUsuarioException;
@@ -16,6 +34,7 @@ import exceptions.DataNaoExisteException;
 import exceptions.EmailInvalidoException;
 import exceptions.FormatoDeDataInvalidoException;
 import exceptions.IndiceConteudoPostInvalido;
+import exceptions.IndiceMenorQueZeroException;
 import exceptions.LoginException;
 import exceptions.LogoutException;
 import exceptions.NaoHaNotificacoesException;
@@ -32,29 +51,92 @@ import exceptions.UsuarioAindaLogadoException;
 import exceptions.UsuarioJaCadastradoException;
 import exceptions.UsuarioJaLogadoException;
 import exceptions.UsuarioNaoCadastradoException;
+import manager.LogDeOperacoes.Escrita;
+import manager.LogDeOperacoes.Operacao;
+import manager.LogDeOperacoes.Sincronizacao;
+import manager.LogDeOperacoes.TipoDeOperacao;
 import util.PostFactory;
 
 /**
  * Controller do +Pop. <br>
  * Responsavel pela logica de negocios, realizando operacoes de forma a diminuir
- * o acoplamento.
+ * o acoplamento. <br>
+ * Cada operacao de um usuario logado recebe a Sessao obtida em abreSessao,
+ * permitindo varios usuarios logados ao mesmo tempo. As versoes sem Sessao
+ * usam a sessao aberta pelo metodo login, que admite um unico usuario logado.
+ * <br>
+ * Sob acesso concorrente, curtirPost, rejeitarPost e aceitaAmizade sao
+ * linearizaveis: curtidas e rejeicoes sao aplicadas por inteiro com o monitor
+ * do dono do Post (nenhuma curtida se perde e #epicwin e adicionada uma unica
+ * vez), e aceitar uma amizade atualiza os dois usuarios no GrafoSocial com o
+ * monitor do grafo. Toda operacao que altera o estado trava, nas
+ * TravasDeUsuarios, os usuarios envolvidos do inicio ao fim, com ou sem log
+ * aberto, entao as verificacoes de uma curtida, como a amizade com o dono do
+ * Post, e a sua aplicacao nao se intercalam com um removeAmigo dos mesmos
+ * usuarios. Cada chamada tem efeito em um unico instante entre o seu inicio e
+ * o seu fim.
  * 
  * @author matteus
- *
+ * 
  */
-public class Controller implements Serializable {
-	private static final long serialVersionUID = -5784701982498476044L;
-	private Usuario usuarioLogado;
-	private List<Usuario> usuariosDoMaisPop;
+public class Controller {
+	public static final Duration JANELA_DE_UMA_HORA = Duration.ofHours(1);
+	public static final Duration JANELA_DE_UM_DIA = Duration.ofDays(1);
+	private static final Duration LARGURA_DO_BALDE = Duration.ofMinutes(1);
+	private Sessao sessaoPadrao;
+	private GerenciadorDeSessoes sessoes;
+	private RepositorioDeUsuarios usuariosDoMaisPop;
+	private GrafoSocial grafo;
+	private FeedDeNoticias feed;
 	private Ranking ranking;
+	private TrendingTopics trendingTopics;
+	private volatile boolean agrupaNotificacoes;
+	private volatile boolean estadoRecuperado;
+	private volatile LogDeOperacoes log;
+	private final TravasDeUsuarios travasDeUsuarios;
+	private final Supplier<LogDeOperacoes> logAberto;
+	private final ArmazemDePosts armazemDePosts;
 
 	/**
-	 * Construtor de Controller.
+	 * Construtor de Controller, com contagem exata dos trending topics.
 	 */
 	public Controller() {
-		usuariosDoMaisPop = new ArrayList<Usuario>();
-		usuarioLogado = null;
+		this(new ContadorExato());
+	}
+
+	/**
+	 * Construtor de Controller.
+	 * 
+	 * @param contadorDeHashtags
+	 *            Contador usado nos trending topics. Um contador aproximado,
+	 *            como o ContadorSpaceSaving, usa memoria fixa mesmo com milhoes
+	 *            de hashtags distintas.
+	 */
+	public Controller(ContadorDeHashtags contadorDeHashtags) {
+		this(contadorDeHashtags, null);
+	}
+
+	/**
+	 * Construtor de Controller.
+	 * 
+	 * @param contadorDeHashtags
+	 *            Contador usado nos trending topics.
+	 * @param armazemDePosts
+	 *            Armazem onde fica o texto dos posts criados ou carregados, ou
+	 *            null para manter o texto no heap.
+	 */
+	public Controller(ContadorDeHashtags contadorDeHashtags, ArmazemDePosts armazemDePosts) {
+		this.armazemDePosts = armazemDePosts;
+		this.travasDeUsuarios = new TravasDeUsuarios();
+		this.logAberto = () -> log;
+		usuariosDoMaisPop = new RepositorioDeUsuarios();
+		grafo = new GrafoSocial();
+		feed = new FeedDeNoticias(grafo);
+		sessoes = new GerenciadorDeSessoes();
+		sessaoPadrao = null;
 		ranking = new Ranking();
+		trendingTopics = new TrendingTopics(contadorDeHashtags, new ContadorPorJanela(LARGURA_DO_BALDE,
+				JANELA_DE_UMA_HORA, JANELA_DE_UM_DIA));
 	}
 
 	/**
@@ -71,14 +153,34 @@ public class Controller implements Serializable {
 	 */
 	public void login(String email, String senha) throws LoginException {
 		try {
-			if (isUsuarioLogado())
-				throw new UsuarioJaLogadoException(usuarioLogado.getInfo("nome"));
+			Usuario usuarioJaLogado = sessoes.getUsuario(sessaoPadrao);
+			if (usuarioJaLogado != null)
+				throw new UsuarioJaLogadoException(usuarioJaLogado.getInfo("nome"));
+			this.sessaoPadrao = abreSessao(email, senha);
+		} catch (UsuarioJaLogadoException | SenhaProtegidaException e) {
+			throw new LoginException(e);
+		}
+	}
+
+	/**
+	 * Abre uma nova sessao para um usuario. Diferente de login, permite que
+	 * varios usuarios estejam logados ao mesmo tempo.
+	 * 
+	 * @param email
+	 *            Email do usuario que esta tentando fazer login.
+	 * @param senha
+	 *            Senha do usuario que esta tentando fazer login.
+	 * @return Retorna a sessao que deve ser usada nas proximas operacoes.
+	 * @throws LoginException
+	 *             Excessao lancada quando o usuario nao esta cadastrado ou
+	 *             quando a senha e invalida.
+	 */
+	public Sessao abreSessao(String email, String senha) throws LoginException {
+		try {
 			Usuario usuarioTentandoLogin = buscaUsuarioPorEmail(email);
 			usuarioTentandoLogin.validaSenhaLogin(senha);
-			;
-			this.usuarioLogado = usuarioTentandoLogin;
-		} catch (UsuarioNaoCadastradoException | SenhaInvalidaException | UsuarioJaLogadoException
-				| SenhaProtegidaException e) {
+			return sessoes.abre(usuarioTentandoLogin);
+		} catch (UsuarioNaoCadastradoException | SenhaInvalidaException e) {
 			throw new LoginException(e);
 		}
 	}
@@ -90,11 +192,21 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando nao ha usuario para ser deslogado.
 	 */
 	public void logout() throws LogoutException {
-		if (isUsuarioLogado()) {
-			usuarioLogado = null;
-		} else {
+		fechaSessao(sessaoPadrao);
+		sessaoPadrao = null;
+	}
+
+	/**
+	 * Fecha uma sessao aberta por abreSessao.
+	 * 
+	 * @param sessao
+	 *            Sessao a ser fechada.
+	 * @throws LogoutException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public void fechaSessao(Sessao sessao) throws LogoutException {
+		if (!sessoes.fecha(sessao))
 			throw new LogoutException(new NenhumUsuarioLogadoException());
-		}
 	}
 
 	/**
@@ -118,10 +230,13 @@ public class Controller implements Serializable {
 	 */
 	public String cadastraUsuario(String nome, String email, String senha, String dataNasc, String imagem)
 			throws CadastroDeUsuarioException {
-		try {
+		try (Escrita escrita = iniciaEscrita(email)) {
 			isUsuarioJaCadastrado(email);
 			Usuario usuario = new Usuario(nome, email, senha, dataNasc, imagem);
-			usuariosDoMaisPop.add(usuario);
+			usuariosDoMaisPop.adiciona(usuario);
+			usuario.setAgrupaNotificacoes(agrupaNotificacoes);
+			ranking.adiciona(usuario);
+			escrita.registra(TipoDeOperacao.CADASTRA_USUARIO, 0, nome, email, senha, dataNasc, imagem);
 			return usuario.getEmail();
 		} catch (UsuarioJaCadastradoException | NomeUsuarioException | EmailInvalidoException
 				| FormatoDeDataInvalidoException | DataNaoExisteException e) {
@@ -129,6 +244,29 @@ public class Controller implements Serializable {
 		}
 	}
 
+	/**
+	 * Cadastra usuarios em lote, um por linha da entrada. Cada linha tem o
+	 * mesmo resultado de uma chamada de cadastraUsuario, na ordem da entrada,
+	 * mas a validacao e feita em paralelo e os usuarios sao adicionados de uma
+	 * vez.
+	 * 
+	 * @param entrada
+	 *            Entrada com um usuario por linha.
+	 * @param formato
+	 *            Formato da entrada, CSV ou JSON lines.
+	 * @return Relatorio com os e-mails cadastrados e a mensagem de
+	 *         CadastroDeUsuarioException de cada linha que falhou.
+	 * @throws IOException
+	 *             Excessao lancada quando a entrada nao pode ser lida.
+	 */
+	public RelatorioDeImportacao importaUsuarios(Reader entrada, ImportadorDeUsuarios.Formato formato)
+			throws IOException {
+		try (Escrita escrita = iniciaEscrita()) {
+			return new ImportadorDeUsuarios(usuariosDoMaisPop, ranking).importa(entrada, formato,
+					agrupaNotificacoes, escrita);
+		}
+	}
+
 	/**
 	 * Atualiza o perfil de um usuario do +Pop.
 	 * 
@@ -145,18 +283,58 @@ public class Controller implements Serializable {
 	 */
 	public void atualizaPerfil(String atributo, String valor)
 			throws AtualizacaoDePerfilException, AtualizaPerfilNaoLogado {
-		try {
-			if (!isUsuarioLogado())
-				throw new NenhumUsuarioLogadoException();
+		atualizaPerfil(sessaoPadrao, atributo, valor);
+	}
+
+	/**
+	 * Atualiza o perfil do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param atributo
+	 *            Variavel que determina qual sera o atributo de Usuario que vai
+	 *            ser atualizado.
+	 * @param valor
+	 *            Novo valor do atributo a ser atualizado.
+	 * @throws AtualizacaoDePerfilException
+	 *             Excessao lancada quando o valor nao e valido, ou seja, data,
+	 *             nome ou e-mail nao sao validos.
+	 * @throws AtualizaPerfilNaoLogado
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public void atualizaPerfil(Sessao sessao, String atributo, String valor)
+			throws AtualizacaoDePerfilException, AtualizaPerfilNaoLogado {
+		String novoEmail = isAtributoEmail(atributo) ? valor : null;
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao), novoEmail)) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+			String emailAntigo = usuarioLogado.getEmail();
+			if (isAtributoEmail(atributo) && isEmailDeOutroUsuario(valor, usuarioLogado))
+				throw new UsuarioJaCadastradoException();
 			usuarioLogado.setAtributo(atributo, valor);
+			if (!emailAntigo.equals(usuarioLogado.getEmail())) {
+				reindexa(emailAntigo, usuarioLogado, atributo);
+				grafo.registraMudancaDeEmail(usuarioLogado);
+			}
+			escrita.registra(TipoDeOperacao.ATUALIZA_PERFIL, 0, emailAntigo, atributo, valor);
 		} catch (DataNaoExisteException | NomeUsuarioException | FormatoDeDataInvalidoException
-				| EmailInvalidoException e) {
+				| EmailInvalidoException | UsuarioJaCadastradoException e) {
 			throw new AtualizacaoDePerfilException(e);
 		} catch (NenhumUsuarioLogadoException e) {
 			throw new AtualizaPerfilNaoLogado(e);
 		}
 	}
 
+	private void reindexa(String emailAntigo, Usuario usuario, String atributo)
+			throws UsuarioJaCadastradoException, DataNaoExisteException, NomeUsuarioException,
+			FormatoDeDataInvalidoException, EmailInvalidoException {
+		try {
+			usuariosDoMaisPop.reindexa(emailAntigo, usuario);
+		} catch (UsuarioJaCadastradoException e) {
+			usuario.setAtributo(atributo, emailAntigo);
+			throw e;
+		}
+	}
+
 	/**
 	 * Atualiza a senha de um usuario.
 	 * 
@@ -171,11 +349,31 @@ public class Controller implements Serializable {
 	 *             se a senha estiver incorreta.
 	 */
 	public void atualizaPerfil(String atributo, String valor, String velhaSenha) throws AtualizacaoDePerfilException {
-		try {
-			if (!isUsuarioLogado())
-				throw new NenhumUsuarioLogadoException();
+		atualizaPerfil(sessaoPadrao, atributo, valor, velhaSenha);
+	}
+
+	/**
+	 * Atualiza a senha do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param atributo
+	 *            Atributo a ser atualizado, no caso a senha.
+	 * @param valor
+	 *            Nova senha do usuario.
+	 * @param velhaSenha
+	 *            Senha antiga.
+	 * @throws AtualizacaoDePerfilException
+	 *             Excessao lancada se a sessao nao estiver aberta ou se a
+	 *             senha estiver incorreta.
+	 */
+	public void atualizaPerfil(Sessao sessao, String atributo, String valor, String velhaSenha)
+			throws AtualizacaoDePerfilException {
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao))) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
 			usuarioLogado.isSenhaCorreta(velhaSenha);
 			usuarioLogado.setSenha(valor);
+			escrita.registra(TipoDeOperacao.ATUALIZA_SENHA, 0, usuarioLogado.getEmail(), valor, velhaSenha);
 		} catch (NenhumUsuarioLogadoException | SenhaIncorretaException e) {
 			throw new AtualizacaoDePerfilException(e);
 		}
@@ -212,9 +410,30 @@ public class Controller implements Serializable {
 	 * @throws SenhaProtegidaException
 	 *             Excessao lancada se o atributo for senha, pois a senha e
 	 *             protegida.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando nenhum usuario esta logado.
 	 */
-	public String getInfoUsuario(String atributo) throws SenhaProtegidaException {
-		return usuarioLogado.getInfo(atributo);
+	public String getInfoUsuario(String atributo) throws SenhaProtegidaException, NenhumUsuarioLogadoException {
+		return getInfoUsuario(sessaoPadrao, atributo);
+	}
+
+	/**
+	 * metodo que retorna uma informacao especifica do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param atributo
+	 *            String que indica qual o atributo que o metodo deve retornar.
+	 * @return Retorna um atributo do usuario da sessao.
+	 * @throws SenhaProtegidaException
+	 *             Excessao lancada se o atributo for senha, pois a senha e
+	 *             protegida.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public String getInfoUsuario(Sessao sessao, String atributo)
+			throws SenhaProtegidaException, NenhumUsuarioLogadoException {
+		return getUsuarioDaSessao(sessao).getInfo(atributo);
 	}
 
 	/**
@@ -223,11 +442,286 @@ public class Controller implements Serializable {
 	 * @return Retorna true se ha um usuario logado e false, caso contrario.
 	 */
 	public boolean isUsuarioLogado() {
-		if (usuarioLogado == null)
+		if (sessoes.getUsuario(sessaoPadrao) == null)
+			return false;
+		return true;
+	}
+
+	/**
+	 * Metodo que indica se ha alguma sessao aberta no +Pop, seja pelo login ou
+	 * por abreSessao.
+	 * 
+	 * @return Retorna true se ha sessoes abertas e false, caso contrario.
+	 */
+	public boolean temSessoesAbertas() {
+		return sessoes.temSessoesAbertas();
+	}
+
+	/**
+	 * Retorna a quantidade de usuarios cadastrados no +Pop.
+	 * 
+	 * @return Quantidade de usuarios.
+	 */
+	public int getQuantidadeDeUsuarios() {
+		return usuariosDoMaisPop.getQuantidade();
+	}
+
+	/**
+	 * Salva o estado dos usuarios do +Pop em um arquivo: perfis, murais,
+	 * amizades, solicitacoes e notificacoes.
+	 * 
+	 * @param arquivo
+	 *            Arquivo onde o estado sera salvo.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser escrito.
+	 */
+	public void salvaEstado(Path arquivo) throws IOException {
+		SnapshotDoMaisPop.salva(arquivo, usuariosDoMaisPop.getUsuarios(), grafo);
+	}
+
+	/**
+	 * Carrega o estado salvo por salvaEstado em um +Pop sem usuarios. O ranking
+	 * e os trending topics sao refeitos a partir dos usuarios carregados. Se o
+	 * arquivo nao existe, nada e carregado, tenha o +Pop usuarios ou nao.
+	 * 
+	 * @param arquivo
+	 *            Arquivo com o estado salvo.
+	 * @return true se o estado foi carregado, false se o arquivo nao existe.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser lido ou esta
+	 *             corrompido.
+	 * @throws IllegalStateException
+	 *             Excessao lancada quando o arquivo existe e o +Pop ja tem
+	 *             usuarios.
+	 */
+	public boolean carregaEstado(Path arquivo) throws IOException {
+		if (!Files.exists(arquivo))
 			return false;
+		if (usuariosDoMaisPop.getQuantidade() > 0)
+			throw new IllegalStateException("O estado so pode ser carregado em um +Pop sem usuarios.");
+		GrafoSocial grafoCarregado = new GrafoSocial();
+		List<Usuario> usuarios = SnapshotDoMaisPop.carrega(arquivo, grafoCarregado, armazemDePosts);
+		List<Usuario> repetidos = usuariosDoMaisPop.adicionaTodos(usuarios);
+		if (!repetidos.isEmpty()) {
+			usuariosDoMaisPop = new RepositorioDeUsuarios();
+			throw new IOException("O arquivo " + arquivo + " tem e-mails repetidos.");
+		}
+		grafo = grafoCarregado;
+		feed = new FeedDeNoticias(grafo);
+		ranking.adicionaTodos(usuarios);
+		for (Usuario usuario : usuarios)
+			trendingTopics.registraTodos(usuario.getPosts());
 		return true;
 	}
 
+	/**
+	 * Carrega o snapshot salvo em um +Pop sem usuarios e reaplica, na ordem, as
+	 * operacoes registradas no log depois dele. Um log criado sobre outro
+	 * snapshot ja esta contido nele e e ignorado, assim como um registro
+	 * incompleto no fim do log, que so pode vir de uma gravacao interrompida.
+	 * Cada operacao e reaplicada com o Relogio do core parado no momento em
+	 * que ela foi registrada, entao o que depende do dia de hoje, como o bonus
+	 * de um post recente, da o mesmo resultado; o Relogio anterior volta no
+	 * fim. Depois disso isEstadoRecuperado passa a retornar true.
+	 * 
+	 * @param snapshot
+	 *            Arquivo com o estado salvo.
+	 * @param arquivoDoLog
+	 *            Arquivo do log de operacoes.
+	 * @return Quantidade de operacoes reaplicadas.
+	 * @throws IOException
+	 *             Excessao lancada quando o snapshot ou o log nao podem ser
+	 *             lidos, ou quando uma operacao do log nao pode ser reaplicada.
+	 */
+	public int recuperaEstado(Path snapshot, Path arquivoDoLog) throws IOException {
+		long crcDoSnapshot = carregaEstado(snapshot) ? SnapshotDoMaisPop.leCrc(snapshot)
+				: LogDeOperacoes.SEM_SNAPSHOT;
+		int reaplicadas = 0;
+		Relogio relogioAtual = Relogio.getAtual();
+		try (LogDeOperacoes.Leitor leitor = LogDeOperacoes.le(arquivoDoLog, crcDoSnapshot)) {
+			for (Operacao operacao = leitor.proxima(); operacao != null; operacao = leitor.proxima()) {
+				Relogio.setAtual(operacao.getMomento() == LogDeOperacoes.SEM_MOMENTO ? relogioAtual
+						: new Relogio(Clock.fixed(Instant.ofEpochMilli(operacao.getMomento()),
+								relogioAtual.getClock().getZone())));
+				try {
+					reaplica(operacao);
+				} catch (Exception e) {
+					throw new IOException("A operacao " + (reaplicadas + 1) + " do log (" + operacao.getTipo()
+							+ ") nao pode ser reaplicada: " + e.getMessage(), e);
+				}
+				reaplicadas++;
+			}
+		} finally {
+			Relogio.setAtual(relogioAtual);
+		}
+		estadoRecuperado = true;
+		return reaplicadas;
+	}
+
+	/**
+	 * Verifica se o estado deste +Pop ja foi recuperado por recuperaEstado.
+	 * 
+	 * @return true, se o estado foi recuperado. false, caso contrario.
+	 */
+	public boolean isEstadoRecuperado() {
+		return estadoRecuperado;
+	}
+
+	/**
+	 * Compacta o estado atual em um novo snapshot, com um log vazio sobre ele,
+	 * e passa a registrar nesse log cada operacao que altera o estado. Nao faz
+	 * nada se o log ja esta aberto. Todos os usuarios ficam travados durante a
+	 * compactacao, entao nenhuma operacao fica de fora do snapshot e do log.
+	 * 
+	 * @param snapshot
+	 *            Arquivo onde o estado sera salvo.
+	 * @param arquivoDoLog
+	 *            Arquivo do log de operacoes.
+	 * @param sincronizacao
+	 *            Momento em que os registros vao para o disco.
+	 * @throws IOException
+	 *             Excessao lancada quando o snapshot ou o log nao podem ser
+	 *             escritos.
+	 */
+	public void abreLog(Path snapshot, Path arquivoDoLog, Sincronizacao sincronizacao) throws IOException {
+		int[] todas = travasDeUsuarios.trava();
+		try {
+			if (log == null)
+				log = compacta(snapshot, arquivoDoLog, sincronizacao);
+		} finally {
+			travasDeUsuarios.libera(todas);
+		}
+	}
+
+	/**
+	 * Para de registrar as operacoes e compacta o estado atual em um novo
+	 * snapshot, com um log vazio sobre ele. Nao faz nada se o log nao esta
+	 * aberto: sem abreLog, o estado em memoria pode nao conter o do snapshot,
+	 * que nao deve ser sobrescrito. Todos os usuarios ficam travados
+	 * do fechamento do log ate a troca, entao as operacoes em andamento
+	 * terminam de registrar antes e as seguintes so comecam sem log, depois
+	 * do snapshot.
+	 * 
+	 * @param snapshot
+	 *            Arquivo onde o estado sera salvo.
+	 * @param arquivoDoLog
+	 *            Arquivo do log de operacoes.
+	 * @throws IOException
+	 *             Excessao lancada quando o snapshot ou o log nao podem ser
+	 *             escritos.
+	 */
+	public void fechaLog(Path snapshot, Path arquivoDoLog) throws IOException {
+		int[] todas = travasDeUsuarios.trava();
+		try {
+			LogDeOperacoes aberto = log;
+			if (aberto == null)
+				return;
+			log = null;
+			aberto.close();
+			compacta(snapshot, arquivoDoLog, Sincronizacao.POR_OPERACAO).close();
+		} finally {
+			travasDeUsuarios.libera(todas);
+		}
+	}
+
+	/**
+	 * Fecha o ArmazemDePosts, apagando os seus segmentos. Depois disso os
+	 * posts deste Controller nao podem mais ser lidos, entao ele deve ser
+	 * descartado e o estado carregado de novo a partir do snapshot.
+	 * 
+	 * @return true, se havia um armazem a fechar. false, se o texto dos posts
+	 *         fica no heap e o Controller continua valido.
+	 * @throws IOException
+	 *             Excessao lancada quando os segmentos nao podem ser apagados.
+	 */
+	public boolean fechaArmazemDePosts() throws IOException {
+		if (armazemDePosts == null)
+			return false;
+		armazemDePosts.close();
+		return true;
+	}
+
+	/**
+	 * Verifica se as operacoes estao sendo registradas em um log.
+	 * 
+	 * @return true, se o log esta aberto. false, caso contrario.
+	 */
+	public boolean isLogAberto() {
+		return log != null;
+	}
+
+	private LogDeOperacoes compacta(Path snapshot, Path arquivoDoLog, Sincronizacao sincronizacao)
+			throws IOException {
+		salvaEstado(snapshot);
+		LogDeOperacoes novo = LogDeOperacoes.cria(arquivoDoLog, SnapshotDoMaisPop.leCrc(snapshot), sincronizacao);
+		if (agrupaNotificacoes) {
+			try (Escrita escrita = LogDeOperacoes.iniciaEscrita(travasDeUsuarios, () -> novo)) {
+				escrita.registra(TipoDeOperacao.AGRUPA_NOTIFICACOES, 1);
+			}
+		}
+		return novo;
+	}
+
+	private void reaplica(Operacao operacao) throws Exception {
+		switch (operacao.getTipo()) {
+		case CADASTRA_USUARIO:
+			cadastraUsuario(operacao.getTexto(0), operacao.getTexto(1), operacao.getTexto(2), operacao.getTexto(3),
+					operacao.getTexto(4));
+			return;
+		case REMOVE_USUARIO:
+			removeUsuario(operacao.getTexto(0));
+			return;
+		case AGRUPA_NOTIFICACOES:
+			setAgrupaNotificacoes(operacao.getInteiro() != 0);
+			return;
+		default:
+			break;
+		}
+		Sessao sessao = sessoes.abre(buscaUsuarioPorEmail(operacao.getTexto(0)));
+		try {
+			switch (operacao.getTipo()) {
+			case ATUALIZA_PERFIL:
+				atualizaPerfil(sessao, operacao.getTexto(1), operacao.getTexto(2));
+				break;
+			case ATUALIZA_SENHA:
+				atualizaPerfil(sessao, "senha", operacao.getTexto(1), operacao.getTexto(2));
+				break;
+			case CRIA_POST:
+				criaPost(sessao, operacao.getTexto(1), operacao.getTexto(2));
+				break;
+			case ADICIONA_AMIGO:
+				adicionaAmigo(sessao, operacao.getTexto(1));
+				break;
+			case ACEITA_AMIZADE:
+				aceitaAmizade(sessao, operacao.getTexto(1));
+				break;
+			case REJEITA_AMIZADE:
+				rejeitaAmizade(sessao, operacao.getTexto(1));
+				break;
+			case REMOVE_AMIGO:
+				removeAmigo(sessao, operacao.getTexto(1));
+				break;
+			case CURTE_POST:
+				curtirPost(sessao, operacao.getTexto(1), operacao.getInteiro());
+				break;
+			case REJEITA_POST:
+				rejeitarPost(sessao, operacao.getTexto(1), operacao.getInteiro());
+				break;
+			case ADICIONA_POPS:
+				adicionaPops(sessao, operacao.getInteiro());
+				break;
+			case LE_NOTIFICACOES:
+				if (getNextNotificacoes(sessao, operacao.getInteiro()).size() != operacao.getInteiro())
+					throw new NaoHaNotificacoesException();
+				break;
+			default:
+				throw new IllegalStateException("Operacao sem reaplicacao: " + operacao.getTipo() + ".");
+			}
+		} finally {
+			sessoes.fecha(sessao);
+		}
+	}
+
 	/**
 	 * Remove um usuario do +Pop.
 	 * 
@@ -238,8 +732,15 @@ public class Controller implements Serializable {
 	 *             e-mail.
 	 */
 	public void removeUsuario(String email) throws UsuarioNaoCadastradoException {
-		Usuario usuarioParaRemover = buscaUsuarioPorEmail(email);
-		usuariosDoMaisPop.remove(usuarioParaRemover);
+		try (Escrita escrita = iniciaEscrita(email)) {
+			Usuario usuarioRemovido = usuariosDoMaisPop.remove(email);
+			ranking.remove(usuarioRemovido);
+			trendingTopics.removeTodos(usuarioRemovido.getPosts());
+			sessoes.fechaSessoesDe(usuarioRemovido);
+			grafo.removeUsuario(usuarioRemovido);
+			feed.removeUsuario(usuarioRemovido);
+			escrita.registra(TipoDeOperacao.REMOVE_USUARIO, 0, usuarioRemovido.getEmail());
+		}
 	}
 
 	/**
@@ -253,8 +754,33 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando nao e possivel criar o Post.
 	 */
 	public void criaPost(String mensagem, String data) throws CriaPostException {
-		Post novoPost = PostFactory.getInstance().criaPost(mensagem, data);
-		usuarioLogado.adicionaPost(novoPost);
+		criaPost(sessaoPadrao, mensagem, data);
+	}
+
+	/**
+	 * Metodo para criar um Post no mural do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param mensagem
+	 *            Mensagem digitada pelo usuario.
+	 * @param data
+	 *            Data do post.
+	 * @throws CriaPostException
+	 *             Excessao lancada quando nao e possivel criar o Post ou
+	 *             quando a sessao nao esta aberta.
+	 */
+	public void criaPost(Sessao sessao, String mensagem, String data) throws CriaPostException {
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao))) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+			Post novoPost = PostFactory.getInstance().criaPost(mensagem, data, armazemDePosts);
+			trendingTopics.registra(novoPost);
+			usuarioLogado.adicionaPost(novoPost);
+			feed.registraPost(usuarioLogado, novoPost);
+			escrita.registra(TipoDeOperacao.CRIA_POST, 0, usuarioLogado.getEmail(), mensagem, data);
+		} catch (NenhumUsuarioLogadoException e) {
+			throw new CriaPostException(e);
+		}
 	}
 
 	/**
@@ -268,7 +794,24 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando a requisicao e invalida.
 	 */
 	public String getPost(int post) throws RequisicaoInvalidaException {
-		return usuarioLogado.getPost(post);
+		return getPost(sessaoPadrao, post);
+	}
+
+	/**
+	 * Retorna o Post desejado do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param post
+	 *            Post desejado.
+	 * @return retorna o Post do usuario.
+	 * 
+	 * @throws RequisicaoInvalidaException
+	 *             Excessao lancada quando a requisicao e invalida ou quando a
+	 *             sessao nao esta aberta.
+	 */
+	public String getPost(Sessao sessao, int post) throws RequisicaoInvalidaException {
+		return getUsuarioDaRequisicao(sessao).getPost(post);
 	}
 
 	/**
@@ -284,7 +827,26 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando a requisicao e invalida.
 	 */
 	public String getPost(String atributo, int post) throws RequisicaoInvalidaException {
-		return usuarioLogado.getPost(atributo, post);
+		return getPost(sessaoPadrao, atributo, post);
+	}
+
+	/**
+	 * Retorna um atributo do Post desejado do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param atributo
+	 *            Atributo do Post: mensagem, data ou hashtags.
+	 * @param post
+	 *            Post desejado.
+	 * @return retorna o atributo do Post do usuario.
+	 * 
+	 * @throws RequisicaoInvalidaException
+	 *             Excessao lancada quando a requisicao e invalida ou quando a
+	 *             sessao nao esta aberta.
+	 */
+	public String getPost(Sessao sessao, String atributo, int post) throws RequisicaoInvalidaException {
+		return getUsuarioDaRequisicao(sessao).getPost(atributo, post);
 	}
 
 	/**
@@ -303,8 +865,32 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando o indice do post e invalido
 	 */
 	public String getConteudoPost(int indice, int post) throws RequisicaoInvalidaException, IndiceConteudoPostInvalido {
-		return usuarioLogado.getConteudoPost(indice, post);
+		return getConteudoPost(sessaoPadrao, indice, post);
 	}
+
+	/**
+	 * Retorna o conteudo de um Post do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param indice
+	 *            Indice relacionado ao Post.
+	 * @param post
+	 *            Indice do Post.
+	 * 
+	 * @return Retorna o conteudo do Post.
+	 * 
+	 * @throws RequisicaoInvalidaException
+	 *             Excessao lancada quando a requisicao e invalida ou quando a
+	 *             sessao nao esta aberta.
+	 * @throws IndiceConteudoPostInvalido
+	 *             Excessao lancada quando o indice do post e invalido
+	 */
+	public String getConteudoPost(Sessao sessao, int indice, int post)
+			throws RequisicaoInvalidaException, IndiceConteudoPostInvalido {
+		return getUsuarioDaRequisicao(sessao).getConteudoPost(indice, post);
+	}
+
 	/**
 	 * Metodo para adicionar amigo.
 	 * 
@@ -316,12 +902,31 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando o usuario nao esta cadastrado.
 	 */
 	public void adicionaAmigo(String usuario) throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		Usuario amigoPendente = buscaUsuarioPorEmail(usuario);
-		String novaNotificacao = usuarioLogado.getNome() + " quer sua amizade.";
-		amigoPendente.adicionaSolicitacaoDeAmizade(usuarioLogado);
-		amigoPendente.adicionaNotificacao(novaNotificacao);
+		adicionaAmigo(sessaoPadrao, usuario);
+	}
+
+	/**
+	 * Metodo para o usuario de uma sessao pedir a amizade de outro.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param usuario
+	 *            Amigo que voce deseja adicionar.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 *             Excessao lancada quando o usuario nao esta cadastrado.
+	 */
+	public void adicionaAmigo(Sessao sessao, String usuario)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException {
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao), usuario)) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+			Usuario amigoPendente = buscaUsuarioPorEmail(usuario);
+			grafo.solicitaAmizade(usuarioLogado, amigoPendente);
+			amigoPendente.adicionaNotificacao(
+					new Notificacao(TipoDeNotificacao.SOLICITACAO_DE_AMIZADE, usuarioLogado.getNome()));
+			escrita.registra(TipoDeOperacao.ADICIONA_AMIGO, 0, usuarioLogado.getEmail(), amigoPendente.getEmail());
+		}
 	}
 
 	/**
@@ -333,9 +938,21 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando nenhum usuario esta logado.
 	 */
 	public int getNotificacoes() throws NenhumUsuarioLogadoException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		return usuarioLogado.getNotificacoes();
+		return getNotificacoes(sessaoPadrao);
+	}
+
+	/**
+	 * Retorna a quantidade de notificacoes do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @return Notificacoes do usuario da sessao.
+	 * 
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public int getNotificacoes(Sessao sessao) throws NenhumUsuarioLogadoException {
+		return getUsuarioDaSessao(sessao).getNotificacoes();
 	}
 
 	/**
@@ -349,9 +966,80 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando nao ha notificacoes a serem exibidas.
 	 */
 	public String getNextNotificacao() throws NenhumUsuarioLogadoException, NaoHaNotificacoesException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		return usuarioLogado.getNextNotificacao();
+		return getNextNotificacao(sessaoPadrao);
+	}
+
+	/**
+	 * Retorna a proxima notificacao do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @return Retorna a proxima notificacao do usuario da sessao.
+	 * 
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 * @throws NaoHaNotificacoesException
+	 *             Excessao lancada quando nao ha notificacoes a serem exibidas.
+	 */
+	public String getNextNotificacao(Sessao sessao) throws NenhumUsuarioLogadoException, NaoHaNotificacoesException {
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao))) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+			String notificacao = usuarioLogado.getNextNotificacao();
+			escrita.registra(TipoDeOperacao.LE_NOTIFICACOES, 1, usuarioLogado.getEmail());
+			return notificacao;
+		}
+	}
+
+	/**
+	 * Liga ou desliga o agrupamento de notificacoes de todos os usuarios. Com
+	 * ele ligado, curtidas e rejeicoes do mesmo Post ainda nao lidas viram uma
+	 * unica notificacao, como "X e mais 341 pessoas curtiram seu post de ...".
+	 * 
+	 * @param agrupa
+	 *            true para agrupar as proximas notificacoes.
+	 */
+	public void setAgrupaNotificacoes(boolean agrupa) {
+		try (Escrita escrita = iniciaEscrita()) {
+			agrupaNotificacoes = agrupa;
+			for (Usuario usuario : usuariosDoMaisPop.getUsuarios())
+				usuario.setAgrupaNotificacoes(agrupa);
+			escrita.registra(TipoDeOperacao.AGRUPA_NOTIFICACOES, agrupa ? 1 : 0);
+		}
+	}
+
+	/**
+	 * Retorna as proximas notificacoes do usuario logado de uma vez.
+	 * 
+	 * @param quantidade
+	 *            Quantidade maxima de notificacoes a retornar.
+	 * @return Notificacoes do usuario logado, da mais antiga para a mais nova.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando nenhum usuario esta logado.
+	 */
+	public List<String> getNextNotificacoes(int quantidade) throws NenhumUsuarioLogadoException {
+		return getNextNotificacoes(sessaoPadrao, quantidade);
+	}
+
+	/**
+	 * Retorna as proximas notificacoes do usuario de uma sessao de uma vez.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param quantidade
+	 *            Quantidade maxima de notificacoes a retornar.
+	 * @return Notificacoes do usuario da sessao, da mais antiga para a mais
+	 *         nova.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public List<String> getNextNotificacoes(Sessao sessao, int quantidade) throws NenhumUsuarioLogadoException {
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao))) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+			List<String> notificacoes = usuarioLogado.getNextNotificacoes(quantidade);
+			if (!notificacoes.isEmpty())
+				escrita.registra(TipoDeOperacao.LE_NOTIFICACOES, notificacoes.size(), usuarioLogado.getEmail());
+			return notificacoes;
+		}
 	}
 
 	/**
@@ -359,16 +1047,43 @@ public class Controller implements Serializable {
 	 * 
 	 * @param usuario
 	 *            Usuario que sera rejeitado.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando nenhum usuario esta logado.
 	 * @throws UsuarioNaoCadastradoException
 	 *             Excessao lancada quando o usuario nao esta cadastrado.
 	 * @throws SolicitacaoInexistenteException
 	 *             Excessao lancada quando nao existe solicitacao.
 	 */
-	public void rejeitaAmizade(String usuario) throws UsuarioNaoCadastradoException, SolicitacaoInexistenteException {
-		Usuario usuarioRejeitado = buscaUsuarioPorEmail(usuario);
-		usuarioLogado.rejeitaAmizade(usuarioRejeitado);
-		String notificacao = usuarioLogado.getNome() + " rejeitou sua amizade.";
-		usuarioRejeitado.adicionaNotificacao(notificacao);
+	public void rejeitaAmizade(String usuario)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException, SolicitacaoInexistenteException {
+		rejeitaAmizade(sessaoPadrao, usuario);
+	}
+
+	/**
+	 * Metodo em que o usuario de uma sessao rejeita uma amizade.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param usuario
+	 *            Usuario que sera rejeitado.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 *             Excessao lancada quando o usuario nao esta cadastrado.
+	 * @throws SolicitacaoInexistenteException
+	 *             Excessao lancada quando nao existe solicitacao.
+	 */
+	public void rejeitaAmizade(Sessao sessao, String usuario)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException, SolicitacaoInexistenteException {
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao), usuario)) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+			Usuario usuarioRejeitado = buscaUsuarioPorEmail(usuario);
+			grafo.rejeitaAmizade(usuarioLogado, usuarioRejeitado);
+			usuarioRejeitado.adicionaNotificacao(
+					new Notificacao(TipoDeNotificacao.AMIZADE_REJEITADA, usuarioLogado.getNome()));
+			escrita.registra(TipoDeOperacao.REJEITA_AMIZADE, 0, usuarioLogado.getEmail(),
+					usuarioRejeitado.getEmail());
+		}
 	}
 
 	/**
@@ -379,9 +1094,130 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando nenhum usuario esta logado
 	 */
 	public int getQtdAmigos() throws NenhumUsuarioLogadoException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		return usuarioLogado.getQtdAmigos();
+		return getQtdAmigos(sessaoPadrao);
+	}
+
+	/**
+	 * Retorna a quantidade de amigos do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @return Retorna a quantidade de amigos do usuario da sessao.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public int getQtdAmigos(Sessao sessao) throws NenhumUsuarioLogadoException {
+		return grafo.getQtdAmigos(getUsuarioDaSessao(sessao));
+	}
+
+	/**
+	 * Retorna a quantidade de amigos em comum entre o usuario logado e outro
+	 * usuario.
+	 * 
+	 * @param usuario
+	 *            E-mail do outro usuario.
+	 * @return Quantidade de amigos em comum.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando nenhum usuario esta logado.
+	 * @throws UsuarioNaoCadastradoException
+	 *             Excessao lancada quando o usuario nao esta cadastrado.
+	 */
+	public int getQtdAmigosEmComum(String usuario)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException {
+		return getQtdAmigosEmComum(sessaoPadrao, usuario);
+	}
+
+	/**
+	 * Retorna a quantidade de amigos em comum entre o usuario de uma sessao e
+	 * outro usuario.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param usuario
+	 *            E-mail do outro usuario.
+	 * @return Quantidade de amigos em comum.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 *             Excessao lancada quando o usuario nao esta cadastrado.
+	 */
+	public int getQtdAmigosEmComum(Sessao sessao, String usuario)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException {
+		Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+		return grafo.getQtdAmigosEmComum(usuarioLogado, buscaUsuarioPorEmail(usuario));
+	}
+
+	/**
+	 * Sugere amigos de amigos ao usuario logado.
+	 * 
+	 * @param quantidade
+	 *            Quantidade maxima de sugestoes.
+	 * @return E-mails dos usuarios sugeridos, do que tem mais amigos em comum
+	 *         com o usuario logado para o que tem menos.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando nenhum usuario esta logado.
+	 */
+	public List<String> getSugestoesDeAmizade(int quantidade) throws NenhumUsuarioLogadoException {
+		return getSugestoesDeAmizade(sessaoPadrao, quantidade);
+	}
+
+	/**
+	 * Sugere amigos de amigos ao usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param quantidade
+	 *            Quantidade maxima de sugestoes.
+	 * @return E-mails dos usuarios sugeridos, do que tem mais amigos em comum
+	 *         com o usuario da sessao para o que tem menos.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public List<String> getSugestoesDeAmizade(Sessao sessao, int quantidade) throws NenhumUsuarioLogadoException {
+		List<Usuario> sugeridos = grafo.getSugestoesDeAmizade(getUsuarioDaSessao(sessao), quantidade);
+		List<String> emails = new ArrayList<>(sugeridos.size());
+		for (Usuario sugerido : sugeridos)
+			emails.add(sugerido.getEmail());
+		return emails;
+	}
+
+	/**
+	 * Retorna uma pagina do feed do usuario logado.
+	 * 
+	 * @param inicio
+	 *            Quantos posts, a partir do mais novo, pular.
+	 * @param quantidade
+	 *            Quantidade maxima de posts da pagina.
+	 * @return Posts dos amigos do usuario logado, do mais novo para o mais
+	 *         antigo, no formato "email do autor: post".
+	 * @throws RequisicaoInvalidaException
+	 *             Excessao lancada quando o inicio ou a quantidade sao
+	 *             negativos ou quando nenhum usuario esta logado.
+	 */
+	public List<String> getFeed(int inicio, int quantidade) throws RequisicaoInvalidaException {
+		return getFeed(sessaoPadrao, inicio, quantidade);
+	}
+
+	/**
+	 * Retorna uma pagina do feed do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param inicio
+	 *            Quantos posts, a partir do mais novo, pular.
+	 * @param quantidade
+	 *            Quantidade maxima de posts da pagina.
+	 * @return Posts dos amigos do usuario da sessao, do mais novo para o mais
+	 *         antigo, no formato "email do autor: post".
+	 * @throws RequisicaoInvalidaException
+	 *             Excessao lancada quando o inicio ou a quantidade sao
+	 *             negativos ou quando a sessao nao esta aberta.
+	 */
+	public List<String> getFeed(Sessao sessao, int inicio, int quantidade) throws RequisicaoInvalidaException {
+		Usuario usuarioLogado = getUsuarioDaRequisicao(sessao);
+		if (inicio < 0 || quantidade < 0)
+			throw new RequisicaoInvalidaException(new IndiceMenorQueZeroException());
+		return feed.getFeed(usuarioLogado, inicio, quantidade);
 	}
 
 	/**
@@ -398,13 +1234,34 @@ public class Controller implements Serializable {
 	 */
 	public void aceitaAmizade(String usuario)
 			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException, SolicitacaoInexistenteException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		Usuario usuarioAceito = buscaUsuarioPorEmail(usuario);
-		usuarioLogado.aceitaAmizade(usuarioAceito);
-		usuarioAceito.adionaAmigo(usuarioLogado);
-		String notificacao = usuarioLogado.getNome() + " aceitou sua amizade.";
-		usuarioAceito.adicionaNotificacao(notificacao);
+		aceitaAmizade(sessaoPadrao, usuario);
+	}
+
+	/**
+	 * Metodo em que o usuario de uma sessao aceita uma amizade.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param usuario
+	 *            Usuario a ser aceitado.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 *             Excessao lancada quando o usuario nao esta cadastrado.
+	 * @throws SolicitacaoInexistenteException
+	 *             Excessao lancada quando nao existe solicitacao.
+	 */
+	public void aceitaAmizade(Sessao sessao, String usuario)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException, SolicitacaoInexistenteException {
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao), usuario)) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+			Usuario usuarioAceito = buscaUsuarioPorEmail(usuario);
+			grafo.aceitaAmizade(usuarioLogado, usuarioAceito);
+			feed.registraAmizade(usuarioLogado, usuarioAceito);
+			usuarioAceito
+					.adicionaNotificacao(new Notificacao(TipoDeNotificacao.AMIZADE_ACEITA, usuarioLogado.getNome()));
+			escrita.registra(TipoDeOperacao.ACEITA_AMIZADE, 0, usuarioLogado.getEmail(), usuarioAceito.getEmail());
+		}
 	}
 
 	/**
@@ -421,20 +1278,47 @@ public class Controller implements Serializable {
 	 * @throws NaoTemAmizadeException
 	 *             Excessao lancada quando nao existe amizade entre os usuarios.
 	 * @throws RequisicaoInvalidaException
-	 *             Excessao lancada quando a requisicao nao e valida.
+	 *             Excessao lancada quando a requisicao nao  valida.
 	 * @throws PostTalNaoExisteException
 	 *             Excessao lancada quando o post nao existe.
 	 */
 	public void curtirPost(String amigo, int post)
 			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException, NaoTemAmizadeException, RequisicaoInvalidaException, PostTalNaoExisteException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		Usuario usuarioAmigo = buscaUsuarioPorEmail(amigo);
-		usuarioLogado.verificaAmizade(usuarioAmigo);
-		Post postDoAmigo = usuarioAmigo.buscaPost(post);
-		usuarioLogado.curtirPost(postDoAmigo, usuarioAmigo);
-		String notificacao = usuarioLogado.getNome() + " curtiu seu post de " + postDoAmigo.getData() + ".";
-		usuarioAmigo.adicionaNotificacao(notificacao);
+		curtirPost(sessaoPadrao, amigo, post);
+	}
+
+	/**
+	 * Metodo em que o usuario de uma sessao curte o Post de um amigo.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param amigo
+	 *            Usuario que tera o post curtido.
+	 * @param post
+	 *            Post a ser curtido.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 *             Excessao lancada quando o usuario nao esta cadastrado.
+	 * @throws NaoTemAmizadeException
+	 *             Excessao lancada quando nao existe amizade entre os usuarios.
+	 * @throws RequisicaoInvalidaException
+	 *             Excessao lancada quando a requisicao nao e valida.
+	 * @throws PostTalNaoExisteException
+	 *             Excessao lancada quando o post nao existe.
+	 */
+	public void curtirPost(Sessao sessao, String amigo, int post)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException, NaoTemAmizadeException, RequisicaoInvalidaException, PostTalNaoExisteException {
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao), amigo)) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+			Usuario usuarioAmigo = buscaUsuarioPorEmail(amigo);
+			grafo.verificaAmizade(usuarioLogado, usuarioAmigo);
+			Post postDoAmigo = usuarioAmigo.buscaPost(post);
+			usuarioLogado.curtirPost(postDoAmigo, usuarioAmigo);
+			usuarioAmigo.adicionaNotificacao(
+					new Notificacao(TipoDeNotificacao.POST_CURTIDO, usuarioLogado.getNome(), postDoAmigo));
+			escrita.registra(TipoDeOperacao.CURTE_POST, post, usuarioLogado.getEmail(), usuarioAmigo.getEmail());
+		}
 	}
 
 	/**
@@ -457,14 +1341,41 @@ public class Controller implements Serializable {
 	 */
 	public void rejeitarPost(String amigo, int post)
 			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException, NaoTemAmizadeException, RequisicaoInvalidaException, PostTalNaoExisteException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		Usuario usuarioAmigo = buscaUsuarioPorEmail(amigo);
-		usuarioLogado.verificaAmizade(usuarioAmigo);
-		Post postDoAmigo = usuarioAmigo.buscaPost(post);
-		usuarioLogado.rejeitarPost(postDoAmigo, usuarioAmigo);
-		String notificacao = usuarioLogado.getNome() + " rejeitou sua amizade.";
-		usuarioAmigo.adicionaNotificacao(notificacao);
+		rejeitarPost(sessaoPadrao, amigo, post);
+	}
+
+	/**
+	 * Metodo em que o usuario de uma sessao rejeita o Post de um amigo.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param amigo
+	 *            Usuario que tera o post rejeitado.
+	 * @param post
+	 *            Post a ser rejeitado.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 *             Excessao lancada quando o usuario nao esta cadastrado.
+	 * @throws NaoTemAmizadeException
+	 *             Excessao lancada quando nao existe amizade entre os usuarios.
+	 * @throws RequisicaoInvalidaException
+	 *             Excessao lancada quando a requisicao nao e valida.
+	 * @throws PostTalNaoExisteException
+	 *             Excessao lancada quando o post nao existe.
+	 */
+	public void rejeitarPost(Sessao sessao, String amigo, int post)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException, NaoTemAmizadeException, RequisicaoInvalidaException, PostTalNaoExisteException {
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao), amigo)) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+			Usuario usuarioAmigo = buscaUsuarioPorEmail(amigo);
+			grafo.verificaAmizade(usuarioLogado, usuarioAmigo);
+			Post postDoAmigo = usuarioAmigo.buscaPost(post);
+			usuarioLogado.rejeitarPost(postDoAmigo, usuarioAmigo);
+			usuarioAmigo.adicionaNotificacao(
+					new Notificacao(TipoDeNotificacao.POST_REJEITADO, usuarioLogado.getNome(), postDoAmigo));
+			escrita.registra(TipoDeOperacao.REJEITA_POST, post, usuarioLogado.getEmail(), usuarioAmigo.getEmail());
+		}
 	}
 
 	/**
@@ -481,29 +1392,79 @@ public class Controller implements Serializable {
 	 */
 	public void removeAmigo(String usuario)
 			throws UsuarioNaoCadastradoException, NaoTemAmizadeException, NenhumUsuarioLogadoException {
-		if (!isUsuarioLogado())
+		removeAmigo(sessaoPadrao, usuario);
+	}
+
+	/**
+	 * Metodo em que o usuario de uma sessao desfaz uma amizade.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param usuario
+	 *            Usuario a ser removido.
+	 * @throws UsuarioNaoCadastradoException
+	 *             Excessao lancada quando o usuario nao esta cadastrado.
+	 * @throws NaoTemAmizadeException
+	 *             Excessao lancada quando nao existe amizade entre os usuarios.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public void removeAmigo(Sessao sessao, String usuario)
+			throws UsuarioNaoCadastradoException, NaoTemAmizadeException, NenhumUsuarioLogadoException {
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao), usuario)) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+			Usuario usuarioParaRemover = buscaUsuarioPorEmail(usuario);
+			grafo.desfazAmizade(usuarioLogado, usuarioParaRemover);
+			usuarioParaRemover.adicionaNotificacao(
+					new Notificacao(TipoDeNotificacao.AMIZADE_DESFEITA, usuarioLogado.getNome()));
+			escrita.registra(TipoDeOperacao.REMOVE_AMIGO, 0, usuarioLogado.getEmail(),
+					usuarioParaRemover.getEmail());
+		}
+	}
+
+	private Escrita iniciaEscrita(String... usuarios) {
+		return LogDeOperacoes.iniciaEscrita(travasDeUsuarios, logAberto, usuarios);
+	}
+
+	private String getEmailDaSessao(Sessao sessao) {
+		Usuario usuario = sessoes.getUsuario(sessao);
+		return usuario == null ? null : usuario.getEmail();
+	}
+
+	private Usuario getUsuarioDaSessao(Sessao sessao) throws NenhumUsuarioLogadoException {
+		Usuario usuario = sessoes.getUsuario(sessao);
+		if (usuario == null)
 			throw new NenhumUsuarioLogadoException();
-		Usuario usuarioParaRemover = buscaUsuarioPorEmail(usuario);
-		usuarioLogado.verificaAmizade(usuarioParaRemover);
-		usuarioLogado.removeAmigo(usuarioParaRemover);
-		usuarioParaRemover.removeAmigo(usuarioLogado);
-		String notificacao = usuarioLogado.getNome() + " removeu a sua amizade.";
-		usuarioParaRemover.adicionaNotificacao(notificacao);
+		return usuario;
 	}
 
-	private void isUsuarioJaCadastrado(String email) throws UsuarioJaCadastradoException {
-		for (Usuario usuario : usuariosDoMaisPop) {
-			if (usuario.getEmail().equals(email))
-				throw new UsuarioJaCadastradoException();
+	private Usuario getUsuarioDaRequisicao(Sessao sessao) throws RequisicaoInvalidaException {
+		try {
+			return getUsuarioDaSessao(sessao);
+		} catch (NenhumUsuarioLogadoException e) {
+			throw new RequisicaoInvalidaException(e);
 		}
 	}
 
-	private Usuario buscaUsuarioPorEmail(String email) throws UsuarioNaoCadastradoException {
-		for (Usuario usuario : usuariosDoMaisPop) {
-			if (usuario.getEmail().equals(email))
-				return usuario;
+	private boolean isAtributoEmail(String atributo) {
+		return atributo.equalsIgnoreCase("E-MAIL");
+	}
+
+	private boolean isEmailDeOutroUsuario(String email, Usuario usuarioLogado) {
+		try {
+			return buscaUsuarioPorEmail(email) != usuarioLogado;
+		} catch (UsuarioNaoCadastradoException e) {
+			return false;
 		}
-		throw new UsuarioNaoCadastradoException(email);
+	}
+
+	private void isUsuarioJaCadastrado(String email) throws UsuarioJaCadastradoException {
+		if (email != null && usuariosDoMaisPop.contem(email))
+			throw new UsuarioJaCadastradoException();
+	}
+
+	private Usuario buscaUsuarioPorEmail(String email) throws UsuarioNaoCadastradoException {
+		return usuariosDoMaisPop.busca(email);
 	}
 
 	/**
@@ -511,9 +1472,29 @@ public class Controller implements Serializable {
 	 * 
 	 * @param pops
 	 *            Numero de pops a ser adicionado.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando nenhum usuario esta logado.
 	 */
-	public void adicionaPops(int pops) {
-		usuarioLogado.adicionaPops(pops);
+	public void adicionaPops(int pops) throws NenhumUsuarioLogadoException {
+		adicionaPops(sessaoPadrao, pops);
+	}
+
+	/**
+	 * Metodo para adicionar Pops ao usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param pops
+	 *            Numero de pops a ser adicionado.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public void adicionaPops(Sessao sessao, int pops) throws NenhumUsuarioLogadoException {
+		try (Escrita escrita = iniciaEscrita(getEmailDaSessao(sessao))) {
+			Usuario usuarioLogado = getUsuarioDaSessao(sessao);
+			usuarioLogado.adicionaPops(pops);
+			escrita.registra(TipoDeOperacao.ADICIONA_POPS, pops, usuarioLogado.getEmail());
+		}
 	}
 
 	/**
@@ -524,9 +1505,20 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando nenhum usuario nao esta logado.
 	 */
 	public String getPopularidade() throws NenhumUsuarioLogadoException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		return usuarioLogado.getPopularidade();
+		return getPopularidade(sessaoPadrao);
+	}
+
+	/**
+	 * Retorna a popularidade do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @return retorna a popularidade do usuario da sessao.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public String getPopularidade(Sessao sessao) throws NenhumUsuarioLogadoException {
+		return getUsuarioDaSessao(sessao).getPopularidade();
 	}
 
 	/**
@@ -544,9 +1536,28 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando o post nao existe.
 	 */
 	public int getPopsPost(int indiceDoPost) throws NenhumUsuarioLogadoException, RequisicaoInvalidaException, PostTalNaoExisteException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		Post post = usuarioLogado.buscaPost(indiceDoPost);
+		return getPopsPost(sessaoPadrao, indiceDoPost);
+	}
+
+	/**
+	 * Retorna o pops de um post do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param indiceDoPost
+	 *            Indice do post.
+	 * @return Retorna a popularidade do post.
+	 * 
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 * @throws RequisicaoInvalidaException
+	 *             Excessao lancada quando a requisicao e invalida.
+	 * @throws PostTalNaoExisteException
+	 *             Excessao lancada quando o post nao existe.
+	 */
+	public int getPopsPost(Sessao sessao, int indiceDoPost)
+			throws NenhumUsuarioLogadoException, RequisicaoInvalidaException, PostTalNaoExisteException {
+		Post post = getUsuarioDaSessao(sessao).buscaPost(indiceDoPost);
 		return post.getPopularidade();
 	}
 
@@ -565,9 +1576,28 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando a requisicao  invalida.
 	 */
 	public int qtdCurtidasDePost(int indiceDoPost) throws NenhumUsuarioLogadoException, PostTalNaoExisteException, RequisicaoInvalidaException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		Post post = usuarioLogado.buscaPost(indiceDoPost);
+		return qtdCurtidasDePost(sessaoPadrao, indiceDoPost);
+	}
+
+	/**
+	 * Retorna a quantidade de curtidas de um post do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param indiceDoPost
+	 *            Indice do post.
+	 * @return Retorna a quantidade de curtidas daquele post.
+	 * 
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 * @throws PostTalNaoExisteException
+	 *             Excessao lancada quando o post nao existe.
+	 * @throws RequisicaoInvalidaException
+	 *             Excessao lancada quando a requisicao e invalida.
+	 */
+	public int qtdCurtidasDePost(Sessao sessao, int indiceDoPost)
+			throws NenhumUsuarioLogadoException, PostTalNaoExisteException, RequisicaoInvalidaException {
+		Post post = getUsuarioDaSessao(sessao).buscaPost(indiceDoPost);
 		return post.getCurtidas();
 	}
 
@@ -586,9 +1616,28 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando o post nao existe.
 	 */
 	public int qtdRejeicoesDePost(int indiceDePost) throws NenhumUsuarioLogadoException, RequisicaoInvalidaException, PostTalNaoExisteException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		Post post = usuarioLogado.buscaPost(indiceDePost);
+		return qtdRejeicoesDePost(sessaoPadrao, indiceDePost);
+	}
+
+	/**
+	 * Retorna a quantidade de rejeicoes de um post do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @param indiceDePost
+	 *            Indicice do post.
+	 * @return Retorna a quantidade de rejeicoes daquele post.
+	 * 
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 * @throws RequisicaoInvalidaException
+	 *             Excessao lancada quando a requisicao e invalida.
+	 * @throws PostTalNaoExisteException
+	 *             Excessao lancada quando o post nao existe.
+	 */
+	public int qtdRejeicoesDePost(Sessao sessao, int indiceDePost)
+			throws NenhumUsuarioLogadoException, RequisicaoInvalidaException, PostTalNaoExisteException {
+		Post post = getUsuarioDaSessao(sessao).buscaPost(indiceDePost);
 		return post.getRejeicoes();
 	}
 
@@ -609,7 +1658,7 @@ public class Controller implements Serializable {
 			throw new ConsultaDePopsException(new UsuarioAindaLogadoException());
 		Usuario usuarioCorrente = buscaUsuarioPorEmail(usuario);
 		return usuarioCorrente.getPops();
-		
+
 	}
 
 	/**
@@ -620,9 +1669,20 @@ public class Controller implements Serializable {
 	 *             Excessao lancada quando nenhum usuario esta logado.
 	 */
 	public int getPopsUsuario() throws NenhumUsuarioLogadoException {
-		if (!isUsuarioLogado())
-			throw new NenhumUsuarioLogadoException();
-		return usuarioLogado.getPops();
+		return getPopsUsuario(sessaoPadrao);
+	}
+
+	/**
+	 * Retorna o pops do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao do usuario logado.
+	 * @return pops do usuario da sessao.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public int getPopsUsuario(Sessao sessao) throws NenhumUsuarioLogadoException {
+		return getUsuarioDaSessao(sessao).getPops();
 	}
 
 	/**
@@ -631,7 +1691,7 @@ public class Controller implements Serializable {
 	 * @return Retorna o ranking atualizado.
 	 */
 	public String atualizaRanking() {
-		return ranking.retornaRanking(usuariosDoMaisPop);
+		return ranking.retornaRanking();
 	}
 
 	/**
@@ -640,10 +1700,17 @@ public class Controller implements Serializable {
 	 * @return Retorna o Trending Topics atualizado.
 	 */
 	public String atualizaTrendingTopics() {
-		List<String> hashtagsDoMaisPop = new ArrayList<>();
-		for (Usuario usuario : usuariosDoMaisPop) {
-			hashtagsDoMaisPop.addAll(usuario.getHashtags());
-		}
-		return ranking.atualizaTrendingTopics(hashtagsDoMaisPop);
+		return trendingTopics.retornaTrendingTopics();
+	}
+
+	/**
+	 * Metodo para atualizar o Trending Topics de uma janela de tempo.
+	 * 
+	 * @param janela
+	 *            Janela de tempo: JANELA_DE_UMA_HORA ou JANELA_DE_UM_DIA.
+	 * @return Retorna o Trending Topics dos posts feitos dentro da janela.
+	 */
+	public String atualizaTrendingTopics(Duration janela) {
+		return trendingTopics.retornaTrendingTopics(janela);
 	}
 }
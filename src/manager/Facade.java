@@ -1,5 +1,16 @@
 package manager;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import core.ArmazemDePosts;
+import core.trendingTopics.ContadorExato;
 import exceptions.AtualizaPerfilNaoLogado;
 import exceptions.AtualizacaoDePerfilException;
 import exceptions.CadastroDeUsuarioException;
@@ -7,6 +18,7 @@ import exceptions.ConsultaDePopsException;
 import exceptions.CriaPostException;
 import exceptions.FechaSistemaException;
 import exceptions.IndiceConteudoPostInvalido;
+import exceptions.IniciaSistemaException;
 import exceptions.LoginException;
 import exceptions.LogoutException;
 import exceptions.NaoHaNotificacoesException;
@@ -18,21 +30,73 @@ import exceptions.SenhaProtegidaException;
 import exceptions.SolicitacaoInexistenteException;
 import exceptions.UsuarioAindaLogadoException;
 import exceptions.UsuarioNaoCadastradoException;
+import manager.LogDeOperacoes.Sincronizacao;
 
 /**
  * Facade do +Pop
  * 
  * @author matteus
- *
+ * 
  */
 public class Facade {
-	private Controller controller;
+	public static final String PROPRIEDADE_DA_SINCRONIZACAO = "maispop.sincronizacao";
+	public static final String EXTENSAO_DO_LOG = ".log";
+	public static final String PROPRIEDADE_DOS_POSTS = "maispop.posts";
+	private volatile Controller controller;
+	private String diretorioDosPosts;
+	private Path arquivoDeDados;
+	private Path arquivoDoLog;
+	private Sincronizacao sincronizacao;
 
 	/**
-	 * Construtor de Facade.
+	 * Construtor de Facade sem arquivo de dados: o +Pop fica so em memoria, e
+	 * iniciaSistema e fechaSistema nao carregam nem salvam nada.
 	 */
 	public Facade() {
-		this.controller = new Controller();
+		this.diretorioDosPosts = System.getProperty(PROPRIEDADE_DOS_POSTS);
+		this.controller = criaController(diretorioDosPosts);
+	}
+
+	/**
+	 * Construtor de Facade. O log de operacoes e sincronizado como indicado
+	 * na propriedade de sistema maispop.sincronizacao (POR_OPERACAO, EM_LOTE
+	 * ou ASSINCRONA), ou a cada operacao.
+	 * 
+	 * @param arquivoDeDados
+	 *            Arquivo onde iniciaSistema e fechaSistema carregam e salvam os
+	 *            dados do +Pop.
+	 */
+	public Facade(String arquivoDeDados) {
+		this(arquivoDeDados, Sincronizacao
+				.valueOf(System.getProperty(PROPRIEDADE_DA_SINCRONIZACAO, Sincronizacao.POR_OPERACAO.name())));
+	}
+
+	/**
+	 * Construtor de Facade. O log de operacoes fica ao lado do arquivo de
+	 * dados, com a extensao .log acrescentada ao nome. Se a propriedade de
+	 * sistema maispop.posts indicar um diretorio, o texto dos posts fica em
+	 * um ArmazemDePosts nesse diretorio, fora do heap.
+	 * 
+	 * @param arquivoDeDados
+	 *            Arquivo onde iniciaSistema e fechaSistema carregam e salvam os
+	 *            dados do +Pop.
+	 * @param sincronizacao
+	 *            Momento em que as operacoes registradas no log vao para o
+	 *            disco.
+	 * @throws IllegalArgumentException
+	 *             Excessao lancada quando o arquivo de dados e nulo.
+	 * @throws UncheckedIOException
+	 *             Excessao lancada quando o diretorio de maispop.posts nao
+	 *             pode ser criado ou limpo.
+	 */
+	public Facade(String arquivoDeDados, Sincronizacao sincronizacao) {
+		if (arquivoDeDados == null)
+			throw new IllegalArgumentException("O arquivo de dados deve ser informado.");
+		this.diretorioDosPosts = System.getProperty(PROPRIEDADE_DOS_POSTS);
+		this.controller = criaController(diretorioDosPosts);
+		this.arquivoDeDados = Paths.get(arquivoDeDados);
+		this.arquivoDoLog = this.arquivoDeDados.resolveSibling(this.arquivoDeDados.getFileName() + EXTENSAO_DO_LOG);
+		this.sincronizacao = sincronizacao;
 	}
 
 	/**
@@ -81,6 +145,22 @@ public class Facade {
 		return controller.cadastraUsuario(nome, email, senha, dataNasc, null);
 	}
 
+	/**
+	 * Cadastra em lote os usuarios de um arquivo CSV (.csv) ou JSON lines
+	 * (.jsonl), em UTF-8, com um usuario por linha.
+	 * 
+	 * @param arquivo
+	 *            Caminho do arquivo a ser importado.
+	 * @return Resumo da importacao, com o erro de cada linha que falhou.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser lido.
+	 */
+	public String importaUsuarios(String arquivo) throws IOException {
+		try (Reader entrada = Files.newBufferedReader(Paths.get(arquivo), StandardCharsets.UTF_8)) {
+			return controller.importaUsuarios(entrada, ImportadorDeUsuarios.Formato.doArquivo(arquivo)).toString();
+		}
+	}
+
 	/**
 	 * Metodo que loga um usuario no sistema.
 	 * 
@@ -175,8 +255,10 @@ public class Facade {
 	 * @throws SenhaProtegidaException
 	 *             Excessao lancada se o atributo for senha, pois a senha e
 	 *             protegida.
+	 * @throws NenhumUsuarioLogadoException
+	 *             Excessao lancada quando nenhum usuario esta logado.
 	 */
-	public String getInfoUsuario(String atributo) throws SenhaProtegidaException {
+	public String getInfoUsuario(String atributo) throws SenhaProtegidaException, NenhumUsuarioLogadoException {
 		return controller.getInfoUsuario(atributo);
 	}
 
@@ -194,21 +276,54 @@ public class Facade {
 	}
 
 	/**
-	 * Inicia o +Pop.
-	 */
-	public void iniciaSistema() {
+	 * Inicia o +Pop, carregando os dados salvos e reaplicando as operacoes
+	 * registradas no log depois deles, o que recupera o estado mesmo depois de
+	 * uma queda. Se os dados ja foram carregados por um iniciaSistema
+	 * anterior, eles ja estao em memoria e nada e carregado. Em seguida os dados sao compactados em um novo
+	 * arquivo de dados e as proximas operacoes passam a ser registradas no
+	 * log. Nao faz nada se o +Pop ja foi iniciado.
+	 * 
+	 * @throws IniciaSistemaException
+	 *             Excessao lancada quando o arquivo de dados ou o log nao
+	 *             podem ser lidos ou estao corrompidos, ou quando ha usuarios
+	 *             cadastrados antes do primeiro iniciaSistema e o arquivo de
+	 *             dados ja existe.
+	 */
+	public void iniciaSistema() throws IniciaSistemaException {
+		if (arquivoDeDados == null || controller.isLogAberto())
+			return;
+		try {
+			if (!controller.isEstadoRecuperado())
+				controller.recuperaEstado(arquivoDeDados, arquivoDoLog);
+			controller.abreLog(arquivoDeDados, arquivoDoLog, sincronizacao);
+		} catch (IOException | IllegalStateException e) {
+			throw new IniciaSistemaException(e);
+		}
 	}
 
 	/**
-	 * Fecha o +Pop.
+	 * Fecha o +Pop, parando de registrar as operacoes no log e compactando os
+	 * dados em um novo arquivo de dados. Se o texto dos posts fica em um
+	 * ArmazemDePosts, o armazem e fechado e o proximo iniciaSistema carrega
+	 * os dados de novo, em um armazem novo.
 	 * 
 	 * @throws FechaSistemaException
 	 *             Excessao lancada quando ainda ha um usuario logado no
-	 *             +Pop.
+	 *             +Pop ou quando o arquivo de dados ou o log nao podem ser
+	 *             escritos.
 	 */
 	public void fechaSistema() throws FechaSistemaException {
-		if (controller.isUsuarioLogado())
+		if (controller.temSessoesAbertas())
 			throw new FechaSistemaException(new UsuarioAindaLogadoException());
+		if (arquivoDeDados == null)
+			return;
+		try {
+			controller.fechaLog(arquivoDeDados, arquivoDoLog);
+			if (controller.fechaArmazemDePosts())
+				controller = criaController(diretorioDosPosts);
+		} catch (IOException | UncheckedIOException e) {
+			throw new FechaSistemaException(e);
+		}
 	}
 	
 	/**
@@ -307,18 +422,45 @@ public class Facade {
 	public String getNextNotificacao() throws NenhumUsuarioLogadoException, NaoHaNotificacoesException {
 		return controller.getNextNotificacao();
 	}
+
+	/**
+	 * Liga ou desliga o agrupamento de notificacoes. Com ele ligado, curtidas
+	 * e rejeicoes do mesmo post ainda nao lidas viram uma so notificacao.
+	 * 
+	 * @param agrupa
+	 * 			true para agrupar as proximas notificacoes.
+	 */
+	public void setAgrupaNotificacoes(boolean agrupa) {
+		controller.setAgrupaNotificacoes(agrupa);
+	}
+
+	/**
+	 * Retorna as proximas notificacoes de uma vez.
+	 * 
+	 * @param quantidade
+	 * 			Quantidade maxima de notificacoes a retornar.
+	 * @return Retorna as notificacoes, da mais antiga para a mais nova.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando nenhum usuario esta logado.
+	 */
+	public List<String> getNextNotificacoes(int quantidade) throws NenhumUsuarioLogadoException {
+		return controller.getNextNotificacoes(quantidade);
+	}
 	
 	/**
 	 * Metodo que rejeita a amizade.
 	 * 
 	 * @param usuario
 	 * 			String do usuario que sera rejeitada a amizade.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando nenhum usuario esta logado.
 	 * @throws UsuarioNaoCadastradoException
 	 * 			Excessao lancada quando o usuario nao esta cadastrado.
 	 * @throws SolicitacaoInexistenteException
 	 * 			Excessao lancada quando o usuario nao solicitou amizade.
 	 */
-	public void rejeitaAmizade(String usuario) throws UsuarioNaoCadastradoException, SolicitacaoInexistenteException {
+	public void rejeitaAmizade(String usuario)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException, SolicitacaoInexistenteException {
 		controller.rejeitaAmizade(usuario);
 	}
 	
@@ -332,6 +474,51 @@ public class Facade {
 	public int getQtdAmigos() throws NenhumUsuarioLogadoException {
 		return controller.getQtdAmigos();
 	}
+
+	/**
+	 * Retorna a quantidade de amigos em comum com outro usuario.
+	 * 
+	 * @param usuario
+	 * 			E-mail do outro usuario.
+	 * @return Retorna a quantidade de amigos em comum com o usuario logado.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando nenhum usuario esta logado.
+	 * @throws UsuarioNaoCadastradoException
+	 * 			Excessao lancada quando o usuario nao esta cadastrado.
+	 */
+	public int getQtdAmigosEmComum(String usuario) throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException {
+		return controller.getQtdAmigosEmComum(usuario);
+	}
+
+	/**
+	 * Sugere amigos de amigos ao usuario logado.
+	 * 
+	 * @param quantidade
+	 * 			Quantidade maxima de sugestoes.
+	 * @return Retorna os e-mails dos usuarios sugeridos, do que tem mais
+	 *         amigos em comum para o que tem menos.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando nenhum usuario esta logado.
+	 */
+	public List<String> getSugestoesDeAmizade(int quantidade) throws NenhumUsuarioLogadoException {
+		return controller.getSugestoesDeAmizade(quantidade);
+	}
+
+	/**
+	 * Retorna uma pagina do feed do usuario logado.
+	 * 
+	 * @param inicio
+	 * 			Quantos posts, a partir do mais novo, pular.
+	 * @param quantidade
+	 * 			Quantidade maxima de posts da pagina.
+	 * @return Retorna os posts dos amigos, do mais novo para o mais antigo.
+	 * @throws RequisicaoInvalidaException
+	 * 			Excessao lancada quando o inicio ou a quantidade sao negativos
+	 * 			ou quando nenhum usuario esta logado.
+	 */
+	public List<String> getFeed(int inicio, int quantidade) throws RequisicaoInvalidaException {
+		return controller.getFeed(inicio, quantidade);
+	}
 	
 	/**
 	 * Metodo que aceita a amizade.
@@ -418,8 +605,10 @@ public class Facade {
 	 * 
 	 * @param pops
 	 * 			Inteiro que indica a quantidade de pops que sera adicionada.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando nenhum usuario esta logado.
 	 */
-	public void adicionaPops(int pops) {
+	public void adicionaPops(int pops) throws NenhumUsuarioLogadoException {
 		controller.adicionaPops(pops);
 	}
 	
@@ -531,4 +720,48 @@ public class Facade {
 	public String atualizaTrendingTopics() {
 		return controller.atualizaTrendingTopics();
 	}
+
+	/**
+	 * Metodo que retorna o Trending Topics dos posts da ultima hora.
+	 * 
+	 * @return Retorna o Trending Topics da ultima hora.
+	 */
+	public String atualizaTrendingTopicsDaUltimaHora() {
+		return controller.atualizaTrendingTopics(Controller.JANELA_DE_UMA_HORA);
+	}
+
+	/**
+	 * Metodo que retorna o Trending Topics dos posts do ultimo dia.
+	 * 
+	 * @return Retorna o Trending Topics do ultimo dia.
+	 */
+	public String atualizaTrendingTopicsDoUltimoDia() {
+		return controller.atualizaTrendingTopics(Controller.JANELA_DE_UM_DIA);
+	}
+
+
+	/**
+	 * Retorna a fachada com sessoes do +Pop, que compartilha o estado desta
+	 * Facade mas permite varios usuarios logados ao mesmo tempo. Ela continua
+	 * valida depois que fechaSistema troca o Controller.
+	 * 
+	 * @return Retorna a FacadeDeSessoes ligada a esta Facade.
+	 */
+	public FacadeDeSessoes getFacadeDeSessoes() {
+		return new FacadeDeSessoes(this);
+	}
+
+	Controller getController() {
+		return controller;
+	}
+
+	private static Controller criaController(String diretorioDosPosts) {
+		if (diretorioDosPosts == null)
+			return new Controller();
+		try {
+			return new Controller(new ContadorExato(), ArmazemDePosts.abre(Paths.get(diretorioDosPosts)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
 }
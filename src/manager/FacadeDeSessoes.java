@@ -0,0 +1,530 @@
+package manager;
+
+import java.util.List;
+
+import exceptions.AtualizaPerfilNaoLogado;
+import exceptions.AtualizacaoDePerfilException;
+import exceptions.CriaPostException;
+import exceptions.IndiceConteudoPostInvalido;
+import exceptions.LoginException;
+import exceptions.LogoutException;
+import exceptions.NaoHaNotificacoesException;
+import exceptions.NaoTemAmizadeException;
+import exceptions.NenhumUsuarioLogadoException;
+import exceptions.PostTalNaoExisteException;
+import exceptions.RequisicaoInvalidaException;
+import exceptions.SenhaProtegidaException;
+import exceptions.SolicitacaoInexistenteException;
+import exceptions.UsuarioNaoCadastradoException;
+
+/**
+ * Facade do +Pop com suporte a sessoes. <br>
+ * Cada chamada recebe a Sessao devolvida por abreSessao, de modo que varios
+ * usuarios podem estar logados ao mesmo tempo. Os metodos ficam separados da
+ * Facade porque os testes de aceitacao localizam os metodos pelo nome e pela
+ * quantidade de parametros.
+ * 
+ * @author matteus
+ * 
+ */
+public class FacadeDeSessoes {
+	private final Facade facade;
+
+	/**
+	 * Construtor de FacadeDeSessoes. Cada chamada usa o Controller atual da
+	 * Facade, que e trocado quando fechaSistema fecha o ArmazemDePosts.
+	 * 
+	 * @param facade
+	 * 			Facade cujo estado e compartilhado.
+	 */
+	FacadeDeSessoes(Facade facade) {
+		this.facade = facade;
+	}
+
+	/**
+	 * Abre uma sessao para um usuario, sem impedir que outros usuarios estejam
+	 * logados.
+	 * 
+	 * @param email
+	 * 			Email do usuario que esta tentando fazer login.
+	 * @param senha
+	 * 			Senha do usuario que esta tentando fazer login.
+	 * @return Retorna a sessao a ser usada nas proximas chamadas.
+	 * @throws LoginException
+	 * 			Excessao lancada quando o usuario nao esta cadastrado ou a senha
+	 * 			e invalida.
+	 */
+	public Sessao abreSessao(String email, String senha) throws LoginException {
+		return facade.getController().abreSessao(email, senha);
+	}
+
+	/**
+	 * Fecha uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao a ser fechada.
+	 * @throws LogoutException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public void fechaSessao(Sessao sessao) throws LogoutException {
+		facade.getController().fechaSessao(sessao);
+	}
+
+	/**
+	 * Atualiza o perfil do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param atributo
+	 * 			Atributo de Usuario que vai ser atualizado.
+	 * @param valor
+	 * 			Novo valor do atributo.
+	 * @throws AtualizacaoDePerfilException
+	 * 			Excessao lancada quando o valor nao e valido.
+	 * @throws AtualizaPerfilNaoLogado
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public void atualizaPerfil(Sessao sessao, String atributo, String valor)
+			throws AtualizacaoDePerfilException, AtualizaPerfilNaoLogado {
+		facade.getController().atualizaPerfil(sessao, atributo, valor);
+	}
+
+	/**
+	 * Atualiza a senha do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param atributo
+	 * 			Atributo a ser atualizado, no caso a senha.
+	 * @param valor
+	 * 			Nova senha do usuario.
+	 * @param velhaSenha
+	 * 			Senha antiga.
+	 * @throws AtualizacaoDePerfilException
+	 * 			Excessao lancada se a sessao nao estiver aberta ou se a senha
+	 * 			estiver incorreta.
+	 */
+	public void atualizaPerfil(Sessao sessao, String atributo, String valor, String velhaSenha)
+			throws AtualizacaoDePerfilException {
+		facade.getController().atualizaPerfil(sessao, atributo, valor, velhaSenha);
+	}
+
+	/**
+	 * Retorna uma informacao do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param atributo
+	 * 			String que indica qual o atributo deve ser retornado.
+	 * @return Retorna o atributo do usuario da sessao.
+	 * @throws SenhaProtegidaException
+	 * 			Excessao lancada se o atributo for senha.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public String getInfoUsuario(Sessao sessao, String atributo)
+			throws SenhaProtegidaException, NenhumUsuarioLogadoException {
+		return facade.getController().getInfoUsuario(sessao, atributo);
+	}
+
+	/**
+	 * Cria um Post no mural do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param mensagem
+	 * 			String que indica qual mensagem sera criada.
+	 * @param data
+	 * 			String que indica qual a data sera criada.
+	 * @throws CriaPostException
+	 * 			Excessao lancada quando o post nao for criado.
+	 */
+	public void criaPost(Sessao sessao, String mensagem, String data) throws CriaPostException {
+		facade.getController().criaPost(sessao, mensagem, data);
+	}
+
+	/**
+	 * Retorna um Post do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param post
+	 * 			Inteiro que indica o indice do post.
+	 * @return Retorna o Post atraves do metodo.
+	 * @throws RequisicaoInvalidaException
+	 * 			Excessao lancada quando a requisicao eh invalida.
+	 */
+	public String getPost(Sessao sessao, int post) throws RequisicaoInvalidaException {
+		return facade.getController().getPost(sessao, post);
+	}
+
+	/**
+	 * Retorna um atributo de um Post do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param atributo
+	 * 			String que indica o atributo.
+	 * @param post
+	 * 			Inteiro que indica o indice do Post.
+	 * @return Retorna o atributo do Post.
+	 * @throws RequisicaoInvalidaException
+	 * 			Excessao lancada quando a requisicao eh invalida.
+	 */
+	public String getPost(Sessao sessao, String atributo, int post) throws RequisicaoInvalidaException {
+		return facade.getController().getPost(sessao, atributo, post);
+	}
+
+	/**
+	 * Retorna o conteudo de um post do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param indice
+	 * 			Inteiro que indica o conteudo.
+	 * @param post
+	 * 			Inteiro para indicar o indice do post.
+	 * @return Retorna o conteudo do post.
+	 * @throws RequisicaoInvalidaException
+	 * 			Excessao lancada quando a requisicao eh invalida
+	 * @throws IndiceConteudoPostInvalido
+	 * 			Excessao lancada quando o indice do post eh invalido
+	 */
+	public String getConteudoPost(Sessao sessao, int indice, int post)
+			throws RequisicaoInvalidaException, IndiceConteudoPostInvalido {
+		return facade.getController().getConteudoPost(sessao, indice, post);
+	}
+
+	/**
+	 * Pede a amizade de um usuario, pelo usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param usuario
+	 * 			String do Usuario que sera adicionado.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 * 			Excessao lancada quando o usuario nao esta cadastrado.
+	 */
+	public void adicionaAmigo(Sessao sessao, String usuario)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException {
+		facade.getController().adicionaAmigo(sessao, usuario);
+	}
+
+	/**
+	 * Retorna a quantidade de notificacoes do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @return Retorna a quantidade de notificacoes.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public int getNotificacoes(Sessao sessao) throws NenhumUsuarioLogadoException {
+		return facade.getController().getNotificacoes(sessao);
+	}
+
+	/**
+	 * Retorna a proxima notificacao do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @return Retorna a proxima notificacao.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 * @throws NaoHaNotificacoesException
+	 * 			Excessao lancada quando nao existe notificacoes.
+	 */
+	public String getNextNotificacao(Sessao sessao) throws NenhumUsuarioLogadoException, NaoHaNotificacoesException {
+		return facade.getController().getNextNotificacao(sessao);
+	}
+
+	/**
+	 * Retorna as proximas notificacoes do usuario de uma sessao de uma vez.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param quantidade
+	 * 			Quantidade maxima de notificacoes a retornar.
+	 * @return Retorna as notificacoes, da mais antiga para a mais nova.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public List<String> getNextNotificacoes(Sessao sessao, int quantidade) throws NenhumUsuarioLogadoException {
+		return facade.getController().getNextNotificacoes(sessao, quantidade);
+	}
+
+	/**
+	 * Rejeita uma amizade, pelo usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param usuario
+	 * 			String do usuario que tera a amizade rejeitada.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 * 			Excessao lancada quando o usuario nao esta cadastrado.
+	 * @throws SolicitacaoInexistenteException
+	 * 			Excessao lancada quando o usuario nao solicitou amizade.
+	 */
+	public void rejeitaAmizade(Sessao sessao, String usuario)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException, SolicitacaoInexistenteException {
+		facade.getController().rejeitaAmizade(sessao, usuario);
+	}
+
+	/**
+	 * Retorna a quantidade de amigos do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @return Retorna a quantidade de amigos.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public int getQtdAmigos(Sessao sessao) throws NenhumUsuarioLogadoException {
+		return facade.getController().getQtdAmigos(sessao);
+	}
+
+	/**
+	 * Retorna a quantidade de amigos em comum entre o usuario de uma sessao e
+	 * outro usuario.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param usuario
+	 * 			E-mail do outro usuario.
+	 * @return Retorna a quantidade de amigos em comum.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 * 			Excessao lancada quando o usuario nao esta cadastrado.
+	 */
+	public int getQtdAmigosEmComum(Sessao sessao, String usuario)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException {
+		return facade.getController().getQtdAmigosEmComum(sessao, usuario);
+	}
+
+	/**
+	 * Sugere amigos de amigos ao usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param quantidade
+	 * 			Quantidade maxima de sugestoes.
+	 * @return Retorna os e-mails dos usuarios sugeridos, do que tem mais
+	 *         amigos em comum para o que tem menos.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public List<String> getSugestoesDeAmizade(Sessao sessao, int quantidade) throws NenhumUsuarioLogadoException {
+		return facade.getController().getSugestoesDeAmizade(sessao, quantidade);
+	}
+
+	/**
+	 * Retorna uma pagina do feed do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param inicio
+	 * 			Quantos posts, a partir do mais novo, pular.
+	 * @param quantidade
+	 * 			Quantidade maxima de posts da pagina.
+	 * @return Retorna os posts dos amigos, do mais novo para o mais antigo.
+	 * @throws RequisicaoInvalidaException
+	 * 			Excessao lancada quando o inicio ou a quantidade sao negativos
+	 * 			ou quando a sessao nao esta aberta.
+	 */
+	public List<String> getFeed(Sessao sessao, int inicio, int quantidade) throws RequisicaoInvalidaException {
+		return facade.getController().getFeed(sessao, inicio, quantidade);
+	}
+
+	/**
+	 * Aceita uma amizade, pelo usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param usuario
+	 * 			String do Usuario que sera aceito.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 * 			Excessao lancada quando o usuario nao esta cadastrado.
+	 * @throws SolicitacaoInexistenteException
+	 * 			Excessao lancada quando o usuario nao solicitou amizade.
+	 */
+	public void aceitaAmizade(Sessao sessao, String usuario)
+			throws NenhumUsuarioLogadoException, UsuarioNaoCadastradoException, SolicitacaoInexistenteException {
+		facade.getController().aceitaAmizade(sessao, usuario);
+	}
+
+	/**
+	 * Curte o post de um amigo, pelo usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param amigo
+	 * 			String do amigo que tera o Post curtido.
+	 * @param post
+	 * 			Inteiro que indica o indice do Post.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 * 			Excessao lancada quando o usuario nao esta cadastrado.
+	 * @throws NaoTemAmizadeException
+	 * 			Excessao lancada quando o usuario nao tem esta amizade.
+	 * @throws RequisicaoInvalidaException
+	 * 			Excessao lancada quando a requisicao eh invalida.
+	 * @throws PostTalNaoExisteException
+	 * 			Excessao lancada quando o post nao existe.
+	 */
+	public void curtirPost(Sessao sessao, String amigo, int post) throws NenhumUsuarioLogadoException,
+			UsuarioNaoCadastradoException, NaoTemAmizadeException, RequisicaoInvalidaException, PostTalNaoExisteException {
+		facade.getController().curtirPost(sessao, amigo, post);
+	}
+
+	/**
+	 * Rejeita o post de um amigo, pelo usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param amigo
+	 * 			String do amigo que tera o post rejeitado.
+	 * @param post
+	 * 			Inteiro que indica qual post sera rejeitado.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 * @throws UsuarioNaoCadastradoException
+	 * 			Excessao lancada quando o usuario nao esta cadastrado.
+	 * @throws NaoTemAmizadeException
+	 * 			Excessao lancada quando o usuario nao tem esta amizade.
+	 * @throws RequisicaoInvalidaException
+	 * 			Excessao lancada quando a requisicao eh invalida
+	 * @throws PostTalNaoExisteException
+	 * 			Excessao lancada quando o post nao existe.
+	 */
+	public void rejeitarPost(Sessao sessao, String amigo, int post) throws NenhumUsuarioLogadoException,
+			UsuarioNaoCadastradoException, NaoTemAmizadeException, RequisicaoInvalidaException, PostTalNaoExisteException {
+		facade.getController().rejeitarPost(sessao, amigo, post);
+	}
+
+	/**
+	 * Desfaz uma amizade, pelo usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param usuario
+	 * 			String do usuario que sera removido.
+	 * @throws UsuarioNaoCadastradoException
+	 * 			Excessao lancada quando o usuario nao esta cadastrado.
+	 * @throws NaoTemAmizadeException
+	 * 			Excessao lancada quando nao tem esta amizade.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public void removeAmigo(Sessao sessao, String usuario)
+			throws UsuarioNaoCadastradoException, NaoTemAmizadeException, NenhumUsuarioLogadoException {
+		facade.getController().removeAmigo(sessao, usuario);
+	}
+
+	/**
+	 * Adiciona Pops ao usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param pops
+	 * 			Inteiro que indica a quantidade de pops que sera adicionada.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public void adicionaPops(Sessao sessao, int pops) throws NenhumUsuarioLogadoException {
+		facade.getController().adicionaPops(sessao, pops);
+	}
+
+	/**
+	 * Retorna a popularidade do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @return Retorna a popularidade.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public String getPopularidade(Sessao sessao) throws NenhumUsuarioLogadoException {
+		return facade.getController().getPopularidade(sessao);
+	}
+
+	/**
+	 * Retorna os pops de um post do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param post
+	 * 			Inteiro que indica o post que sera analisado.
+	 * @return Retorna a quantidade de pops do post.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 * @throws RequisicaoInvalidaException
+	 * 			Excessao lancada quando a requisicao eh invalida
+	 * @throws PostTalNaoExisteException
+	 * 			Excessao lancada quando o post nao existe.
+	 */
+	public int getPopsPost(Sessao sessao, int post)
+			throws NenhumUsuarioLogadoException, RequisicaoInvalidaException, PostTalNaoExisteException {
+		return facade.getController().getPopsPost(sessao, post);
+	}
+
+	/**
+	 * Retorna a quantidade de curtidas de um post do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param post
+	 * 			Inteiro que indica o indice do post.
+	 * @return Retorna a quantidade de curtidas.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 * @throws RequisicaoInvalidaException
+	 * 			Excessao lancada quando a requisicao eh invalida
+	 * @throws PostTalNaoExisteException
+	 * 			Excessao lancada quando o post nao existe.
+	 */
+	public int qtdCurtidasDePost(Sessao sessao, int post)
+			throws NenhumUsuarioLogadoException, RequisicaoInvalidaException, PostTalNaoExisteException {
+		return facade.getController().qtdCurtidasDePost(sessao, post);
+	}
+
+	/**
+	 * Retorna a quantidade de rejeicoes de um post do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @param post
+	 * 			Inteiro que indica qual o post sera analisado.
+	 * @return Retorna a quantidade de rejeicoes.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 * @throws RequisicaoInvalidaException
+	 * 			Excessao lancada quando a requisicao eh invalida
+	 * @throws PostTalNaoExisteException
+	 * 			Excessao lancada quando o post nao existe.
+	 */
+	public int qtdRejeicoesDePost(Sessao sessao, int post)
+			throws NenhumUsuarioLogadoException, RequisicaoInvalidaException, PostTalNaoExisteException {
+		return facade.getController().qtdRejeicoesDePost(sessao, post);
+	}
+
+	/**
+	 * Retorna os pops do usuario de uma sessao.
+	 * 
+	 * @param sessao
+	 * 			Sessao do usuario logado.
+	 * @return Retorna os pops do usuario.
+	 * @throws NenhumUsuarioLogadoException
+	 * 			Excessao lancada quando a sessao nao esta aberta.
+	 */
+	public int getPopsUsuario(Sessao sessao) throws NenhumUsuarioLogadoException {
+		return facade.getController().getPopsUsuario(sessao);
+	}
+}
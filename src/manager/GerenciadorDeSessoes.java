@@ -0,0 +1,84 @@
+package manager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import core.Usuario;
+
+/**
+ * Entidade que guarda as sessoes abertas no +Pop. <br>
+ * Varios usuarios podem estar logados ao mesmo tempo, cada um com a sua
+ * sessao. A busca do usuario de uma sessao nao usa travas, ja que e feita
+ * sobre um ConcurrentHashMap.
+ * 
+ * @author matteus
+ * 
+ */
+public class GerenciadorDeSessoes {
+	private Map<Sessao, Usuario> sessoesAbertas;
+
+	/**
+	 * Construtor de GerenciadorDeSessoes.
+	 */
+	public GerenciadorDeSessoes() {
+		this.sessoesAbertas = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Abre uma nova sessao para o usuario.
+	 * 
+	 * @param usuario
+	 *            Usuario que fez login.
+	 * @return Retorna a sessao criada.
+	 */
+	public Sessao abre(Usuario usuario) {
+		Sessao sessao = Sessao.nova();
+		sessoesAbertas.put(sessao, usuario);
+		return sessao;
+	}
+
+	/**
+	 * Retorna o usuario dono de uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao a ser consultada.
+	 * @return Retorna o usuario da sessao, ou null se a sessao nao esta aberta.
+	 */
+	public Usuario getUsuario(Sessao sessao) {
+		if (sessao == null)
+			return null;
+		return sessoesAbertas.get(sessao);
+	}
+
+	/**
+	 * Fecha uma sessao.
+	 * 
+	 * @param sessao
+	 *            Sessao a ser fechada.
+	 * @return true, se a sessao estava aberta. false, caso contrario.
+	 */
+	public boolean fecha(Sessao sessao) {
+		if (sessao == null)
+			return false;
+		return sessoesAbertas.remove(sessao) != null;
+	}
+
+	/**
+	 * Fecha todas as sessoes abertas por um usuario.
+	 * 
+	 * @param usuario
+	 *            Usuario que tera as sessoes fechadas.
+	 */
+	public void fechaSessoesDe(Usuario usuario) {
+		sessoesAbertas.values().removeIf(dono -> dono == usuario);
+	}
+
+	/**
+	 * Verifica se ha alguma sessao aberta no +Pop.
+	 * 
+	 * @return true, se ha sessoes abertas. false, caso contrario.
+	 */
+	public boolean temSessoesAbertas() {
+		return !sessoesAbertas.isEmpty();
+	}
+}
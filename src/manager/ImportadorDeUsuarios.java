@@ -0,0 +1,335 @@
+package manager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import core.Ranking;
+import core.Usuario;
+import exceptions.CadastroDeUsuarioException;
+import exceptions.DataNaoExisteException;
+import exceptions.EmailInvalidoException;
+import exceptions.FormatoDeDataInvalidoException;
+import exceptions.NomeUsuarioException;
+import exceptions.RegistroMalformadoException;
+import exceptions.UsuarioJaCadastradoException;
+import util.LeitorDeRegistrosDeUsuario;
+import util.ValidaDadosDoUsuario;
+
+/**
+ * Entidade que cadastra usuarios em lote, a partir de um arquivo CSV ou JSON
+ * lines. <br>
+ * As linhas sao lidas e validadas em paralelo em um ForkJoinPool, sem lancar
+ * excessoes, e so as validas viram Usuario; depois uma unica passada, na ordem
+ * da entrada, descarta os e-mails ja cadastrados ou repetidos no arquivo; por
+ * fim os usuarios validos entram de uma vez no repositorio e no ranking. Cada
+ * linha tem o mesmo resultado que teria em uma chamada de cadastraUsuario, na
+ * mesma ordem, e os erros sao as mensagens de CadastroDeUsuarioException.
+ * 
+ * @author matteus
+ * 
+ */
+public class ImportadorDeUsuarios {
+	private static final int LINHAS_POR_TAREFA = 256;
+	private static final char MARCA_DE_ORDEM_DE_BYTES = '\uFEFF';
+	private RepositorioDeUsuarios repositorio;
+	private Ranking ranking;
+	private ForkJoinPool pool;
+
+	/**
+	 * Formatos aceitos na importacao.
+	 */
+	public enum Formato {
+		CSV, JSON_LINES;
+
+		/**
+		 * Descobre o formato pela extensao do arquivo: .csv ou .jsonl (tambem
+		 * .json e .ndjson).
+		 * 
+		 * @param arquivo
+		 *            Nome do arquivo.
+		 * @return Formato do arquivo.
+		 */
+		public static Formato doArquivo(String arquivo) {
+			String nome = arquivo.toLowerCase(Locale.ROOT);
+			if (nome.endsWith(".csv"))
+				return CSV;
+			if (nome.endsWith(".jsonl") || nome.endsWith(".json") || nome.endsWith(".ndjson"))
+				return JSON_LINES;
+			throw new IllegalArgumentException("Formato de importacao desconhecido: " + arquivo + ".");
+		}
+	}
+
+	/**
+	 * Construtor de ImportadorDeUsuarios, que valida no pool comum.
+	 * 
+	 * @param repositorio
+	 *            Repositorio onde os usuarios serao cadastrados.
+	 * @param ranking
+	 *            Ranking que passa a acompanhar os usuarios cadastrados.
+	 */
+	public ImportadorDeUsuarios(RepositorioDeUsuarios repositorio, Ranking ranking) {
+		this(repositorio, ranking, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Construtor de ImportadorDeUsuarios.
+	 * 
+	 * @param repositorio
+	 *            Repositorio onde os usuarios serao cadastrados.
+	 * @param ranking
+	 *            Ranking que passa a acompanhar os usuarios cadastrados.
+	 * @param pool
+	 *            Pool onde as linhas sao validadas.
+	 */
+	public ImportadorDeUsuarios(RepositorioDeUsuarios repositorio, Ranking ranking, ForkJoinPool pool) {
+		this.repositorio = repositorio;
+		this.ranking = ranking;
+		this.pool = pool;
+	}
+
+	/**
+	 * Importa os usuarios de uma entrada. Linhas em branco sao ignoradas e, em
+	 * CSV, a primeira linha e ignorada se for um cabecalho.
+	 * 
+	 * @param entrada
+	 *            Entrada com um usuario por linha.
+	 * @param formato
+	 *            Formato das linhas.
+	 * @param agrupaNotificacoes
+	 *            Se os usuarios importados agrupam notificacoes repetidas.
+	 * @return Relatorio com os e-mails importados e os erros de cada linha.
+	 * @throws IOException
+	 *             Excessao lancada quando a entrada nao pode ser lida.
+	 */
+	public RelatorioDeImportacao importa(Reader entrada, Formato formato, boolean agrupaNotificacoes)
+			throws IOException {
+		return importa(entrada, formato, agrupaNotificacoes, LogDeOperacoes.SEM_LOG);
+	}
+
+	/**
+	 * Importa os usuarios de uma entrada, registrando o cadastro de cada
+	 * usuario importado, com os campos da sua linha, na Escrita de um log.
+	 * 
+	 * @param entrada
+	 *            Entrada com um usuario por linha.
+	 * @param formato
+	 *            Formato das linhas.
+	 * @param agrupaNotificacoes
+	 *            Se os usuarios importados agrupam notificacoes repetidas.
+	 * @param escrita
+	 *            Escrita aberta no log de operacoes.
+	 * @return Relatorio com os e-mails importados e os erros de cada linha.
+	 * @throws IOException
+	 *             Excessao lancada quando a entrada nao pode ser lida.
+	 */
+	public RelatorioDeImportacao importa(Reader entrada, Formato formato, boolean agrupaNotificacoes,
+			LogDeOperacoes.Escrita escrita) throws IOException {
+		List<String> linhas = leLinhas(entrada);
+		Registro[] registros = new Registro[linhas.size()];
+		int primeira = formato == Formato.CSV && !linhas.isEmpty()
+				&& LeitorDeRegistrosDeUsuario.isCabecalhoCsv(linhas.get(0)) ? 1 : 0;
+		pool.invoke(new Validacao(linhas, registros, formato, agrupaNotificacoes, primeira, registros.length));
+		List<Usuario> lote = descartaRepetidos(registros);
+		List<Usuario> recusados = repositorio.adicionaTodos(lote);
+		if (!recusados.isEmpty())
+			lote = marcaRecusados(registros, recusados);
+		ranking.adicionaTodos(lote);
+		return montaRelatorio(registros, escrita);
+	}
+
+	private List<String> leLinhas(Reader entrada) throws IOException {
+		BufferedReader leitor = entrada instanceof BufferedReader ? (BufferedReader) entrada
+				: new BufferedReader(entrada);
+		List<String> linhas = new ArrayList<>();
+		String linha = leitor.readLine();
+		if (linha != null && !linha.isEmpty() && linha.charAt(0) == MARCA_DE_ORDEM_DE_BYTES)
+			linha = linha.substring(1);
+		for (; linha != null; linha = leitor.readLine())
+			linhas.add(linha);
+		return linhas;
+	}
+
+	private List<Usuario> descartaRepetidos(Registro[] registros) {
+		Set<String> emailsDoLote = new HashSet<>();
+		List<Usuario> lote = new ArrayList<>(registros.length);
+		for (Registro registro : registros) {
+			if (registro == null || registro.chave == null)
+				continue;
+			if (emailsDoLote.contains(registro.chave) || repositorio.contemChave(registro.chave)) {
+				registro.marcaRepetido();
+			} else if (registro.usuario != null) {
+				emailsDoLote.add(registro.chave);
+				lote.add(registro.usuario);
+			}
+		}
+		return lote;
+	}
+
+	private List<Usuario> marcaRecusados(Registro[] registros, List<Usuario> recusados) {
+		Set<Usuario> conjunto = Collections.newSetFromMap(new IdentityHashMap<>());
+		conjunto.addAll(recusados);
+		List<Usuario> aceitos = new ArrayList<>();
+		for (Registro registro : registros) {
+			if (registro == null || registro.usuario == null)
+				continue;
+			if (conjunto.contains(registro.usuario))
+				registro.marcaRepetido();
+			else
+				aceitos.add(registro.usuario);
+		}
+		return aceitos;
+	}
+
+	private RelatorioDeImportacao montaRelatorio(Registro[] registros, LogDeOperacoes.Escrita escrita) {
+		RelatorioDeImportacao relatorio = new RelatorioDeImportacao();
+		for (int i = 0; i < registros.length; i++) {
+			Registro registro = registros[i];
+			if (registro == null)
+				continue;
+			if (registro.erro != null)
+				relatorio.adicionaFalha(i + 1, registro.getMensagem());
+			else
+				registraImportado(relatorio, registro, escrita);
+		}
+		return relatorio;
+	}
+
+	private void registraImportado(RelatorioDeImportacao relatorio, Registro registro,
+			LogDeOperacoes.Escrita escrita) {
+		relatorio.adicionaImportado(registro.usuario.getEmail());
+		escrita.registra(LogDeOperacoes.TipoDeOperacao.CADASTRA_USUARIO, 0, registro.campos);
+	}
+
+	private static Registro valida(String linha, Formato formato, boolean agrupaNotificacoes) {
+		String[] campos;
+		try {
+			campos = formato == Formato.CSV ? LeitorDeRegistrosDeUsuario.leCsv(linha)
+					: LeitorDeRegistrosDeUsuario.leJson(linha);
+		} catch (RegistroMalformadoException e) {
+			return new Registro(null, null, e);
+		}
+		Falha falha = verificaCampos(campos);
+		if (falha != null)
+			return new Registro(campos, null, falha);
+		try {
+			Usuario usuario = new Usuario(campos[0], campos[1], campos[2], campos[3], campos[4]);
+			usuario.setAgrupaNotificacoes(agrupaNotificacoes);
+			return new Registro(campos, usuario, null);
+		} catch (NomeUsuarioException | EmailInvalidoException | FormatoDeDataInvalidoException
+				| DataNaoExisteException e) {
+			return new Registro(campos, null, e);
+		}
+	}
+
+	private static Falha verificaCampos(String[] campos) {
+		if (!ValidaDadosDoUsuario.isNomeValido(campos[0]))
+			return Falha.NOME;
+		if (!ValidaDadosDoUsuario.isEmailValido(campos[1]))
+			return Falha.EMAIL;
+		switch (ValidaDadosDoUsuario.classificaData(campos[3])) {
+		case FORMATO_INVALIDO:
+			return Falha.FORMATO_DA_DATA;
+		case INEXISTENTE:
+			return Falha.DATA_INEXISTENTE;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Motivos pelos quais uma linha bem formada nao e cadastrada, na ordem em
+	 * que cadastraUsuario os verifica. A validacao em paralelo guarda so o
+	 * motivo, e a mensagem de CadastroDeUsuarioException de cada um e montada
+	 * uma unica vez.
+	 */
+	private enum Falha {
+		NOME(new NomeUsuarioException()), EMAIL(new EmailInvalidoException()),
+		FORMATO_DA_DATA(new FormatoDeDataInvalidoException()), DATA_INEXISTENTE(new DataNaoExisteException()),
+		REPETIDO(new UsuarioJaCadastradoException());
+
+		private final String mensagem;
+
+		private Falha(Exception excessao) {
+			this.mensagem = new CadastroDeUsuarioException(excessao).getMessage();
+		}
+	}
+
+	/**
+	 * Resultado de uma linha: os campos lidos, o e-mail ja normalizado e o
+	 * Usuario criado ou o que impede o cadastro, uma Falha ou a excessao ja
+	 * lancada.
+	 */
+	private static final class Registro {
+		private final String[] campos;
+		private final String chave;
+		private Usuario usuario;
+		private Object erro;
+
+		Registro(String[] campos, Usuario usuario, Object erro) {
+			this.campos = campos;
+			this.chave = campos == null ? null : RepositorioDeUsuarios.normalizaEmail(campos[1]);
+			this.usuario = usuario;
+			this.erro = erro;
+		}
+
+		void marcaRepetido() {
+			this.usuario = null;
+			this.erro = Falha.REPETIDO;
+		}
+
+		String getMensagem() {
+			if (erro instanceof Falha)
+				return ((Falha) erro).mensagem;
+			return new CadastroDeUsuarioException((Exception) erro).getMessage();
+		}
+	}
+
+	/**
+	 * Tarefa que valida um intervalo de linhas, dividindo-o ao meio enquanto
+	 * ele for maior que LINHAS_POR_TAREFA.
+	 */
+	private static final class Validacao extends RecursiveAction {
+		private static final long serialVersionUID = 6318546071922744160L;
+		private final List<String> linhas;
+		private final Registro[] registros;
+		private final Formato formato;
+		private final boolean agrupaNotificacoes;
+		private final int inicio;
+		private final int fim;
+
+		Validacao(List<String> linhas, Registro[] registros, Formato formato, boolean agrupaNotificacoes,
+				int inicio, int fim) {
+			this.linhas = linhas;
+			this.registros = registros;
+			this.formato = formato;
+			this.agrupaNotificacoes = agrupaNotificacoes;
+			this.inicio = inicio;
+			this.fim = fim;
+		}
+
+		@Override
+		protected void compute() {
+			if (fim - inicio > LINHAS_POR_TAREFA) {
+				int meio = (inicio + fim) >>> 1;
+				invokeAll(new Validacao(linhas, registros, formato, agrupaNotificacoes, inicio, meio),
+						new Validacao(linhas, registros, formato, agrupaNotificacoes, meio, fim));
+				return;
+			}
+			for (int i = inicio; i < fim; i++) {
+				String linha = linhas.get(i);
+				if (!linha.trim().isEmpty())
+					registros[i] = valida(linha, formato, agrupaNotificacoes);
+			}
+		}
+	}
+}
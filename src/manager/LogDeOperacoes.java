@@ -0,0 +1,606 @@
+package manager;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import core.Relogio;
+
+/**
+ * Log das operacoes que alteram o estado do +Pop (write-ahead log). <br>
+ * Cada operacao vira um registro binario acrescentado ao fim do arquivo: o
+ * tamanho, o CRC32 e o conteudo, que e o tipo da operacao, o momento em que
+ * ela foi aplicada, os seus textos em UTF-8 e um inteiro. O momento permite
+ * reaplicar a operacao com o mesmo dia de hoje, do qual dependem, por exemplo,
+ * os pops de uma curtida. O cabecalho guarda o CRC32 do snapshot sobre o qual o
+ * log foi criado, entao um log que ja entrou em um snapshot mais novo e
+ * reconhecido e ignorado. Na leitura, um registro incompleto ou com o CRC32
+ * errado marca o fim do log: e o que sobra de uma gravacao interrompida. <br>
+ * Uma Escrita trava, do inicio da operacao ate o seu registro, so os usuarios
+ * envolvidos nela, nas TravasDeUsuarios de quem altera o estado, e so depois
+ * le o log aberto. Operacoes sobre usuarios diferentes sao aplicadas em
+ * paralelo e podem ser registradas em qualquer ordem, ja que uma nao depende
+ * da outra; as que envolvem o mesmo usuario entram no log na ordem em que
+ * foram aplicadas. Quem troca ou fecha o log trava todos os usuarios antes,
+ * entao nenhuma operacao fica entre dois logs. A trava global do log so
+ * cobre a numeracao e a copia do registro para os pendentes. A gravacao
+ * no disco fica fora das duas e junta os registros pendentes de todas as
+ * threads em uma unica chamada a force (group commit), no momento definido
+ * pela Sincronizacao.
+ * 
+ * @author matteus
+ * 
+ */
+public class LogDeOperacoes implements Closeable {
+	public static final long SEM_SNAPSHOT = -1;
+	public static final long SEM_MOMENTO = Long.MIN_VALUE;
+	public static final int TAMANHO_DO_LOTE = 256;
+	public static final long INTERVALO_ASSINCRONO = 50;
+	private static final int ASSINATURA = 0x4D504F4C;
+	private static final int VERSAO = 2;
+	private static final int VERSAO_SEM_MOMENTO = 1;
+	private static final int TAMANHO_DO_CABECALHO = 16;
+	private static final int TAMANHO_MAXIMO_DO_REGISTRO = 16 << 20;
+	private static final int TAMANHO_INICIAL_DO_BUFFER = 1 << 16;
+	static final Escrita SEM_LOG = new Escrita(null, null);
+	private final FileChannel canal;
+	private final Sincronizacao sincronizacao;
+	private final ReentrantLock ordem;
+	private final CRC32 crc;
+	private final Object gravacao;
+	private final ScheduledExecutorService sincronizador;
+	private ByteBuffer registro;
+	private ByteBuffer pendentes;
+	private ByteBuffer gravando;
+	private long registrados;
+	private volatile long gravados;
+	private volatile IOException falha;
+	private boolean fechado;
+
+	/**
+	 * Momento em que um registro vai para o disco.
+	 */
+	public enum Sincronizacao {
+		/**
+		 * A operacao so termina depois que o seu registro esta no disco. As
+		 * operacoes que chegam enquanto uma gravacao acontece sao gravadas
+		 * juntas na proxima.
+		 */
+		POR_OPERACAO,
+		/**
+		 * A operacao termina sem esperar o disco; a que completa um lote de
+		 * TAMANHO_DO_LOTE registros grava o lote inteiro.
+		 */
+		EM_LOTE,
+		/**
+		 * A operacao termina sem esperar o disco; uma thread grava os
+		 * registros pendentes a cada INTERVALO_ASSINCRONO milissegundos.
+		 */
+		ASSINCRONA
+	}
+
+	/**
+	 * Operacoes registradas no log, com a quantidade de textos de cada uma e
+	 * se ela leva um inteiro. O ordinal e gravado no registro, entao novas
+	 * operacoes entram no fim.
+	 */
+	public enum TipoDeOperacao {
+		CADASTRA_USUARIO(5, false), ATUALIZA_PERFIL(3, false), ATUALIZA_SENHA(3, false), REMOVE_USUARIO(1, false),
+		CRIA_POST(3, false), ADICIONA_AMIGO(2, false), ACEITA_AMIZADE(2, false), REJEITA_AMIZADE(2, false),
+		REMOVE_AMIGO(2, false), CURTE_POST(2, true), REJEITA_POST(2, true), ADICIONA_POPS(1, true),
+		LE_NOTIFICACOES(1, true), AGRUPA_NOTIFICACOES(0, true);
+
+		private static final TipoDeOperacao[] TODOS = values();
+		private final int textos;
+		private final boolean temInteiro;
+
+		private TipoDeOperacao(int textos, boolean temInteiro) {
+			this.textos = textos;
+			this.temInteiro = temInteiro;
+		}
+	}
+
+	/**
+	 * Operacao lida do log.
+	 */
+	public static final class Operacao {
+		private final TipoDeOperacao tipo;
+		private final long momento;
+		private final String[] textos;
+		private final int inteiro;
+
+		private Operacao(TipoDeOperacao tipo, long momento, String[] textos, int inteiro) {
+			this.tipo = tipo;
+			this.momento = momento;
+			this.textos = textos;
+			this.inteiro = inteiro;
+		}
+
+		public TipoDeOperacao getTipo() {
+			return tipo;
+		}
+
+		/**
+		 * Retorna o momento em que a operacao foi aplicada.
+		 * 
+		 * @return Milissegundos desde a epoca, no Relogio do core, ou
+		 *         SEM_MOMENTO se o log e de uma versao que nao o guardava.
+		 */
+		public long getMomento() {
+			return momento;
+		}
+
+		public String getTexto(int indice) {
+			return textos[indice];
+		}
+
+		public int getInteiro() {
+			return inteiro;
+		}
+	}
+
+	/**
+	 * Trecho de uma operacao que altera o estado do +Pop. Enquanto a Escrita
+	 * esta aberta, nenhuma outra operacao sobre os mesmos usuarios e aplicada;
+	 * ao ser fechada, ela libera os usuarios e espera o disco, se a
+	 * Sincronizacao pedir.
+	 */
+	public static final class Escrita implements AutoCloseable {
+		private final TravasDeUsuarios travas;
+		private final int[] faixas;
+		private LogDeOperacoes log;
+		private long momento;
+		private long posicao;
+
+		private Escrita(TravasDeUsuarios travas, int[] faixas) {
+			this.travas = travas;
+			this.faixas = faixas;
+		}
+
+		/**
+		 * Registra a operacao aplicada nesta Escrita.
+		 * 
+		 * @param tipo
+		 *            Tipo da operacao.
+		 * @param inteiro
+		 *            Inteiro da operacao; ignorado se o tipo nao leva um.
+		 * @param textos
+		 *            Textos da operacao, na quantidade do tipo.
+		 */
+		public void registra(TipoDeOperacao tipo, int inteiro, String... textos) {
+			if (log != null)
+				posicao = log.registra(tipo, momento, inteiro, textos);
+		}
+
+		/**
+		 * Libera os usuarios e, conforme a Sincronizacao, grava o registro no
+		 * disco.
+		 * 
+		 * @throws UncheckedIOException
+		 *             Excessao lancada quando o log nao pode ser gravado; a
+		 *             operacao ja foi aplicada, mas pode nao sobreviver a uma
+		 *             queda.
+		 */
+		@Override
+		public void close() {
+			if (travas != null)
+				travas.libera(faixas);
+			if (posicao > 0)
+				log.confirma(posicao);
+		}
+	}
+
+	/**
+	 * Leitor dos registros de um log, do primeiro ao ultimo completo.
+	 */
+	public static final class Leitor implements Closeable {
+		private final DataInputStream entrada;
+		private final int versao;
+		private final CRC32 crc;
+		private long ignorados;
+
+		private Leitor(DataInputStream entrada, int versao) {
+			this.entrada = entrada;
+			this.versao = versao;
+			this.crc = new CRC32();
+		}
+
+		/**
+		 * Le a proxima operacao do log.
+		 * 
+		 * @return Operacao lida, ou null no fim do log.
+		 * @throws IOException
+		 *             Excessao lancada quando o arquivo nao pode ser lido.
+		 */
+		public Operacao proxima() throws IOException {
+			if (entrada == null)
+				return null;
+			byte[] moldura = new byte[Integer.BYTES * 2];
+			int lidos = leTudo(moldura);
+			if (lidos == 0)
+				return null;
+			if (lidos < moldura.length)
+				return fimCorrompido(lidos);
+			ByteBuffer valores = ByteBuffer.wrap(moldura);
+			int tamanho = valores.getInt();
+			int esperado = valores.getInt();
+			if (tamanho < 1 || tamanho > TAMANHO_MAXIMO_DO_REGISTRO)
+				return fimCorrompido(moldura.length);
+			byte[] conteudo = new byte[tamanho];
+			lidos = leTudo(conteudo);
+			if (lidos < tamanho)
+				return fimCorrompido(moldura.length + lidos);
+			crc.reset();
+			crc.update(conteudo, 0, tamanho);
+			if ((int) crc.getValue() != esperado)
+				return fimCorrompido(moldura.length + tamanho);
+			Operacao operacao = decodifica(ByteBuffer.wrap(conteudo), versao);
+			if (operacao == null)
+				return fimCorrompido(moldura.length + tamanho);
+			return operacao;
+		}
+
+		/**
+		 * Retorna quantos bytes do fim do log foram ignorados por estarem
+		 * incompletos ou corrompidos.
+		 * 
+		 * @return Bytes ignorados.
+		 */
+		public long getIgnorados() {
+			return ignorados;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (entrada != null)
+				entrada.close();
+		}
+
+		private int leTudo(byte[] destino) throws IOException {
+			int lidos = 0;
+			while (lidos < destino.length) {
+				int mais = entrada.read(destino, lidos, destino.length - lidos);
+				if (mais < 0)
+					break;
+				lidos += mais;
+			}
+			return lidos;
+		}
+
+		private Operacao fimCorrompido(long lidos) throws IOException {
+			ignorados = lidos;
+			byte[] descarte = new byte[8192];
+			for (int n = entrada.read(descarte); n >= 0; n = entrada.read(descarte))
+				ignorados += n;
+			return null;
+		}
+	}
+
+	private LogDeOperacoes(FileChannel canal, Sincronizacao sincronizacao) {
+		this.canal = canal;
+		this.sincronizacao = sincronizacao;
+		this.ordem = new ReentrantLock();
+		this.crc = new CRC32();
+		this.gravacao = new Object();
+		this.registro = ByteBuffer.allocate(TAMANHO_INICIAL_DO_BUFFER);
+		this.pendentes = ByteBuffer.allocate(TAMANHO_INICIAL_DO_BUFFER);
+		this.gravando = ByteBuffer.allocate(TAMANHO_INICIAL_DO_BUFFER);
+		if (sincronizacao == Sincronizacao.ASSINCRONA) {
+			this.sincronizador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+				Thread thread = new Thread(tarefa, "sincronizador-do-log");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.sincronizador.scheduleWithFixedDelay(this::gravaPendentes, INTERVALO_ASSINCRONO,
+					INTERVALO_ASSINCRONO, TimeUnit.MILLISECONDS);
+		} else {
+			this.sincronizador = null;
+		}
+	}
+
+	/**
+	 * Cria um log vazio, substituindo o que houver no arquivo.
+	 * 
+	 * @param arquivo
+	 *            Arquivo do log.
+	 * @param crcDoSnapshot
+	 *            CRC32 do snapshot que contem o estado anterior ao log, ou
+	 *            SEM_SNAPSHOT.
+	 * @param sincronizacao
+	 *            Momento em que os registros vao para o disco.
+	 * @return Log aberto para escrita.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser criado.
+	 */
+	public static LogDeOperacoes cria(Path arquivo, long crcDoSnapshot, Sincronizacao sincronizacao)
+			throws IOException {
+		FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_DO_CABECALHO);
+			cabecalho.putInt(ASSINATURA).putInt(VERSAO).putLong(crcDoSnapshot).flip();
+			while (cabecalho.hasRemaining())
+				canal.write(cabecalho);
+			canal.force(true);
+		} catch (IOException e) {
+			canal.close();
+			throw e;
+		}
+		return new LogDeOperacoes(canal, sincronizacao);
+	}
+
+	/**
+	 * Abre um log para leitura. Se o arquivo nao existe, se o cabecalho nao
+	 * chegou a ser gravado ou se o log foi criado sobre outro snapshot, o
+	 * Leitor nao tem operacoes. Logs da versao anterior, sem o momento de cada
+	 * operacao, tambem sao lidos.
+	 * 
+	 * @param arquivo
+	 *            Arquivo do log.
+	 * @param crcDoSnapshot
+	 *            CRC32 do snapshot ja carregado, ou SEM_SNAPSHOT.
+	 * @return Leitor das operacoes do log.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser lido ou nao e
+	 *             um log do +Pop.
+	 */
+	public static Leitor le(Path arquivo, long crcDoSnapshot) throws IOException {
+		DataInputStream entrada;
+		try {
+			entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo), 1 << 16));
+		} catch (NoSuchFileException e) {
+			return new Leitor(null, VERSAO);
+		}
+		try {
+			int assinatura;
+			int versao;
+			long base;
+			try {
+				assinatura = entrada.readInt();
+				versao = entrada.readInt();
+				base = entrada.readLong();
+			} catch (EOFException e) {
+				entrada.close();
+				return new Leitor(null, VERSAO);
+			}
+			if (assinatura != ASSINATURA)
+				throw new IOException("O arquivo " + arquivo + " nao e um log do +Pop.");
+			if (versao != VERSAO && versao != VERSAO_SEM_MOMENTO)
+				throw new IOException("Versao de log nao suportada: " + versao + ".");
+			if (base != crcDoSnapshot) {
+				entrada.close();
+				return new Leitor(null, versao);
+			}
+			return new Leitor(entrada, versao);
+		} catch (IOException e) {
+			entrada.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Inicia uma operacao que altera o estado do +Pop, travando os usuarios
+	 * envolvidos ate que a Escrita seja fechada. Sem usuarios, a operacao
+	 * envolve todos. O log e lido depois das travas, entao uma troca de log
+	 * feita com todos os usuarios travados nunca corta a operacao ao meio. Se
+	 * nao ha log aberto, ou se ele ja foi fechado, nada e registrado, mas os
+	 * usuarios sao travados do mesmo jeito.
+	 * 
+	 * @param travas
+	 *            Travas dos usuarios de quem altera o estado.
+	 * @param log
+	 *            Fornece o log aberto, ou null quando nada e registrado.
+	 * @param usuarios
+	 *            E-mails dos usuarios envolvidos; os nulos sao ignorados.
+	 * @return Escrita da operacao.
+	 */
+	public static Escrita iniciaEscrita(TravasDeUsuarios travas, Supplier<LogDeOperacoes> log,
+			String... usuarios) {
+		Escrita escrita = new Escrita(travas, travas.trava(usuarios));
+		LogDeOperacoes aberto = log.get();
+		if (aberto != null && !aberto.isFechado()) {
+			escrita.log = aberto;
+			escrita.momento = Relogio.getAtual().getClock().millis();
+		}
+		return escrita;
+	}
+
+	/**
+	 * Grava os registros pendentes, espera o disco e fecha o log. As Escritas
+	 * que registrarem depois nao registram nada; quem fecha o log deve travar
+	 * todos os usuarios antes, para nao deixar uma operacao pela metade.
+	 * 
+	 * @throws IOException
+	 *             Excessao lancada quando o log nao pode ser gravado.
+	 */
+	@Override
+	public void close() throws IOException {
+		ordem.lock();
+		try {
+			if (fechado)
+				return;
+			fechado = true;
+		} finally {
+			ordem.unlock();
+		}
+		if (sincronizador != null) {
+			sincronizador.shutdown();
+			try {
+				sincronizador.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			grava(getRegistrados());
+		} finally {
+			canal.close();
+		}
+	}
+
+	private boolean isFechado() {
+		ordem.lock();
+		try {
+			return fechado;
+		} finally {
+			ordem.unlock();
+		}
+	}
+
+	private long getRegistrados() {
+		ordem.lock();
+		try {
+			return registrados;
+		} finally {
+			ordem.unlock();
+		}
+	}
+
+	private long registra(TipoDeOperacao tipo, long momento, int inteiro, String[] textos) {
+		if (textos.length != tipo.textos)
+			throw new IllegalArgumentException(tipo + " leva " + tipo.textos + " textos.");
+		ordem.lock();
+		try {
+			if (fechado)
+				return 0;
+			ByteBuffer conteudo = codifica(tipo, momento, inteiro, textos);
+			crc.reset();
+			crc.update(conteudo.array(), 0, conteudo.position());
+			pendentes = garante(pendentes, Integer.BYTES * 2 + conteudo.position());
+			pendentes.putInt(conteudo.position()).putInt((int) crc.getValue());
+			pendentes.put(conteudo.array(), 0, conteudo.position());
+			return ++registrados;
+		} finally {
+			ordem.unlock();
+		}
+	}
+
+	private ByteBuffer codifica(TipoDeOperacao tipo, long momento, int inteiro, String[] textos) {
+		registro.clear();
+		registro = garante(registro, 1 + Long.BYTES);
+		registro.put((byte) tipo.ordinal()).putLong(momento);
+		for (String texto : textos) {
+			if (texto == null) {
+				registro = garante(registro, Integer.BYTES);
+				registro.putInt(-1);
+				continue;
+			}
+			byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+			registro = garante(registro, Integer.BYTES + bytes.length);
+			registro.putInt(bytes.length).put(bytes);
+		}
+		if (tipo.temInteiro) {
+			registro = garante(registro, Integer.BYTES);
+			registro.putInt(inteiro);
+		}
+		return registro;
+	}
+
+	private static Operacao decodifica(ByteBuffer conteudo, int versao) {
+		int ordinal = conteudo.get() & 0xFF;
+		if (ordinal >= TipoDeOperacao.TODOS.length)
+			return null;
+		TipoDeOperacao tipo = TipoDeOperacao.TODOS[ordinal];
+		long momento = SEM_MOMENTO;
+		if (versao != VERSAO_SEM_MOMENTO) {
+			if (conteudo.remaining() < Long.BYTES)
+				return null;
+			momento = conteudo.getLong();
+		}
+		String[] textos = new String[tipo.textos];
+		for (int i = 0; i < textos.length; i++) {
+			if (conteudo.remaining() < Integer.BYTES)
+				return null;
+			int tamanho = conteudo.getInt();
+			if (tamanho == -1)
+				continue;
+			if (tamanho < 0 || tamanho > conteudo.remaining())
+				return null;
+			textos[i] = new String(conteudo.array(), conteudo.position(), tamanho, StandardCharsets.UTF_8);
+			conteudo.position(conteudo.position() + tamanho);
+		}
+		int inteiro = 0;
+		if (tipo.temInteiro) {
+			if (conteudo.remaining() < Integer.BYTES)
+				return null;
+			inteiro = conteudo.getInt();
+		}
+		return conteudo.hasRemaining() ? null : new Operacao(tipo, momento, textos, inteiro);
+	}
+
+	private static ByteBuffer garante(ByteBuffer buffer, int bytes) {
+		if (buffer.remaining() >= bytes)
+			return buffer;
+		ByteBuffer maior = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+		buffer.flip();
+		return maior.put(buffer);
+	}
+
+	private void confirma(long posicao) {
+		if (sincronizacao == Sincronizacao.ASSINCRONA
+				|| sincronizacao == Sincronizacao.EM_LOTE && posicao % TAMANHO_DO_LOTE != 0)
+			return;
+		try {
+			grava(posicao);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void gravaPendentes() {
+		try {
+			grava(getRegistrados());
+		} catch (IOException e) {
+			// Fica em falha e e relancada pela proxima operacao que esperar o
+			// disco.
+		}
+	}
+
+	private void grava(long posicao) throws IOException {
+		if (gravados >= posicao)
+			return;
+		synchronized (gravacao) {
+			if (gravados >= posicao)
+				return;
+			if (falha != null)
+				throw new IOException("O log parou de ser gravado.", falha);
+			long ultimo;
+			ordem.lock();
+			try {
+				ByteBuffer lote = pendentes;
+				pendentes = gravando;
+				gravando = lote;
+				ultimo = registrados;
+			} finally {
+				ordem.unlock();
+			}
+			try {
+				gravando.flip();
+				while (gravando.hasRemaining())
+					canal.write(gravando);
+				gravando.clear();
+				canal.force(false);
+			} catch (IOException e) {
+				falha = e;
+				throw e;
+			}
+			gravados = ultimo;
+		}
+	}
+}
@@ -1,14 +1,19 @@
 package manager;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import easyaccept.EasyAcceptFacade;
 
 
 public class Main {
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		List<String> testesDeAceitacao = new ArrayList<String>();
-		Facade facade = new Facade();
+		Path diretorio = Files.createTempDirectory("maispop");
+		Path dados = diretorio.resolve("maispop.dat");
+		Facade facade = new Facade(dados.toString());
 		testesDeAceitacao.add("resources/teste_aceitacao/usecase_1.txt");
 		testesDeAceitacao.add("resources/teste_aceitacao/usecase_2.txt");
 		testesDeAceitacao.add("resources/teste_aceitacao/usecase_3.txt");
@@ -20,5 +25,8 @@ public class Main {
 		EasyAcceptFacade eaFacade = new EasyAcceptFacade(facade, testesDeAceitacao);
 		eaFacade.executeTests();
 		System.out.println(eaFacade.getCompleteResults());
+		Files.deleteIfExists(dados);
+		Files.deleteIfExists(dados.resolveSibling(dados.getFileName() + Facade.EXTENSAO_DO_LOG));
+		Files.deleteIfExists(diretorio);
 	}
 }
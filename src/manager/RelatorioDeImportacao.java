@@ -0,0 +1,67 @@
+package manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de uma importacao de usuarios em lote. <br>
+ * Guarda, na ordem da entrada, os e-mails cadastrados e a mensagem de erro de
+ * cada linha que nao pode ser cadastrada, indexada pelo numero da linha
+ * (comecando em 1).
+ * 
+ * @author matteus
+ * 
+ */
+public class RelatorioDeImportacao {
+	private List<String> importados;
+	private Map<Integer, String> falhas;
+
+	/**
+	 * Construtor de RelatorioDeImportacao.
+	 */
+	public RelatorioDeImportacao() {
+		this.importados = new ArrayList<>();
+		this.falhas = new LinkedHashMap<>();
+	}
+
+	void adicionaImportado(String email) {
+		importados.add(email);
+	}
+
+	void adicionaFalha(int linha, String mensagem) {
+		falhas.put(linha, mensagem);
+	}
+
+	/**
+	 * Retorna os e-mails dos usuarios cadastrados, na ordem da entrada.
+	 * 
+	 * @return Lista de e-mails importados.
+	 */
+	public List<String> getImportados() {
+		return Collections.unmodifiableList(importados);
+	}
+
+	/**
+	 * Retorna as linhas que falharam, na ordem da entrada.
+	 * 
+	 * @return Mapa do numero da linha para a mensagem de erro.
+	 */
+	public Map<Integer, String> getFalhas() {
+		return Collections.unmodifiableMap(falhas);
+	}
+
+	/**
+	 * toString da classe RelatorioDeImportacao.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Importados: ").append(importados.size()).append(" | Falhas: ").append(falhas.size());
+		for (Map.Entry<Integer, String> falha : falhas.entrySet())
+			sb.append("; linha ").append(falha.getKey()).append(": ").append(falha.getValue());
+		return sb.toString();
+	}
+}
@@ -0,0 +1,151 @@
+package manager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import core.Usuario;
+import exceptions.UsuarioJaCadastradoException;
+import exceptions.UsuarioNaoCadastradoException;
+
+/**
+ * Repositorio dos usuarios do +Pop. <br>
+ * Indexa os usuarios pelo e-mail normalizado (sem diferenciar caixa alta e
+ * baixa), permitindo buscas, cadastros e remocoes em tempo constante. Pode ser
+ * usado por varias sessoes ao mesmo tempo.
+ * 
+ * @author matteus
+ * 
+ */
+public class RepositorioDeUsuarios {
+	private Map<String, Usuario> usuariosPorEmail;
+
+	/**
+	 * Construtor de RepositorioDeUsuarios.
+	 */
+	public RepositorioDeUsuarios() {
+		this.usuariosPorEmail = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Adiciona um usuario ao repositorio.
+	 * 
+	 * @param usuario
+	 *            Usuario a ser adicionado.
+	 * @throws UsuarioJaCadastradoException
+	 *             Excessao lancada quando ja existe um usuario com o mesmo
+	 *             e-mail.
+	 */
+	public void adiciona(Usuario usuario) throws UsuarioJaCadastradoException {
+		if (usuariosPorEmail.putIfAbsent(normalizaEmail(usuario.getEmail()), usuario) != null)
+			throw new UsuarioJaCadastradoException();
+	}
+
+	/**
+	 * Adiciona varios usuarios de uma vez. Os usuarios cujo e-mail ja estiver
+	 * cadastrado quando chegar a sua vez nao sao adicionados.
+	 * 
+	 * @param usuarios
+	 *            Usuarios a serem adicionados.
+	 * @return Lista com os usuarios que nao foram adicionados.
+	 */
+	public List<Usuario> adicionaTodos(List<Usuario> usuarios) {
+		List<Usuario> recusados = new ArrayList<>();
+		for (Usuario usuario : usuarios)
+			if (usuariosPorEmail.putIfAbsent(normalizaEmail(usuario.getEmail()), usuario) != null)
+				recusados.add(usuario);
+		return recusados;
+	}
+
+	/**
+	 * Busca um usuario pelo e-mail.
+	 * 
+	 * @param email
+	 *            E-mail do usuario procurado.
+	 * @return Retorna o usuario com o e-mail informado.
+	 * @throws UsuarioNaoCadastradoException
+	 *             Excessao lancada quando nao ha usuario com esse e-mail.
+	 */
+	public Usuario busca(String email) throws UsuarioNaoCadastradoException {
+		Usuario usuario = email == null ? null : usuariosPorEmail.get(normalizaEmail(email));
+		if (usuario == null)
+			throw new UsuarioNaoCadastradoException(email);
+		return usuario;
+	}
+
+	/**
+	 * Verifica se ja existe usuario cadastrado com o e-mail informado.
+	 * 
+	 * @param email
+	 *            E-mail a ser verificado.
+	 * @return true, se o e-mail ja esta cadastrado. false, caso contrario.
+	 */
+	public boolean contem(String email) {
+		return usuariosPorEmail.containsKey(normalizaEmail(email));
+	}
+
+	boolean contemChave(String emailNormalizado) {
+		return usuariosPorEmail.containsKey(emailNormalizado);
+	}
+
+	/**
+	 * Remove um usuario do repositorio.
+	 * 
+	 * @param email
+	 *            E-mail do usuario a ser removido.
+	 * @return Retorna o usuario removido.
+	 * @throws UsuarioNaoCadastradoException
+	 *             Excessao lancada quando nao ha usuario com esse e-mail.
+	 */
+	public Usuario remove(String email) throws UsuarioNaoCadastradoException {
+		Usuario usuario = email == null ? null : usuariosPorEmail.remove(normalizaEmail(email));
+		if (usuario == null)
+			throw new UsuarioNaoCadastradoException(email);
+		return usuario;
+	}
+
+	/**
+	 * Atualiza o indice de um usuario que teve o e-mail alterado. Se outro
+	 * usuario ja ocupa o novo e-mail, o indice nao muda.
+	 * 
+	 * @param emailAntigo
+	 *            E-mail que o usuario tinha antes da alteracao.
+	 * @param usuario
+	 *            Usuario, ja com o novo e-mail.
+	 * @throws UsuarioJaCadastradoException
+	 *             Excessao lancada quando outro usuario ja esta cadastrado com
+	 *             o novo e-mail.
+	 */
+	public void reindexa(String emailAntigo, Usuario usuario) throws UsuarioJaCadastradoException {
+		Usuario ocupante = usuariosPorEmail.putIfAbsent(normalizaEmail(usuario.getEmail()), usuario);
+		if (ocupante != null && ocupante != usuario)
+			throw new UsuarioJaCadastradoException();
+		String chaveAntiga = normalizaEmail(emailAntigo);
+		if (!chaveAntiga.equals(normalizaEmail(usuario.getEmail())))
+			usuariosPorEmail.remove(chaveAntiga, usuario);
+	}
+
+	/**
+	 * Retorna uma copia da lista com todos os usuarios cadastrados.
+	 * 
+	 * @return Lista com os usuarios do +Pop.
+	 */
+	public List<Usuario> getUsuarios() {
+		return new ArrayList<>(usuariosPorEmail.values());
+	}
+
+	/**
+	 * Retorna a quantidade de usuarios cadastrados.
+	 * 
+	 * @return Quantidade de usuarios.
+	 */
+	public int getQuantidade() {
+		return usuariosPorEmail.size();
+	}
+
+	static String normalizaEmail(String email) {
+		return email.trim().toLowerCase(Locale.ROOT);
+	}
+}
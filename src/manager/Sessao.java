@@ -0,0 +1,57 @@
+package manager;
+
+import java.security.SecureRandom;
+
+/**
+ * Sessao de um usuario logado no +Pop. <br>
+ * Funciona como um token opaco: o cliente apenas guarda a sessao recebida no
+ * login e a repassa em cada chamada ao Controller.
+ * 
+ * @author matteus
+ * 
+ */
+public final class Sessao {
+	private static final SecureRandom GERADOR = new SecureRandom();
+	private static final char[] DIGITOS = "0123456789abcdef".toCharArray();
+	private static final int BYTES_DO_TOKEN = 16;
+	private final String token;
+
+	private Sessao(String token) {
+		this.token = token;
+	}
+
+	/**
+	 * Cria uma nova sessao com um token aleatorio.
+	 * 
+	 * @return Retorna a sessao criada.
+	 */
+	static Sessao nova() {
+		byte[] bytes = new byte[BYTES_DO_TOKEN];
+		GERADOR.nextBytes(bytes);
+		char[] token = new char[BYTES_DO_TOKEN * 2];
+		for (int i = 0; i < BYTES_DO_TOKEN; i++) {
+			token[2 * i] = DIGITOS[(bytes[i] >> 4) & 0xF];
+			token[2 * i + 1] = DIGITOS[bytes[i] & 0xF];
+		}
+		return new Sessao(new String(token));
+	}
+
+	@Override
+	public int hashCode() {
+		return token.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Sessao))
+			return false;
+		return token.equals(((Sessao) obj).token);
+	}
+
+	@Override
+	public String toString() {
+		return this.token;
+	}
+}
@@ -0,0 +1,81 @@
+package manager;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Travas dos usuarios do +Pop, divididas em FAIXAS_DE_USUARIOS faixas pelo
+ * e-mail normalizado. <br>
+ * Uma operacao que altera o estado trava as faixas de todos os usuarios
+ * envolvidos nela, em ordem crescente e sem repeticoes, entao duas operacoes
+ * que tem um usuario em comum nunca se intercalam e nao ha espera circular.
+ * Sem usuarios, a operacao trava todas as faixas e exclui qualquer outra
+ * escrita. As travas existem com ou sem um LogDeOperacoes aberto.
+ * 
+ * @author matteus
+ * 
+ */
+public final class TravasDeUsuarios {
+	public static final int FAIXAS_DE_USUARIOS = 64;
+	private static final int[] TODAS_AS_FAIXAS = new int[FAIXAS_DE_USUARIOS];
+	private final ReentrantLock[] travas;
+
+	static {
+		for (int i = 0; i < FAIXAS_DE_USUARIOS; i++)
+			TODAS_AS_FAIXAS[i] = i;
+	}
+
+	/**
+	 * Construtor de TravasDeUsuarios, com todas as faixas livres.
+	 */
+	public TravasDeUsuarios() {
+		this.travas = new ReentrantLock[FAIXAS_DE_USUARIOS];
+		for (int i = 0; i < FAIXAS_DE_USUARIOS; i++)
+			this.travas[i] = new ReentrantLock();
+	}
+
+	/**
+	 * Trava as faixas dos usuarios, esperando as operacoes que ja as travaram.
+	 * 
+	 * @param usuarios
+	 *            E-mails dos usuarios envolvidos; os nulos sao ignorados. Sem
+	 *            usuarios, todas as faixas sao travadas.
+	 * @return Faixas travadas, a serem passadas para libera.
+	 */
+	int[] trava(String... usuarios) {
+		int[] faixas = usuarios.length == 0 ? TODAS_AS_FAIXAS : faixasDe(usuarios);
+		for (int faixa : faixas)
+			travas[faixa].lock();
+		return faixas;
+	}
+
+	/**
+	 * Libera as faixas travadas por trava.
+	 * 
+	 * @param faixas
+	 *            Faixas retornadas por trava.
+	 */
+	void libera(int[] faixas) {
+		for (int i = faixas.length - 1; i >= 0; i--)
+			travas[faixas[i]].unlock();
+	}
+
+	private static int[] faixasDe(String[] usuarios) {
+		int[] faixas = new int[usuarios.length];
+		int quantidade = 0;
+		for (String email : usuarios)
+			if (email != null)
+				faixas[quantidade++] = faixaDe(email);
+		Arrays.sort(faixas, 0, quantidade);
+		int distintas = 0;
+		for (int i = 0; i < quantidade; i++)
+			if (distintas == 0 || faixas[i] != faixas[distintas - 1])
+				faixas[distintas++] = faixas[i];
+		return distintas == faixas.length ? faixas : Arrays.copyOf(faixas, distintas);
+	}
+
+	private static int faixaDe(String email) {
+		int hash = RepositorioDeUsuarios.normalizaEmail(email).hashCode();
+		return ((hash ^ (hash >>> 16)) & 0x7FFFFFFF) % FAIXAS_DE_USUARIOS;
+	}
+}
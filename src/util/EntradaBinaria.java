@@ -0,0 +1,134 @@
+package util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Entidade que le os valores gravados por uma SaidaBinaria. <br>
+ * O arquivo e lido do FileChannel em blocos de 1 MiB, e os bytes consumidos
+ * entram em um CRC32, que verificaFim compara com o gravado no fim do arquivo.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class EntradaBinaria implements Closeable {
+	private static final int TAMANHO_DO_BUFFER = 1 << 20;
+	private final FileChannel canal;
+	private final ByteBuffer buffer;
+	private final CRC32 crc;
+	private int inicioForaDoCrc;
+
+	/**
+	 * Construtor de EntradaBinaria.
+	 * 
+	 * @param arquivo
+	 *            Arquivo a ser lido.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser aberto.
+	 */
+	public EntradaBinaria(Path arquivo) throws IOException {
+		this.canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+		this.buffer = ByteBuffer.allocate(TAMANHO_DO_BUFFER);
+		this.buffer.flip();
+		this.crc = new CRC32();
+	}
+
+	public int leByte() throws IOException {
+		garante(Byte.BYTES);
+		return buffer.get();
+	}
+
+	public int leInt() throws IOException {
+		garante(Integer.BYTES);
+		return buffer.getInt();
+	}
+
+	public long leLong() throws IOException {
+		garante(Long.BYTES);
+		return buffer.getLong();
+	}
+
+	/**
+	 * Le um texto gravado por SaidaBinaria.escreveTexto.
+	 * 
+	 * @return Texto lido; pode ser null.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo termina antes do texto ou
+	 *             o tamanho gravado e invalido.
+	 */
+	public String leTexto() throws IOException {
+		int tamanho = leInt();
+		if (tamanho < 0) {
+			if (tamanho != -1)
+				throw new IOException("Tamanho de texto invalido: " + tamanho + ".");
+			return null;
+		}
+		if (tamanho <= buffer.capacity()) {
+			garante(tamanho);
+			String texto = new String(buffer.array(), buffer.position(), tamanho, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + tamanho);
+			return texto;
+		}
+		byte[] bytes = new byte[tamanho];
+		int copiados = buffer.remaining();
+		buffer.get(bytes, 0, copiados);
+		somaConsumidos();
+		ByteBuffer resto = ByteBuffer.wrap(bytes, copiados, tamanho - copiados);
+		while (resto.hasRemaining())
+			if (canal.read(resto) < 0)
+				throw new EOFException("O arquivo terminou no meio de um texto.");
+		crc.update(bytes, copiados, tamanho - copiados);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Confere o CRC32 gravado no fim do arquivo com o dos bytes lidos e
+	 * verifica que nao ha mais nada depois dele.
+	 * 
+	 * @throws IOException
+	 *             Excessao lancada quando o CRC32 nao confere ou o arquivo nao
+	 *             termina no CRC32.
+	 */
+	public void verificaFim() throws IOException {
+		garante(Long.BYTES);
+		somaConsumidos();
+		long esperado = buffer.getLong();
+		inicioForaDoCrc = buffer.position();
+		if (esperado != crc.getValue())
+			throw new IOException("O arquivo esta corrompido: o CRC32 nao confere.");
+		if (buffer.hasRemaining() || canal.position() != canal.size())
+			throw new IOException("O arquivo tem dados depois do fim.");
+	}
+
+	@Override
+	public void close() throws IOException {
+		canal.close();
+	}
+
+	private void garante(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes)
+			return;
+		somaConsumidos();
+		buffer.compact();
+		while (buffer.position() < bytes) {
+			if (canal.read(buffer) < 0) {
+				buffer.flip();
+				throw new EOFException("O arquivo terminou antes do esperado.");
+			}
+		}
+		buffer.flip();
+		inicioForaDoCrc = 0;
+	}
+
+	private void somaConsumidos() {
+		crc.update(buffer.array(), inicioForaDoCrc, buffer.position() - inicioForaDoCrc);
+		inicioForaDoCrc = buffer.position();
+	}
+}
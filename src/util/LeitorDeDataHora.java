@@ -0,0 +1,74 @@
+package util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Entidade que converte datas no formato "dd/MM/yyyy HH:mm:ss" usado na
+ * criacao de Posts. <br>
+ * Datas bem formadas sao lidas direto dos caracteres, em posicoes fixas, sem
+ * passar por DateTimeFormatter. Qualquer outra entrada (digitos fora do lugar,
+ * dia que nao existe no mes, hora fora do intervalo) segue pelo caminho dos
+ * formatters, que da o mesmo resultado, ou a mesma excessao, de antes.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class LeitorDeDataHora {
+	private static final DateTimeFormatter FORMATTER_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+	private static final DateTimeFormatter FORMATTER_HORA = DateTimeFormatter.ofPattern("HH:mm:ss");
+	private static final int TAMANHO = 19;
+	private static final int[] POSICOES_DOS_DIGITOS = { 0, 1, 3, 4, 6, 7, 8, 9, 11, 12, 14, 15, 17, 18 };
+
+	private LeitorDeDataHora() {
+	}
+
+	/**
+	 * Converte uma data e hora no formato "dd/MM/yyyy HH:mm:ss". O caractere
+	 * entre a data e a hora e o que vier depois da hora sao ignorados.
+	 * 
+	 * @param stringComData
+	 *            String com a data e a hora.
+	 * @return LocalDateTime correspondente.
+	 */
+	public static LocalDateTime leDataHora(String stringComData) {
+		if (isBemFormada(stringComData)) {
+			int dia = doisDigitos(stringComData, 0);
+			int mes = doisDigitos(stringComData, 3);
+			int ano = doisDigitos(stringComData, 6) * 100 + doisDigitos(stringComData, 8);
+			int hora = doisDigitos(stringComData, 11);
+			int minuto = doisDigitos(stringComData, 14);
+			int segundo = doisDigitos(stringComData, 17);
+			if (ano >= 1 && mes >= 1 && mes <= 12 && dia >= 1 && hora <= 23 && minuto <= 59 && segundo <= 59
+					&& (dia <= 28 || dia <= Month.of(mes).length(Year.isLeap(ano))))
+				return LocalDateTime.of(ano, mes, dia, hora, minuto, segundo);
+		}
+		return leComFormatters(stringComData);
+	}
+
+	private static LocalDateTime leComFormatters(String stringComData) {
+		LocalDate data = LocalDate.parse(stringComData.substring(0, 10), FORMATTER_DATA);
+		LocalTime hora = LocalTime.parse(stringComData.substring(11, 19), FORMATTER_HORA);
+		return LocalDateTime.of(data, hora);
+	}
+
+	private static boolean isBemFormada(String stringComData) {
+		if (stringComData.length() < TAMANHO || stringComData.charAt(2) != '/' || stringComData.charAt(5) != '/'
+				|| stringComData.charAt(13) != ':' || stringComData.charAt(16) != ':')
+			return false;
+		for (int posicao : POSICOES_DOS_DIGITOS) {
+			char caractere = stringComData.charAt(posicao);
+			if (caractere < '0' || caractere > '9')
+				return false;
+		}
+		return true;
+	}
+
+	private static int doisDigitos(String texto, int inicio) {
+		return (texto.charAt(inicio) - '0') * 10 + texto.charAt(inicio + 1) - '0';
+	}
+}
@@ -0,0 +1,227 @@
+package util;
+
+import exceptions.RegistroMalformadoException;
+
+/**
+ * Entidade que separa uma linha de um arquivo de importacao nos campos de
+ * cadastro de um Usuario: nome, email, senha, dataNasc e imagem, nesta ordem.
+ * <br>
+ * Em CSV, a linha tem 4 ou 5 campos separados por virgula; um campo entre
+ * aspas pode conter virgulas, e aspas dobradas dentro dele valem uma aspa. Em
+ * JSON lines, a linha e um objeto com os campos pelo nome, cujos valores sao
+ * textos ou null; outros campos sao ignorados. Nos dois formatos a imagem e
+ * opcional e os campos nao sao aparados, como em cadastraUsuario.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class LeitorDeRegistrosDeUsuario {
+	public static final String[] CAMPOS = { "nome", "email", "senha", "dataNasc", "imagem" };
+	private static final int CAMPOS_OBRIGATORIOS = 4;
+
+	private LeitorDeRegistrosDeUsuario() {
+	}
+
+	/**
+	 * Verifica se a linha e o cabecalho de um CSV, ou seja, se o primeiro campo
+	 * e "nome".
+	 * 
+	 * @param linha
+	 *            Primeira linha do arquivo.
+	 * @return true se a linha e um cabecalho.
+	 */
+	public static boolean isCabecalhoCsv(String linha) {
+		int tamanho = CAMPOS[0].length();
+		return linha.regionMatches(true, 0, CAMPOS[0], 0, tamanho)
+				&& (linha.length() == tamanho || linha.charAt(tamanho) == ',');
+	}
+
+	/**
+	 * Separa uma linha CSV nos campos de cadastro.
+	 * 
+	 * @param linha
+	 *            Linha a ser lida.
+	 * @return Campos na ordem de CAMPOS; a imagem e null quando nao informada.
+	 * @throws RegistroMalformadoException
+	 *             Excessao lancada quando a linha nao tem 4 ou 5 campos ou tem
+	 *             aspas sem fechamento.
+	 */
+	public static String[] leCsv(String linha) throws RegistroMalformadoException {
+		String[] campos = new String[CAMPOS.length];
+		StringBuilder sb = new StringBuilder();
+		int quantidade = 0;
+		int i = 0;
+		while (true) {
+			if (quantidade == CAMPOS.length)
+				throw new RegistroMalformadoException("mais de " + CAMPOS.length + " campos");
+			sb.setLength(0);
+			if (i < linha.length() && linha.charAt(i) == '"') {
+				i = leCampoEntreAspas(linha, i + 1, sb);
+				if (i < linha.length() && linha.charAt(i) != ',')
+					throw new RegistroMalformadoException("texto depois das aspas de " + CAMPOS[quantidade]);
+			} else {
+				int fim = linha.indexOf(',', i);
+				if (fim < 0)
+					fim = linha.length();
+				sb.append(linha, i, fim);
+				i = fim;
+			}
+			campos[quantidade++] = sb.toString();
+			if (i == linha.length())
+				break;
+			i++;
+		}
+		if (quantidade < CAMPOS_OBRIGATORIOS)
+			throw new RegistroMalformadoException("esperados " + CAMPOS_OBRIGATORIOS + " ou " + CAMPOS.length
+					+ " campos, encontrados " + quantidade);
+		return campos;
+	}
+
+	private static int leCampoEntreAspas(String linha, int i, StringBuilder sb) throws RegistroMalformadoException {
+		while (i < linha.length()) {
+			char caractere = linha.charAt(i++);
+			if (caractere != '"') {
+				sb.append(caractere);
+			} else if (i < linha.length() && linha.charAt(i) == '"') {
+				sb.append('"');
+				i++;
+			} else {
+				return i;
+			}
+		}
+		throw new RegistroMalformadoException("aspas sem fechamento");
+	}
+
+	/**
+	 * Separa uma linha JSON nos campos de cadastro.
+	 * 
+	 * @param linha
+	 *            Linha com um objeto JSON.
+	 * @return Campos na ordem de CAMPOS; a imagem e null quando nao informada.
+	 * @throws RegistroMalformadoException
+	 *             Excessao lancada quando a linha nao e um objeto JSON com
+	 *             valores de texto ou falta um campo obrigatorio.
+	 */
+	public static String[] leJson(String linha) throws RegistroMalformadoException {
+		String[] campos = new String[CAMPOS.length];
+		LeitorJson leitor = new LeitorJson(linha);
+		leitor.espera('{');
+		if (!leitor.consome('}')) {
+			do {
+				String chave = leitor.leTexto();
+				leitor.espera(':');
+				String valor = leitor.leValor(chave);
+				for (int campo = 0; campo < CAMPOS.length; campo++)
+					if (CAMPOS[campo].equals(chave))
+						campos[campo] = valor;
+			} while (leitor.consome(','));
+			leitor.espera('}');
+		}
+		leitor.esperaFim();
+		for (int campo = 0; campo < CAMPOS_OBRIGATORIOS; campo++)
+			if (campos[campo] == null)
+				throw new RegistroMalformadoException("campo " + CAMPOS[campo] + " ausente");
+		return campos;
+	}
+
+	/**
+	 * Leitor de um objeto JSON de uma linha, com a posicao atual no texto.
+	 */
+	private static final class LeitorJson {
+		private final String texto;
+		private int posicao;
+
+		LeitorJson(String texto) {
+			this.texto = texto;
+		}
+
+		boolean consome(char esperado) {
+			pulaEspacos();
+			if (posicao < texto.length() && texto.charAt(posicao) == esperado) {
+				posicao++;
+				return true;
+			}
+			return false;
+		}
+
+		void espera(char esperado) throws RegistroMalformadoException {
+			if (!consome(esperado))
+				throw new RegistroMalformadoException("esperado '" + esperado + "' na coluna " + (posicao + 1));
+		}
+
+		void esperaFim() throws RegistroMalformadoException {
+			pulaEspacos();
+			if (posicao < texto.length())
+				throw new RegistroMalformadoException("texto depois do objeto na coluna " + (posicao + 1));
+		}
+
+		String leValor(String chave) throws RegistroMalformadoException {
+			pulaEspacos();
+			if (texto.startsWith("null", posicao)) {
+				posicao += 4;
+				return null;
+			}
+			if (posicao == texto.length() || texto.charAt(posicao) != '"')
+				throw new RegistroMalformadoException("o valor de " + chave + " deve ser texto ou null");
+			return leTexto();
+		}
+
+		String leTexto() throws RegistroMalformadoException {
+			espera('"');
+			StringBuilder sb = new StringBuilder();
+			while (posicao < texto.length()) {
+				char caractere = texto.charAt(posicao++);
+				if (caractere == '"')
+					return sb.toString();
+				if (caractere < ' ')
+					throw new RegistroMalformadoException("caractere de controle na coluna " + posicao);
+				if (caractere == '\\')
+					caractere = leEscape();
+				sb.append(caractere);
+			}
+			throw new RegistroMalformadoException("aspas sem fechamento");
+		}
+
+		private char leEscape() throws RegistroMalformadoException {
+			if (posicao == texto.length())
+				throw new RegistroMalformadoException("aspas sem fechamento");
+			char caractere = texto.charAt(posicao++);
+			switch (caractere) {
+			case '"':
+			case '\\':
+			case '/':
+				return caractere;
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'u':
+				int valor = 0;
+				for (int i = 0; i < 4; i++) {
+					int digito = posicao < texto.length() ? Character.digit(texto.charAt(posicao++), 16) : -1;
+					if (digito < 0)
+						throw new RegistroMalformadoException("escape \\u invalido na coluna " + posicao);
+					valor = valor * 16 + digito;
+				}
+				return (char) valor;
+			default:
+				throw new RegistroMalformadoException("escape invalido na coluna " + posicao);
+			}
+		}
+
+		private void pulaEspacos() {
+			while (posicao < texto.length() && isEspaco(texto.charAt(posicao)))
+				posicao++;
+		}
+
+		private static boolean isEspaco(char caractere) {
+			return caractere == ' ' || caractere == '\t' || caractere == '\r' || caractere == '\n';
+		}
+	}
+}
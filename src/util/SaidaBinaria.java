@@ -0,0 +1,121 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Entidade que escreve valores binarios em um arquivo por um FileChannel. <br>
+ * Os valores vao para um buffer de 1 MiB, que so e gravado no canal quando
+ * enche, e todo byte gravado entra em um CRC32. Textos sao gravados em UTF-8,
+ * precedidos do tamanho em bytes (-1 para null). Ao terminar, finaliza grava o
+ * CRC32 no fim do arquivo e forca os dados para o disco.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class SaidaBinaria implements Closeable {
+	private static final int TAMANHO_DO_BUFFER = 1 << 20;
+	private final FileChannel canal;
+	private final ByteBuffer buffer;
+	private final CRC32 crc;
+
+	/**
+	 * Construtor de SaidaBinaria. O arquivo e criado, ou esvaziado se ja
+	 * existir.
+	 * 
+	 * @param arquivo
+	 *            Arquivo a ser escrito.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser aberto.
+	 */
+	public SaidaBinaria(Path arquivo) throws IOException {
+		this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		this.buffer = ByteBuffer.allocate(TAMANHO_DO_BUFFER);
+		this.crc = new CRC32();
+	}
+
+	public void escreveByte(int valor) throws IOException {
+		garante(Byte.BYTES);
+		buffer.put((byte) valor);
+	}
+
+	public void escreveInt(int valor) throws IOException {
+		garante(Integer.BYTES);
+		buffer.putInt(valor);
+	}
+
+	public void escreveLong(long valor) throws IOException {
+		garante(Long.BYTES);
+		buffer.putLong(valor);
+	}
+
+	/**
+	 * Escreve um texto em UTF-8, precedido do tamanho em bytes.
+	 * 
+	 * @param texto
+	 *            Texto a ser escrito; pode ser null.
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser escrito.
+	 */
+	public void escreveTexto(String texto) throws IOException {
+		if (texto == null) {
+			escreveInt(-1);
+			return;
+		}
+		byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+		escreveInt(bytes.length);
+		if (bytes.length <= buffer.capacity()) {
+			garante(bytes.length);
+			buffer.put(bytes);
+		} else {
+			esvazia();
+			crc.update(bytes);
+			grava(ByteBuffer.wrap(bytes));
+		}
+	}
+
+	/**
+	 * Grava o que restou no buffer, depois o CRC32 de tudo o que foi escrito, e
+	 * forca os dados para o disco.
+	 * 
+	 * @throws IOException
+	 *             Excessao lancada quando o arquivo nao pode ser escrito.
+	 */
+	public void finaliza() throws IOException {
+		esvazia();
+		buffer.putLong(crc.getValue());
+		buffer.flip();
+		grava(buffer);
+		buffer.clear();
+		canal.force(true);
+	}
+
+	@Override
+	public void close() throws IOException {
+		canal.close();
+	}
+
+	private void garante(int bytes) throws IOException {
+		if (buffer.remaining() < bytes)
+			esvazia();
+	}
+
+	private void esvazia() throws IOException {
+		buffer.flip();
+		crc.update(buffer.array(), 0, buffer.limit());
+		grava(buffer);
+		buffer.clear();
+	}
+
+	private void grava(ByteBuffer dados) throws IOException {
+		while (dados.hasRemaining())
+			canal.write(dados);
+	}
+}
@@ -0,0 +1,104 @@
+package util;
+
+import java.util.Arrays;
+
+import core.TokensDaMensagem;
+import exceptions.HashtagException;
+import exceptions.TamanhoDaMensagemException;
+
+/**
+ * Entidade que separa a mensagem de um Post em texto, midias e hashtags. <br>
+ * A mensagem e percorrida uma unica vez e os tokens sao registrados apenas
+ * pelos seus limites na String original. O texto vai ate a primeira midia ou
+ * hashtag; tudo a partir do primeiro '#' sao hashtags. O trecho entre os dois
+ * e dividido em midias a cada espaco, como o parser original fazia com
+ * split(" "): espacos repetidos geram midias vazias, as vazias do fim sao
+ * descartadas e um trecho vazio vira uma unica midia vazia, entao um Post so
+ * com texto continua com dois itens de conteudo.
+ * 
+ * @author Matteus Silva
+ * 
+ */
+public final class TokenizadorDeMensagem {
+	private static final String IMAGEM = "<imagem>";
+	private static final String AUDIO = "<audio>";
+	private static final int TAMANHO_MAXIMO_DO_TEXTO = 200;
+	private static final int CAPACIDADE_INICIAL = 16;
+
+	private TokenizadorDeMensagem() {
+	}
+
+	/**
+	 * Separa a mensagem em tokens.
+	 * 
+	 * @param mensagem
+	 *            Mensagem digitada pelo usuario.
+	 * @return Retorna os tokens da mensagem.
+	 * @throws TamanhoDaMensagemException
+	 *             Excessao lancada quando o texto passa de 200 caracteres.
+	 * @throws HashtagException
+	 *             Excessao lancada quando ha uma hashtag que nao comeca com o
+	 *             caractere #.
+	 */
+	public static TokensDaMensagem tokeniza(String mensagem) throws TamanhoDaMensagemException, HashtagException {
+		int[] limites = new int[CAPACIDADE_INICIAL];
+		int quantidade = 0;
+		int quantidadeDeMidias = 0;
+		int tamanho = mensagem.length();
+		int i = 0;
+
+		while (i < tamanho && mensagem.charAt(i) != '#' && !isInicioDeMidia(mensagem, i))
+			i++;
+		if (i > TAMANHO_MAXIMO_DO_TEXTO)
+			throw new TamanhoDaMensagemException();
+		limites[quantidade++] = 0;
+		limites[quantidade++] = i;
+
+		int inicioDasMidias = i;
+		while (i < tamanho && mensagem.charAt(i) != '#')
+			i++;
+		int fimDasMidias = i;
+		while (fimDasMidias > inicioDasMidias && mensagem.charAt(fimDasMidias - 1) == ' ')
+			fimDasMidias--;
+		int inicioDaMidia = inicioDasMidias;
+		do {
+			int fimDaMidia = inicioDaMidia;
+			while (fimDaMidia < fimDasMidias && mensagem.charAt(fimDaMidia) != ' ')
+				fimDaMidia++;
+			limites = garanteCapacidade(limites, quantidade);
+			limites[quantidade++] = inicioDaMidia;
+			limites[quantidade++] = fimDaMidia;
+			quantidadeDeMidias++;
+			inicioDaMidia = fimDaMidia + 1;
+		} while (inicioDaMidia <= fimDasMidias);
+
+		int fimDasHashtags = tamanho;
+		while (fimDasHashtags > i && mensagem.charAt(fimDasHashtags - 1) == ' ')
+			fimDasHashtags--;
+		int quantidadeDeHashtags = 0;
+		while (i < fimDasHashtags) {
+			int inicio = i;
+			while (i < fimDasHashtags && mensagem.charAt(i) != ' ')
+				i++;
+			if (mensagem.charAt(inicio) != '#')
+				throw new HashtagException(mensagem.substring(inicio, i));
+			limites = garanteCapacidade(limites, quantidade);
+			limites[quantidade++] = inicio;
+			limites[quantidade++] = i;
+			quantidadeDeHashtags++;
+			i++;
+		}
+		return new TokensDaMensagem(mensagem, limites, quantidadeDeMidias, quantidadeDeHashtags);
+	}
+
+	private static boolean isInicioDeMidia(String mensagem, int indice) {
+		return mensagem.charAt(indice) == '<'
+				&& (mensagem.startsWith(IMAGEM, indice) || mensagem.startsWith(AUDIO, indice));
+	}
+
+	private static int[] garanteCapacidade(int[] limites, int quantidade) {
+		if (quantidade + 2 <= limites.length)
+			return limites;
+		return Arrays.copyOf(limites, limites.length * 2);
+	}
+}
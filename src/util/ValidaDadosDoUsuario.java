@@ -1,24 +1,43 @@
 package util;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.time.Month;
+import java.time.Year;
+
 import exceptions.DataNaoExisteException;
 import exceptions.EmailInvalidoException;
 import exceptions.FormatoDeDataInvalidoException;
 
 /**
- * Classe estatica que contem os metodos que validam os dados de data e e-mail
- * de Usuario.
+ * Classe estatica que contem os metodos que validam os dados de nome, data e
+ * e-mail de Usuario. <br>
+ * As validacoes de data e e-mail percorrem a entrada uma unica vez, sem
+ * expressoes regulares, sem split e sem usar excessoes para decidir o
+ * resultado.
  * 
  * @author matteus
- *
+ * 
  */
 public class ValidaDadosDoUsuario {
-	private static DateTimeFormatter DATA_PATTERN = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-	private static final String EMAIL_PATTERN = "^[_A-Za-z0-9-\\+]+(\\.[_A-Za-z0-9-]+)*@"
-			+ "[A-Za-z0-9-]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$";
+	private static final int TAMANHO_DA_DATA = 10;
+
+	/**
+	 * Resultado da verificacao de uma data no formato dd/MM/yyyy.
+	 */
+	public enum SituacaoDaData {
+		VALIDA, FORMATO_INVALIDO, INEXISTENTE
+	}
+
+	/**
+	 * Verifica o nome de um usuario, que nao pode ser nulo nem vazio.
+	 * 
+	 * @param nome
+	 *            Nome a ser verificado.
+	 * @return true se o nome e valido.
+	 */
+	public static boolean isNomeValido(String nome) {
+		return nome != null && !nome.trim().isEmpty();
+	}
 
 	/**
 	 * Metodo que valida a data de nascimento de um usuario.
@@ -33,20 +52,50 @@ public class ValidaDadosDoUsuario {
 	 *             Excessao lancada caso a data de entrada nao exista.
 	 */
 	public static LocalDate validaData(String dataNasc) throws FormatoDeDataInvalidoException, DataNaoExisteException {
-		if (isFormatoDeDataInvalido(dataNasc))
+		switch (classificaData(dataNasc)) {
+		case FORMATO_INVALIDO:
 			throw new FormatoDeDataInvalidoException();
-		try {
-			LocalDate dataValidada;
-			dataValidada = LocalDate.parse(dataNasc, DATA_PATTERN);
-			String[] dataSeparada = dataNasc.split("/");
-			if (Integer.parseInt(dataSeparada[0]) != dataValidada.getDayOfMonth())
-				throw new DataNaoExisteException();
-			return dataValidada;
-		} catch (Exception e) {
+		case INEXISTENTE:
 			throw new DataNaoExisteException();
+		default:
+			return LocalDate.of(numero(dataNasc, 6, 10), numero(dataNasc, 3, 5), numero(dataNasc, 0, 2));
 		}
 	}
 
+	/**
+	 * Verifica uma data no formato dd/MM/yyyy em uma unica passada. <br>
+	 * O formato e invalido quando as tres primeiras partes separadas por "/" nao
+	 * tem 2, 2 e 4 caracteres numericos (um sinal no inicio e aceito, como em
+	 * Integer.valueOf). Com o formato valido, a data so existe se a entrada for
+	 * exatamente dd/MM/yyyy e o dia existir no mes.
+	 * 
+	 * @param data
+	 *            Data a ser verificada.
+	 * @return Situacao da data.
+	 */
+	public static SituacaoDaData classificaData(String data) {
+		int inicio = 0;
+		for (int parte = 0; parte < 3; parte++) {
+			int fim = inicio;
+			while (fim < data.length() && data.charAt(fim) != '/')
+				fim++;
+			if (fim - inicio != (parte == 2 ? 4 : 2) || !isNumerica(data, inicio, fim))
+				return SituacaoDaData.FORMATO_INVALIDO;
+			inicio = fim + 1;
+		}
+		if (data.length() != TAMANHO_DA_DATA || data.charAt(2) != '/' || data.charAt(5) != '/')
+			return SituacaoDaData.INEXISTENTE;
+		for (int i = 0; i < TAMANHO_DA_DATA; i++)
+			if (i != 2 && i != 5 && (data.charAt(i) < '0' || data.charAt(i) > '9'))
+				return SituacaoDaData.INEXISTENTE;
+		int dia = numero(data, 0, 2);
+		int mes = numero(data, 3, 5);
+		int ano = numero(data, 6, 10);
+		if (ano < 1 || mes < 1 || mes > 12 || dia < 1 || dia > Month.of(mes).length(Year.isLeap(ano)))
+			return SituacaoDaData.INEXISTENTE;
+		return SituacaoDaData.VALIDA;
+	}
+
 	/**
 	 * Valida o e-mail de Usuario.
 	 * 
@@ -57,29 +106,98 @@ public class ValidaDadosDoUsuario {
 	 *             invalido.
 	 */
 	public static void validaEmail(String email) throws EmailInvalidoException {
-		Pattern pattern = Pattern.compile(EMAIL_PATTERN);
-		Matcher matcher = pattern.matcher(email);
-		if (!matcher.find()) {
+		if (!isEmailValido(email))
 			throw new EmailInvalidoException();
+	}
+
+	/**
+	 * Verifica um e-mail em uma unica passada. <br>
+	 * Antes do "@" vem uma ou mais partes separadas por ponto, com letras,
+	 * digitos, "_" e "-" (a primeira tambem aceita "+"). Depois do "@" vem o
+	 * dominio: a primeira parte aceita letras, digitos e "-", as do meio letras
+	 * e digitos, e a ultima, obrigatoria, tem pelo menos duas letras. Uma quebra
+	 * de linha no final e ignorada.
+	 * 
+	 * @param email
+	 *            E-mail a ser verificado.
+	 * @return true se o e-mail e valido.
+	 */
+	public static boolean isEmailValido(String email) {
+		int fim = fimSemQuebraDeLinha(email);
+		int i = 0;
+		int tamanhoDaParte = 0;
+		boolean primeiraParte = true;
+		for (; i < fim && email.charAt(i) != '@'; i++) {
+			char caractere = email.charAt(i);
+			if (caractere == '.') {
+				if (tamanhoDaParte == 0)
+					return false;
+				primeiraParte = false;
+				tamanhoDaParte = 0;
+			} else if (isAlfanumerico(caractere) || caractere == '_' || caractere == '-'
+					|| (caractere == '+' && primeiraParte)) {
+				tamanhoDaParte++;
+			} else {
+				return false;
+			}
+		}
+		if (i == fim || tamanhoDaParte == 0)
+			return false;
+		int partesDoDominio = 0;
+		tamanhoDaParte = 0;
+		boolean soLetras = true;
+		for (i++; i < fim; i++) {
+			char caractere = email.charAt(i);
+			if (caractere == '.') {
+				if (tamanhoDaParte == 0)
+					return false;
+				partesDoDominio++;
+				tamanhoDaParte = 0;
+				soLetras = true;
+			} else if (isAlfanumerico(caractere) || (caractere == '-' && partesDoDominio == 0)) {
+				soLetras &= isLetra(caractere);
+				tamanhoDaParte++;
+			} else {
+				return false;
+			}
 		}
+		return partesDoDominio > 0 && tamanhoDaParte >= 2 && soLetras;
 	}
 
-	private static boolean isFormatoDeDataInvalido(String data) {
-		String[] dataSeparada = data.split("/");
-		if (dataSeparada[0].length() != 2)
-			return true;
-		if (dataSeparada[1].length() != 2)
-			return true;
-		if (dataSeparada[2].length() != 4)
-			return true;
-		try {
-			Integer.valueOf(dataSeparada[0]);
-			Integer.valueOf(dataSeparada[1]);
-			Integer.valueOf(dataSeparada[2]);
-		} catch (NumberFormatException e) {
-			return true;
+	private static int fimSemQuebraDeLinha(String texto) {
+		int fim = texto.length();
+		if (fim == 0)
+			return fim;
+		char ultimo = texto.charAt(fim - 1);
+		if (ultimo == '\n' && fim > 1 && texto.charAt(fim - 2) == '\r')
+			return fim - 2;
+		if (ultimo == '\n' || ultimo == '\r' || ultimo == '\u0085' || ultimo == '\u2028' || ultimo == '\u2029')
+			return fim - 1;
+		return fim;
+	}
+
+	private static boolean isLetra(char caractere) {
+		return (caractere >= 'a' && caractere <= 'z') || (caractere >= 'A' && caractere <= 'Z');
+	}
+
+	private static boolean isAlfanumerico(char caractere) {
+		return isLetra(caractere) || (caractere >= '0' && caractere <= '9');
+	}
+
+	private static boolean isNumerica(String texto, int inicio, int fim) {
+		for (int i = inicio; i < fim; i++) {
+			char caractere = texto.charAt(i);
+			boolean sinal = i == inicio && (caractere == '+' || caractere == '-');
+			if (!sinal && Character.digit(caractere, 10) < 0)
+				return false;
 		}
-		return false;
+		return true;
 	}
 
+	private static int numero(String texto, int inicio, int fim) {
+		int valor = 0;
+		for (int i = inicio; i < fim; i++)
+			valor = valor * 10 + texto.charAt(i) - '0';
+		return valor;
+	}
 }
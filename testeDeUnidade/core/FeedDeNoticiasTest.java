@@ -0,0 +1,132 @@
+package core;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import util.PostFactory;
+
+public class FeedDeNoticiasTest {
+	private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+	private static final LocalDateTime INICIO = LocalDateTime.of(2015, 8, 1, 8, 0);
+
+	@Test
+	public void testaOrdemEPaginas() throws Exception {
+		GrafoSocial grafo = new GrafoSocial();
+		FeedDeNoticias feed = new FeedDeNoticias(grafo);
+		Usuario leitor = criaUsuario("leitor");
+		Usuario fafa = criaUsuario("fafa");
+		Usuario naza = criaUsuario("naza");
+		Usuario estranha = criaUsuario("estranha");
+		amigos(grafo, feed, leitor, fafa);
+		amigos(grafo, feed, leitor, naza);
+		Post antigo = publica(feed, fafa, 0);
+		Post meio = publica(feed, naza, 1);
+		publica(feed, estranha, 2);
+		Post novo = publica(feed, fafa, 3);
+		assertEquals(Arrays.asList(entrada(fafa, novo), entrada(naza, meio), entrada(fafa, antigo)),
+				feed.getFeed(leitor, 0, 10));
+		assertEquals(Arrays.asList(entrada(naza, meio)), feed.getFeed(leitor, 1, 1));
+		assertEquals(0, feed.getFeed(leitor, 3, 10).size());
+		assertEquals(0, feed.getFeed(leitor, 0, 0).size());
+	}
+
+	@Test
+	public void testaLinhaDoTempoMontadaDepois() throws Exception {
+		GrafoSocial grafo = new GrafoSocial();
+		FeedDeNoticias feed = new FeedDeNoticias(grafo);
+		Usuario leitor = criaUsuario("leitor");
+		Usuario fafa = criaUsuario("fafa");
+		Post primeiro = publica(feed, fafa, 0);
+		amigos(grafo, feed, leitor, fafa);
+		assertEquals(Arrays.asList(entrada(fafa, primeiro)), feed.getFeed(leitor, 0, 10));
+		Usuario naza = criaUsuario("naza");
+		Post daNaza = publica(feed, naza, 5);
+		amigos(grafo, feed, leitor, naza);
+		assertEquals(Arrays.asList(entrada(naza, daNaza), entrada(fafa, primeiro)), feed.getFeed(leitor, 0, 10));
+	}
+
+	@Test
+	public void testaPaginasAlemDaCapacidade() throws Exception {
+		GrafoSocial grafo = new GrafoSocial();
+		FeedDeNoticias feed = new FeedDeNoticias(grafo, 4);
+		Usuario leitor = criaUsuario("leitor");
+		Usuario fafa = criaUsuario("fafa");
+		Usuario naza = criaUsuario("naza");
+		amigos(grafo, feed, leitor, fafa);
+		amigos(grafo, feed, leitor, naza);
+		feed.getFeed(leitor, 0, 1);
+		List<String> esperado = new ArrayList<>();
+		for (int minuto = 0; minuto < 12; minuto++) {
+			Usuario autor = minuto % 3 == 0 ? naza : fafa;
+			esperado.add(0, entrada(autor, publica(feed, autor, minuto)));
+		}
+		assertEquals(esperado.subList(0, 4), feed.getFeed(leitor, 0, 4));
+		assertEquals(esperado.subList(6, 10), feed.getFeed(leitor, 6, 4));
+		assertEquals(esperado.subList(10, 12), feed.getFeed(leitor, 10, 4));
+		grafo.desfazAmizade(leitor, naza);
+		List<String> semNaza = new ArrayList<>();
+		for (String entrada : esperado)
+			if (entrada.startsWith("fafa@"))
+				semNaza.add(entrada);
+		assertEquals(semNaza.subList(0, 4), feed.getFeed(leitor, 0, 4));
+		grafo.removeUsuario(fafa);
+		assertEquals(0, feed.getFeed(leitor, 0, 4).size());
+	}
+
+	@Test
+	public void testaAutorLidoNaLeitura() throws Exception {
+		GrafoSocial grafo = new GrafoSocial();
+		FeedDeNoticias feed = new FeedDeNoticias(grafo, 4);
+		Usuario leitor = criaUsuario("leitor");
+		Usuario celebridade = criaUsuario("celebridade");
+		Usuario fafa = criaUsuario("fafa");
+		amigos(grafo, feed, leitor, celebridade);
+		amigos(grafo, feed, leitor, fafa);
+		feed.getFeed(leitor, 0, 1);
+		List<String> esperado = new ArrayList<>();
+		esperado.add(0, entrada(celebridade, publica(feed, celebridade, 0)));
+		celebridade.adicionaPops(600);
+		assertTrue(celebridade.isPopular());
+		for (int minuto = 1; minuto < 10; minuto++) {
+			Usuario autor = minuto % 2 == 0 ? fafa : celebridade;
+			esperado.add(0, entrada(autor, publica(feed, autor, minuto)));
+		}
+		celebridade.removePops(600);
+		esperado.add(0, entrada(celebridade, publica(feed, celebridade, 10)));
+		assertEquals(esperado.subList(0, 3), feed.getFeed(leitor, 0, 3));
+		assertEquals(esperado, feed.getFeed(leitor, 0, esperado.size()));
+		assertEquals(esperado.subList(8, 11), feed.getFeed(leitor, 8, 5));
+		grafo.desfazAmizade(leitor, celebridade);
+		assertEquals(4, feed.getFeed(leitor, 0, 10).size());
+	}
+
+	private static void amigos(GrafoSocial grafo, FeedDeNoticias feed, Usuario usuario, Usuario amigo)
+			throws Exception {
+		grafo.solicitaAmizade(usuario, amigo);
+		grafo.aceitaAmizade(amigo, usuario);
+		feed.registraAmizade(usuario, amigo);
+	}
+
+	private static Post publica(FeedDeNoticias feed, Usuario autor, int minuto) throws Exception {
+		Post post = PostFactory.getInstance().criaPost("Post " + minuto + " #feed",
+				INICIO.plusMinutes(minuto).format(FORMATO));
+		autor.adicionaPost(post);
+		feed.registraPost(autor, post);
+		return post;
+	}
+
+	private static String entrada(Usuario autor, Post post) {
+		return autor.getEmail() + ": " + post;
+	}
+
+	private static Usuario criaUsuario(String nome) throws Exception {
+		return new Usuario(nome, nome + "@email.com", "senha123", "10/10/1990", null);
+	}
+}
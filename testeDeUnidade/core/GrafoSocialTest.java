@@ -0,0 +1,179 @@
+package core;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import exceptions.NaoTemAmizadeException;
+import exceptions.SolicitacaoInexistenteException;
+
+public class GrafoSocialTest {
+	private static final int USUARIOS = 40;
+
+	@Test
+	public void testaAmizades() throws Exception {
+		GrafoSocial grafo = new GrafoSocial();
+		Usuario fafa = criaUsuario(0);
+		Usuario naza = criaUsuario(1);
+		Usuario madonna = criaUsuario(2);
+		grafo.solicitaAmizade(fafa, naza);
+		grafo.solicitaAmizade(fafa, naza);
+		assertFalse(grafo.saoAmigos(fafa, naza));
+		grafo.aceitaAmizade(naza, fafa);
+		assertTrue(grafo.saoAmigos(fafa, naza));
+		assertTrue(grafo.saoAmigos(naza, fafa));
+		assertEquals(1, grafo.getQtdAmigos(fafa));
+		assertEquals(0, grafo.getQtdAmigos(madonna));
+		try {
+			grafo.aceitaAmizade(naza, fafa);
+			fail("A solicitacao ja foi aceita");
+		} catch (SolicitacaoInexistenteException e) {
+			// esperado
+		}
+		grafo.solicitaAmizade(madonna, naza);
+		grafo.rejeitaAmizade(naza, madonna);
+		assertFalse(grafo.saoAmigos(madonna, naza));
+		try {
+			grafo.verificaAmizade(madonna, naza);
+			fail("Madonna e Naza nao sao amigas");
+		} catch (NaoTemAmizadeException e) {
+			// esperado
+		}
+		grafo.desfazAmizade(naza, fafa);
+		assertFalse(grafo.saoAmigos(fafa, naza));
+		assertEquals(0, grafo.getQtdAmigos(naza));
+		try {
+			grafo.desfazAmizade(naza, fafa);
+			fail("A amizade ja foi desfeita");
+		} catch (NaoTemAmizadeException e) {
+			// esperado
+		}
+	}
+
+	@Test
+	public void testaMuitosUsuarios() throws Exception {
+		GrafoSocial grafo = new GrafoSocial();
+		Usuario centro = criaUsuario(0);
+		List<Usuario> pontas = new ArrayList<>();
+		for (int i = 1; i <= 500; i++) {
+			Usuario ponta = criaUsuario(i);
+			pontas.add(ponta);
+			grafo.solicitaAmizade(ponta, centro);
+			grafo.aceitaAmizade(centro, ponta);
+		}
+		assertEquals(500, grafo.getQtdAmigos(centro));
+		for (Usuario ponta : pontas) {
+			assertTrue(grafo.saoAmigos(centro, ponta));
+			assertEquals(1, grafo.getQtdAmigos(ponta));
+		}
+		assertEquals(1, grafo.getQtdAmigosEmComum(pontas.get(0), pontas.get(499)));
+		assertEquals(0, grafo.getQtdAmigosEmComum(centro, pontas.get(0)));
+	}
+
+	@Test
+	public void testaSugestoesDepoisDeMudarEmail() throws Exception {
+		GrafoSocial grafo = new GrafoSocial();
+		Usuario dono = new Usuario("Dono", "dono@email.com", "senha123", "10/10/1990", null);
+		Usuario ponte = new Usuario("Ponte", "ponte@email.com", "senha123", "10/10/1990", null);
+		Usuario p1 = new Usuario("Primeiro", "p1@email.com", "senha123", "10/10/1990", null);
+		Usuario p2 = new Usuario("Segundo", "p2@email.com", "senha123", "10/10/1990", null);
+		for (Usuario amigo : new Usuario[] { dono, p1, p2 }) {
+			grafo.solicitaAmizade(amigo, ponte);
+			grafo.aceitaAmizade(ponte, amigo);
+		}
+		assertEquals("[p1@email.com, p2@email.com]", emails(grafo.getSugestoesDeAmizade(dono, 2)).toString());
+		p1.setAtributo("E-mail", "z1@email.com");
+		grafo.registraMudancaDeEmail(p1);
+		assertEquals("[p2@email.com, z1@email.com]", emails(grafo.getSugestoesDeAmizade(dono, 2)).toString());
+	}
+
+	@Test
+	public void testaIgualAoCalculoDireto() throws Exception {
+		Random aleatorio = new Random(42);
+		GrafoSocial grafo = new GrafoSocial();
+		Usuario[] usuarios = new Usuario[USUARIOS];
+		for (int i = 0; i < USUARIOS; i++)
+			usuarios[i] = criaUsuario(i);
+		boolean[][] amigos = new boolean[USUARIOS][USUARIOS];
+		boolean[][] solicitou = new boolean[USUARIOS][USUARIOS];
+		boolean[] removidos = new boolean[USUARIOS];
+		for (int passo = 0; passo < 3000; passo++) {
+			int a = aleatorio.nextInt(USUARIOS);
+			int b = aleatorio.nextInt(USUARIOS);
+			if (a == b)
+				continue;
+			int operacao = aleatorio.nextInt(20);
+			if (operacao < 9 && !amigos[a][b] && !solicitou[a][b]) {
+				grafo.solicitaAmizade(usuarios[a], usuarios[b]);
+				solicitou[a][b] = true;
+			} else if (operacao < 15 && solicitou[a][b]) {
+				grafo.aceitaAmizade(usuarios[b], usuarios[a]);
+				solicitou[a][b] = false;
+				amigos[a][b] = amigos[b][a] = true;
+			} else if (operacao < 17 && solicitou[a][b]) {
+				grafo.rejeitaAmizade(usuarios[b], usuarios[a]);
+				solicitou[a][b] = false;
+			} else if (operacao < 19 && amigos[a][b]) {
+				grafo.desfazAmizade(usuarios[a], usuarios[b]);
+				amigos[a][b] = amigos[b][a] = false;
+			} else if (operacao == 19 && aleatorio.nextInt(10) == 0) {
+				grafo.removeUsuario(usuarios[a]);
+				removidos[a] = true;
+			}
+			int consultado = aleatorio.nextInt(USUARIOS);
+			int outro = aleatorio.nextInt(USUARIOS);
+			assertEquals(amigos[consultado][outro], grafo.saoAmigos(usuarios[consultado], usuarios[outro]));
+			assertEquals(contaEmComum(amigos, consultado, outro),
+					grafo.getQtdAmigosEmComum(usuarios[consultado], usuarios[outro]));
+			int quantidade = 1 + aleatorio.nextInt(GrafoSocial.SUGESTOES_EM_CACHE + 5);
+			assertEquals("passo " + passo,
+					sugestoesDiretas(usuarios, amigos, solicitou, removidos, consultado, quantidade),
+					emails(grafo.getSugestoesDeAmizade(usuarios[consultado], quantidade)));
+		}
+	}
+
+	private static List<String> sugestoesDiretas(Usuario[] usuarios, boolean[][] amigos, boolean[][] solicitou,
+			boolean[] removidos, int usuario, int quantidade) {
+		List<Integer> candidatos = new ArrayList<>();
+		for (int v = 0; v < usuarios.length; v++)
+			if (v != usuario && !removidos[v] && !amigos[usuario][v] && !solicitou[usuario][v]
+					&& !solicitou[v][usuario] && contaEmComum(amigos, usuario, v) > 0)
+				candidatos.add(v);
+		candidatos.sort((v, w) -> {
+			int porComuns = Integer.compare(contaEmComum(amigos, usuario, w), contaEmComum(amigos, usuario, v));
+			return porComuns != 0 ? porComuns : usuarios[v].getEmail().compareTo(usuarios[w].getEmail());
+		});
+		List<String> sugeridos = new ArrayList<>();
+		for (int i = 0; i < candidatos.size() && i < quantidade; i++)
+			sugeridos.add(usuarios[candidatos.get(i)].getEmail());
+		return sugeridos;
+	}
+
+	private static int contaEmComum(boolean[][] amigos, int usuario, int outro) {
+		int emComum = 0;
+		for (int v = 0; v < amigos.length; v++)
+			if (amigos[usuario][v] && amigos[outro][v])
+				emComum++;
+		return emComum;
+	}
+
+	private static List<String> emails(List<Usuario> usuarios) {
+		List<String> emails = new ArrayList<>();
+		Set<String> distintos = new HashSet<>();
+		for (Usuario usuario : usuarios) {
+			emails.add(usuario.getEmail());
+			assertTrue(distintos.add(usuario.getEmail()));
+		}
+		return emails;
+	}
+
+	private static Usuario criaUsuario(int numero) throws Exception {
+		return new Usuario("Usuario", String.format("u%03d@email.com", numero), "senha123", "10/10/1990", null);
+	}
+}
@@ -0,0 +1,126 @@
+package core;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import util.PostFactory;
+
+public class SnapshotDoMaisPopTest {
+
+	@Test
+	public void testaIdaEVolta() throws Exception {
+		Path pasta = Files.createTempDirectory("snapshot");
+		Path arquivo = pasta.resolve("maispop.snapshot");
+		Path copia = pasta.resolve("copia.snapshot");
+		try {
+			GrafoSocial grafo = new GrafoSocial();
+			Usuario fafa = new Usuario("Fafa", "fafa@email.com", "fafa_S2", "10/10/1990", null);
+			Usuario naza = new Usuario("Naza", "naza@email.com", "belzinha", "10/10/1980", "imagens/naza.jpg");
+			Usuario madonna = new Usuario("Madonna", "madonna@email.com", "iamawesome", "16/08/1958", null);
+			Usuario removida = new Usuario("Removida", "removida@email.com", "senha123", "01/01/2000", null);
+			grafo.solicitaAmizade(fafa, naza);
+			grafo.aceitaAmizade(naza, fafa);
+			grafo.solicitaAmizade(fafa, removida);
+			grafo.aceitaAmizade(removida, fafa);
+			grafo.solicitaAmizade(madonna, naza);
+			grafo.removeUsuario(removida);
+			naza.adicionaPost(PostFactory.getInstance().criaPost("Bom dia! #cafe", "01/08/2015 09:00:00"));
+			naza.adicionaPost(PostFactory.getInstance().criaPost(
+					"Olha <imagem>imagens/foto.jpg</imagem> #foto #praia", "02/08/2015 10:30:00"));
+			fafa.adicionaPops(1200);
+			fafa.curtirPost(naza.buscaPost(1), naza);
+			fafa.rejeitarPost(naza.buscaPost(0), naza);
+			naza.setAgrupaNotificacoes(true);
+			naza.adicionaNotificacao(new Notificacao(TipoDeNotificacao.POST_CURTIDO, "Fafa", naza.buscaPost(1)));
+			naza.adicionaNotificacao(new Notificacao(TipoDeNotificacao.POST_CURTIDO, "Madonna", naza.buscaPost(1)));
+			naza.adicionaNotificacao(new Notificacao(TipoDeNotificacao.SOLICITACAO_DE_AMIZADE, "Madonna"));
+
+			SnapshotDoMaisPop.salva(arquivo, Arrays.asList(fafa, naza, madonna), grafo);
+			GrafoSocial grafoCarregado = new GrafoSocial();
+			List<Usuario> carregados = SnapshotDoMaisPop.carrega(arquivo, grafoCarregado);
+
+			assertEquals(3, carregados.size());
+			SnapshotDoMaisPop.salva(copia, carregados, grafoCarregado);
+			assertEquals(SnapshotDoMaisPop.leCrc(arquivo), SnapshotDoMaisPop.leCrc(copia));
+			Usuario fafa2 = carregados.get(0);
+			Usuario naza2 = carregados.get(1);
+			Usuario madonna2 = carregados.get(2);
+			assertEquals("fafa@email.com", fafa2.getEmail());
+			assertEquals("Naza", naza2.getNome());
+			assertEquals(naza.getInfo("Data de Nascimento"), naza2.getInfo("Data de Nascimento"));
+			assertEquals(naza.getInfo("Foto"), naza2.getInfo("Foto"));
+			assertEquals(fafa.getPops(), fafa2.getPops());
+			assertEquals(naza.getPops(), naza2.getPops());
+			assertEquals(fafa.getPopularidade(), fafa2.getPopularidade());
+			assertEquals(2, naza2.getPosts().size());
+			for (int i = 0; i < 2; i++) {
+				Post original = naza.buscaPost(i);
+				Post carregado = naza2.buscaPost(i);
+				assertEquals(original.toString(), carregado.toString());
+				assertEquals(original.getHashtags(), carregado.getHashtags());
+				assertEquals(original.getPopularidade(), carregado.getPopularidade());
+				assertEquals(original.getCurtidas(), carregado.getCurtidas());
+				assertEquals(original.getRejeicoes(), carregado.getRejeicoes());
+			}
+			assertTrue(grafoCarregado.saoAmigos(fafa2, naza2));
+			assertEquals(2, grafoCarregado.getQtdAmigos(fafa2));
+			assertFalse(grafoCarregado.saoAmigos(madonna2, naza2));
+			grafoCarregado.aceitaAmizade(naza2, madonna2);
+			assertTrue(grafoCarregado.saoAmigos(madonna2, naza2));
+			assertEquals(3, naza2.getNotificacoes());
+			naza2.adicionaNotificacao(new Notificacao(TipoDeNotificacao.POST_CURTIDO, "Fafa", naza2.buscaPost(1)));
+			assertEquals("Fafa e mais 2 pessoas curtiram seu post de 2015-08-02 10:30:00.",
+					naza2.getNextNotificacao());
+			assertEquals("Madonna quer sua amizade.", naza2.getNextNotificacao());
+		} finally {
+			Files.deleteIfExists(arquivo);
+			Files.deleteIfExists(copia);
+			Files.delete(pasta);
+		}
+	}
+
+	@Test
+	public void testaArquivoCorrompido() throws Exception {
+		Path pasta = Files.createTempDirectory("snapshot");
+		Path arquivo = pasta.resolve("maispop.snapshot");
+		try {
+			Usuario naza = new Usuario("Naza", "naza@email.com", "belzinha", "10/10/1980", null);
+			naza.adicionaPost(PostFactory.getInstance().criaPost("Bom dia! #cafe", "01/08/2015 09:00:00"));
+			SnapshotDoMaisPop.salva(arquivo, Arrays.asList(naza), new GrafoSocial());
+			try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				ByteBuffer byteDoMeio = ByteBuffer.allocate(1);
+				canal.read(byteDoMeio, canal.size() / 2);
+				byteDoMeio.put(0, (byte) (byteDoMeio.get(0) ^ 0x5A));
+				byteDoMeio.rewind();
+				canal.write(byteDoMeio, canal.size() / 2);
+			}
+			carregaComErro(arquivo);
+			try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+				canal.truncate(canal.size() - 3);
+			}
+			carregaComErro(arquivo);
+		} finally {
+			Files.deleteIfExists(arquivo);
+			Files.delete(pasta);
+		}
+	}
+
+	private static void carregaComErro(Path arquivo) {
+		try {
+			SnapshotDoMaisPop.carrega(arquivo, new GrafoSocial());
+			fail("Um snapshot corrompido nao deve ser carregado");
+		} catch (IOException e) {
+			// esperado
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package core.trendingTopics;
+
+import static org.junit.Assert.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import core.Post;
+import core.Relogio;
+import core.TrendingTopics;
+import util.PostFactory;
+
+public class ContadorPorJanelaTest {
+	private static final Duration UMA_HORA = Duration.ofHours(1);
+	private static final Duration UM_DIA = Duration.ofDays(1);
+
+	@Test
+	public void testaExpiracaoDasJanelas() throws Exception {
+		RelogioAjustavel clock = new RelogioAjustavel(LocalDateTime.of(2015, 8, 1, 12, 0));
+		TrendingTopics trendingTopics = criaTrendingTopics(clock);
+		trendingTopics.registra(PostFactory.getInstance().criaPost("velho #a", "01/08/2015 11:30:00"));
+		trendingTopics.registra(PostFactory.getInstance().criaPost("novo #b", "01/08/2015 12:00:00"));
+		assertEquals("Trending Topics:  (1) #b: 1; (2) #a: 1;", trendingTopics.retornaTrendingTopics(UMA_HORA));
+		clock.avanca(Duration.ofMinutes(45));
+		assertEquals("Trending Topics:  (1) #b: 1;", trendingTopics.retornaTrendingTopics(UMA_HORA));
+		assertEquals("Trending Topics:  (1) #b: 1; (2) #a: 1;", trendingTopics.retornaTrendingTopics(UM_DIA));
+		clock.avanca(UM_DIA);
+		assertEquals("Trending Topics:", trendingTopics.retornaTrendingTopics(UM_DIA));
+	}
+
+	@Test
+	public void testaDescontoDePostDoFuturo() throws Exception {
+		RelogioAjustavel clock = new RelogioAjustavel(LocalDateTime.of(2015, 8, 1, 12, 0));
+		TrendingTopics trendingTopics = criaTrendingTopics(clock);
+		Post doFuturo = PostFactory.getInstance().criaPost("amanha #a", "02/08/2015 09:00:00");
+		trendingTopics.registra(doFuturo);
+		clock.avanca(Duration.ofMinutes(30));
+		doFuturo.adicionaHashtag("#epicwin");
+		assertEquals("Trending Topics:  (1) #epicwin: 1; (2) #a: 1;",
+				trendingTopics.retornaTrendingTopics(UMA_HORA));
+		clock.avanca(Duration.ofMinutes(20));
+		trendingTopics.remove(doFuturo);
+		assertEquals("Trending Topics:", trendingTopics.retornaTrendingTopics(UMA_HORA));
+		assertEquals("Trending Topics:", trendingTopics.retornaTrendingTopics(UM_DIA));
+	}
+
+	@Test
+	public void testaRelogioDoCore() throws Exception {
+		Relogio anterior = Relogio.getAtual();
+		RelogioAjustavel clock = new RelogioAjustavel(LocalDateTime.of(2015, 8, 1, 12, 0));
+		try {
+			Relogio.setAtual(new Relogio(clock));
+			TrendingTopics trendingTopics = new TrendingTopics(new ContadorExato(),
+					new ContadorPorJanela(Duration.ofMinutes(1), UMA_HORA));
+			trendingTopics.registra(PostFactory.getInstance().criaPost("agora #a", "01/08/2015 11:59:00"));
+			assertEquals("Trending Topics:  (1) #a: 1;", trendingTopics.retornaTrendingTopics(UMA_HORA));
+			clock.avanca(UMA_HORA);
+			assertEquals("Trending Topics:", trendingTopics.retornaTrendingTopics(UMA_HORA));
+		} finally {
+			Relogio.setAtual(anterior);
+		}
+	}
+
+	private static TrendingTopics criaTrendingTopics(Clock clock) {
+		return new TrendingTopics(new ContadorExato(),
+				new ContadorPorJanela(new Relogio(clock), Duration.ofMinutes(1), UMA_HORA, UM_DIA));
+	}
+
+	/**
+	 * Clock que so anda quando o teste manda.
+	 */
+	private static final class RelogioAjustavel extends Clock {
+		private Instant agora;
+
+		RelogioAjustavel(LocalDateTime inicio) {
+			this.agora = inicio.toInstant(ZoneOffset.UTC);
+		}
+
+		void avanca(Duration intervalo) {
+			agora = agora.plus(intervalo);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return agora;
+		}
+	}
+}
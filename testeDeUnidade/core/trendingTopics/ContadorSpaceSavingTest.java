@@ -0,0 +1,117 @@
+package core.trendingTopics;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import core.EntidadeHashtag;
+import core.TrendingTopics;
+import util.PostFactory;
+
+public class ContadorSpaceSavingTest {
+	private static final int HASHTAGS_DISTINTAS = 50000;
+	private static final int OCORRENCIAS = 200000;
+
+	@Test
+	public void testaErroDentroDoLimite() {
+		ContadorExato exato = new ContadorExato();
+		ContadorSpaceSaving aproximado = ContadorSpaceSaving.comErroMaximo(0.001);
+		String[] fluxo = geraFluxoZipf(new Random(7), 1.1);
+		for (String hashtag : fluxo) {
+			exato.incrementa(hashtag);
+			aproximado.incrementa(hashtag);
+		}
+		long erroMaximo = aproximado.getErroMaximo();
+		assertEquals(OCORRENCIAS / 1000, erroMaximo);
+		assertTrue(aproximado.getQuantidadeDeHashtagsMonitoradas() <= 1000);
+		for (int i = 0; i < HASHTAGS_DISTINTAS; i++) {
+			String hashtag = "#h" + i;
+			int estimada = aproximado.getFrequencia(hashtag);
+			int real = exato.getFrequencia(hashtag);
+			if (estimada > 0) {
+				assertTrue(estimada >= real);
+				assertTrue(estimada - real <= erroMaximo);
+			} else {
+				assertTrue(real <= erroMaximo);
+			}
+		}
+	}
+
+	@Test
+	public void testaMaisFrequentesIguaisAoExato() {
+		for (long semente = 1; semente <= 5; semente++) {
+			ContadorExato exato = new ContadorExato();
+			ContadorSpaceSaving aproximado = new ContadorSpaceSaving(500);
+			for (String hashtag : geraFluxoZipf(new Random(semente), 1.2)) {
+				exato.incrementa(hashtag);
+				aproximado.incrementa(hashtag);
+			}
+			List<EntidadeHashtag> esperadas = exato.getMaisFrequentes(3);
+			List<EntidadeHashtag> obtidas = aproximado.getMaisFrequentes(3);
+			assertEquals(3, obtidas.size());
+			for (int i = 0; i < 3; i++) {
+				assertEquals(esperadas.get(i).toString(), obtidas.get(i).toString());
+				assertEquals(esperadas.get(i).getFrequencia(), obtidas.get(i).getFrequencia());
+			}
+		}
+	}
+
+	@Test
+	public void testaMesmaSaidaDosTrendingTopics() throws Exception {
+		TrendingTopics exato = new TrendingTopics();
+		TrendingTopics aproximado = new TrendingTopics(new ContadorSpaceSaving(100));
+		Random aleatorio = new Random(3);
+		String[] fluxo = geraFluxoZipf(aleatorio, 1.3);
+		for (int i = 0; i + 1 < 20000; i += 2) {
+			String mensagem = "post " + i + " " + fluxo[i] + " " + fluxo[i + 1];
+			exato.registra(PostFactory.getInstance().criaPost(mensagem, "01/08/2015 12:00:00"));
+			aproximado.registra(PostFactory.getInstance().criaPost(mensagem, "01/08/2015 12:00:00"));
+		}
+		assertEquals(exato.retornaTrendingTopics(), aproximado.retornaTrendingTopics());
+		assertTrue(exato.retornaTrendingTopics().startsWith("Trending Topics:  (1) #h0: "));
+	}
+
+	@Test
+	public void testaMemoriaFixa() {
+		ContadorSpaceSaving aproximado = new ContadorSpaceSaving(10);
+		for (int i = 0; i < 100000; i++)
+			aproximado.incrementa("#unica" + i);
+		assertEquals(10, aproximado.getQuantidadeDeHashtagsMonitoradas());
+		assertEquals(10000, aproximado.getErroMaximo());
+	}
+
+	@Test
+	public void testaDecremento() {
+		ContadorSpaceSaving aproximado = new ContadorSpaceSaving(10);
+		aproximado.incrementa("#a");
+		aproximado.incrementa("#a");
+		aproximado.incrementa("#b");
+		aproximado.decrementa("#a");
+		aproximado.decrementa("#c");
+		assertEquals(1, aproximado.getFrequencia("#a"));
+		aproximado.decrementa("#b");
+		assertEquals(0, aproximado.getFrequencia("#b"));
+		assertEquals(1, aproximado.getQuantidadeDeHashtagsMonitoradas());
+	}
+
+	private String[] geraFluxoZipf(Random aleatorio, double expoente) {
+		double[] acumulado = new double[HASHTAGS_DISTINTAS];
+		double soma = 0;
+		for (int i = 0; i < HASHTAGS_DISTINTAS; i++) {
+			soma += 1 / Math.pow(i + 1, expoente);
+			acumulado[i] = soma;
+		}
+		String[] fluxo = new String[OCORRENCIAS];
+		for (int i = 0; i < OCORRENCIAS; i++) {
+			int posicao = Arrays.binarySearch(acumulado, aleatorio.nextDouble() * soma);
+			if (posicao < 0)
+				posicao = -posicao - 1;
+			fluxo[i] = "#h" + Math.min(posicao, HASHTAGS_DISTINTAS - 1);
+		}
+		return fluxo;
+	}
+}
@@ -0,0 +1,267 @@
+package manager;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import core.Relogio;
+import manager.LogDeOperacoes.Escrita;
+import manager.LogDeOperacoes.Leitor;
+import manager.LogDeOperacoes.Operacao;
+import manager.LogDeOperacoes.Sincronizacao;
+import manager.LogDeOperacoes.TipoDeOperacao;
+
+public class LogDeOperacoesTest {
+	private static final long CRC = 1234;
+	private static final TravasDeUsuarios TRAVAS = new TravasDeUsuarios();
+	private static final int USUARIOS_CONCORRENTES = 300;
+
+	@Test
+	public void testaIdaEVolta() throws Exception {
+		Path pasta = Files.createTempDirectory("log");
+		Relogio anterior = Relogio.getAtual();
+		try {
+			Path arquivo = pasta.resolve("operacoes.log");
+			Relogio.setAtual(relogioEm(LocalDateTime.of(2015, 8, 1, 12, 0)));
+			try (LogDeOperacoes log = LogDeOperacoes.cria(arquivo, CRC, Sincronizacao.EM_LOTE)) {
+				try (Escrita escrita = LogDeOperacoes.iniciaEscrita(TRAVAS, () -> log, "fafa@email.com")) {
+					escrita.registra(TipoDeOperacao.CADASTRA_USUARIO, 0, "Fafa", "fafa@email.com", "fafa_S2",
+							"10/10/1990", null);
+				}
+				try (Escrita escrita = LogDeOperacoes.iniciaEscrita(TRAVAS, () -> log, "fafa@email.com", "naza@email.com")) {
+					escrita.registra(TipoDeOperacao.CURTE_POST, 7, "fafa@email.com", "naza@email.com");
+				}
+				try (Escrita escrita = LogDeOperacoes.iniciaEscrita(TRAVAS, () -> log)) {
+					escrita.registra(TipoDeOperacao.AGRUPA_NOTIFICACOES, 1);
+				}
+			}
+			try (Leitor leitor = LogDeOperacoes.le(arquivo, CRC)) {
+				Operacao cadastro = leitor.proxima();
+				assertEquals(TipoDeOperacao.CADASTRA_USUARIO, cadastro.getTipo());
+				assertEquals("fafa@email.com", cadastro.getTexto(1));
+				assertNull(cadastro.getTexto(4));
+				assertEquals(LocalDateTime.of(2015, 8, 1, 12, 0).toInstant(ZoneOffset.UTC).toEpochMilli(),
+						cadastro.getMomento());
+				Operacao curtida = leitor.proxima();
+				assertEquals(TipoDeOperacao.CURTE_POST, curtida.getTipo());
+				assertEquals("naza@email.com", curtida.getTexto(1));
+				assertEquals(7, curtida.getInteiro());
+				assertEquals(TipoDeOperacao.AGRUPA_NOTIFICACOES, leitor.proxima().getTipo());
+				assertNull(leitor.proxima());
+				assertEquals(0, leitor.getIgnorados());
+			}
+			try (Leitor leitor = LogDeOperacoes.le(arquivo, CRC + 1)) {
+				assertNull(leitor.proxima());
+			}
+		} finally {
+			Relogio.setAtual(anterior);
+			apaga(pasta);
+		}
+	}
+
+	@Test
+	public void testaFimIncompleto() throws Exception {
+		Path pasta = Files.createTempDirectory("log");
+		try {
+			Path arquivo = pasta.resolve("operacoes.log");
+			try (LogDeOperacoes log = LogDeOperacoes.cria(arquivo, CRC, Sincronizacao.POR_OPERACAO)) {
+				for (int pops = 1; pops <= 3; pops++) {
+					try (Escrita escrita = LogDeOperacoes.iniciaEscrita(TRAVAS, () -> log, "fafa@email.com")) {
+						escrita.registra(TipoDeOperacao.ADICIONA_POPS, pops, "fafa@email.com");
+					}
+				}
+			}
+			corta(arquivo, 5);
+			try (Leitor leitor = LogDeOperacoes.le(arquivo, CRC)) {
+				assertEquals(1, leitor.proxima().getInteiro());
+				assertEquals(2, leitor.proxima().getInteiro());
+				assertNull(leitor.proxima());
+				assertTrue(leitor.getIgnorados() > 0);
+			}
+		} finally {
+			apaga(pasta);
+		}
+	}
+
+	@Test
+	public void testaEscritaDepoisDoFechamento() throws Exception {
+		Path pasta = Files.createTempDirectory("log");
+		try {
+			Path arquivo = pasta.resolve("operacoes.log");
+			LogDeOperacoes log = LogDeOperacoes.cria(arquivo, CRC, Sincronizacao.POR_OPERACAO);
+			log.close();
+			try (Escrita escrita = LogDeOperacoes.iniciaEscrita(TRAVAS, () -> log, "fafa@email.com")) {
+				escrita.registra(TipoDeOperacao.ADICIONA_POPS, 1, "fafa@email.com");
+			}
+			try (Leitor leitor = LogDeOperacoes.le(arquivo, CRC)) {
+				assertNull(leitor.proxima());
+			}
+		} finally {
+			apaga(pasta);
+		}
+	}
+
+	@Test
+	public void testaReaplicacaoComOMomentoDaOperacao() throws Exception {
+		Path pasta = Files.createTempDirectory("log");
+		Relogio anterior = Relogio.getAtual();
+		try {
+			Path snapshot = pasta.resolve("maispop.snapshot");
+			Path arquivo = pasta.resolve("operacoes.log");
+			Relogio.setAtual(relogioEm(LocalDateTime.of(2015, 8, 1, 12, 0)));
+			Controller original = criaComLog(snapshot, arquivo);
+			Sessao dona = original.abreSessao("naza@email.com", "belzinha");
+			int popsDaDona = original.getPopsUsuario(dona);
+			int popsDoPost = original.getPopsPost(dona, 0);
+
+			Relogio.setAtual(relogioEm(LocalDateTime.of(2015, 8, 5, 12, 0)));
+			Controller recuperado = new Controller();
+			assertEquals(8, recuperado.recuperaEstado(snapshot, arquivo));
+			Sessao recuperada = recuperado.abreSessao("naza@email.com", "belzinha");
+			assertEquals(popsDaDona, recuperado.getPopsUsuario(recuperada));
+			assertEquals(popsDoPost, recuperado.getPopsPost(recuperada, 0));
+			assertEquals(LocalDateTime.of(2015, 8, 5, 12, 0).toInstant(ZoneOffset.UTC).toEpochMilli(),
+					Relogio.getAtual().getClock().millis());
+			original.fechaLog(pasta.resolve("original.snapshot"), pasta.resolve("original.log"));
+		} finally {
+			Relogio.setAtual(anterior);
+			apaga(pasta);
+		}
+	}
+
+	@Test
+	public void testaReaplicacaoComFimIncompleto() throws Exception {
+		Path pasta = Files.createTempDirectory("log");
+		Relogio anterior = Relogio.getAtual();
+		try {
+			Path snapshot = pasta.resolve("maispop.snapshot");
+			Path arquivo = pasta.resolve("operacoes.log");
+			Relogio.setAtual(relogioEm(LocalDateTime.of(2015, 8, 1, 12, 0)));
+			Controller original = criaComLog(snapshot, arquivo);
+			Sessao dona = original.abreSessao("naza@email.com", "belzinha");
+			int popsDoPost = original.getPopsPost(dona, 0);
+			original.fechaLog(pasta.resolve("original.snapshot"), pasta.resolve("original.log"));
+			corta(arquivo, 3);
+
+			Controller recuperado = new Controller();
+			assertEquals(7, recuperado.recuperaEstado(snapshot, arquivo));
+			Sessao recuperada = recuperado.abreSessao("naza@email.com", "belzinha");
+			assertEquals(popsDoPost + 35, recuperado.getPopsPost(recuperada, 0));
+			assertEquals(1, recuperado.qtdCurtidasDePost(recuperada, 0));
+			assertEquals(0, recuperado.qtdRejeicoesDePost(recuperada, 0));
+		} finally {
+			Relogio.setAtual(anterior);
+			apaga(pasta);
+		}
+	}
+
+	@Test
+	public void testaFechaLogSemLogAberto() throws Exception {
+		Path pasta = Files.createTempDirectory("log");
+		try {
+			Path snapshot = pasta.resolve("maispop.snapshot");
+			Path arquivo = pasta.resolve("operacoes.log");
+			criaComLog(snapshot, arquivo).fechaLog(snapshot, arquivo);
+			new Controller().fechaLog(snapshot, arquivo);
+
+			Controller recuperado = new Controller();
+			recuperado.recuperaEstado(snapshot, arquivo);
+			assertTrue(recuperado.isEstadoRecuperado());
+			assertEquals(2, recuperado.getQuantidadeDeUsuarios());
+		} finally {
+			apaga(pasta);
+		}
+	}
+
+	@Test
+	public void testaCompactacaoDuranteAsOperacoes() throws Exception {
+		Path pasta = Files.createTempDirectory("log");
+		try {
+			Path snapshot = pasta.resolve("maispop.snapshot");
+			Path arquivo = pasta.resolve("operacoes.log");
+			Controller controller = new Controller();
+			controller.abreLog(snapshot, arquivo, Sincronizacao.ASSINCRONA);
+			controller.cadastraUsuario("Dona", "dona@email.com", "belzinha", "10/10/1980", null);
+			AtomicReference<Exception> falha = new AtomicReference<>();
+			Thread cadastros = new Thread(() -> {
+				try {
+					for (int i = 0; i < USUARIOS_CONCORRENTES; i++) {
+						String email = "fa" + i + "@email.com";
+						controller.cadastraUsuario("Fa", email, "fafa_S2", "10/10/1990", null);
+						Sessao fa = controller.abreSessao(email, "fafa_S2");
+						controller.adicionaAmigo(fa, "dona@email.com");
+						controller.fechaSessao(fa);
+					}
+				} catch (Exception e) {
+					falha.set(e);
+				}
+			});
+			cadastros.start();
+			while (cadastros.isAlive()) {
+				controller.fechaLog(snapshot, arquivo);
+				controller.abreLog(snapshot, arquivo, Sincronizacao.ASSINCRONA);
+			}
+			cadastros.join();
+			assertNull(falha.get());
+			controller.fechaLog(pasta.resolve("original.snapshot"), pasta.resolve("original.log"));
+
+			Controller recuperado = new Controller();
+			recuperado.recuperaEstado(snapshot, arquivo);
+			assertEquals(USUARIOS_CONCORRENTES + 1, recuperado.getQuantidadeDeUsuarios());
+			Sessao dona = recuperado.abreSessao("dona@email.com", "belzinha");
+			assertEquals(USUARIOS_CONCORRENTES, recuperado.getNotificacoes(dona));
+		} finally {
+			apaga(pasta);
+		}
+	}
+
+	/**
+	 * Cria um +Pop com o log aberto e registra oito operacoes: dois cadastros,
+	 * uma amizade, pops para que a fa seja Celebridade Pop, um post do dia, uma
+	 * curtida e uma rejeicao do post.
+	 */
+	private static Controller criaComLog(Path snapshot, Path arquivo) throws Exception {
+		Controller controller = new Controller();
+		controller.abreLog(snapshot, arquivo, Sincronizacao.POR_OPERACAO);
+		controller.cadastraUsuario("Fafa", "fafa@email.com", "fafa_S2", "10/10/1990", null);
+		controller.cadastraUsuario("Naza", "naza@email.com", "belzinha", "10/10/1980", null);
+		Sessao fa = controller.abreSessao("fafa@email.com", "fafa_S2");
+		Sessao dona = controller.abreSessao("naza@email.com", "belzinha");
+		controller.adicionaAmigo(fa, "naza@email.com");
+		controller.aceitaAmizade(dona, "fafa@email.com");
+		controller.adicionaPops(fa, 600);
+		controller.criaPost(dona, "Hoje tem festa #festa", "01/08/2015 10:00:00");
+		controller.curtirPost(fa, "naza@email.com", 0);
+		controller.rejeitarPost(fa, "naza@email.com", 0);
+		return controller;
+	}
+
+	private static Relogio relogioEm(LocalDateTime momento) {
+		return new Relogio(Clock.fixed(momento.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+	}
+
+	private static void corta(Path arquivo, int bytes) throws IOException {
+		try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+			canal.truncate(canal.size() - bytes);
+		}
+	}
+
+	private static void apaga(Path pasta) throws IOException {
+		try (Stream<Path> arquivos = Files.list(pasta)) {
+			for (Path arquivo : (Iterable<Path>) arquivos::iterator)
+				Files.delete(arquivo);
+		}
+		Files.delete(pasta);
+	}
+}
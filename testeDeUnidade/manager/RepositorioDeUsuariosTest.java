@@ -0,0 +1,43 @@
+package manager;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import core.Usuario;
+import exceptions.UsuarioJaCadastradoException;
+
+public class RepositorioDeUsuariosTest {
+
+	@Test
+	public void testaReindexa() throws Exception {
+		RepositorioDeUsuarios repositorio = new RepositorioDeUsuarios();
+		Usuario fafa = new Usuario("Fafa", "fafa@email.com", "fafa_S2", "10/10/1990", null);
+		repositorio.adiciona(fafa);
+		fafa.setAtributo("E-mail", "Fatima@email.com");
+		repositorio.reindexa("fafa@email.com", fafa);
+		assertSame(fafa, repositorio.busca("fatima@email.com"));
+		assertEquals(1, repositorio.getQuantidade());
+		fafa.setAtributo("E-mail", "FATIMA@email.com");
+		repositorio.reindexa("Fatima@email.com", fafa);
+		assertSame(fafa, repositorio.busca("fatima@email.com"));
+		assertEquals(1, repositorio.getQuantidade());
+	}
+
+	@Test
+	public void testaReindexaParaEmailOcupado() throws Exception {
+		RepositorioDeUsuarios repositorio = new RepositorioDeUsuarios();
+		Usuario fafa = new Usuario("Fafa", "fafa@email.com", "fafa_S2", "10/10/1990", null);
+		Usuario naza = new Usuario("Naza", "naza@email.com", "belzinha", "10/10/1980", null);
+		repositorio.adiciona(fafa);
+		repositorio.adiciona(naza);
+		fafa.setAtributo("E-mail", "naza@email.com");
+		try {
+			repositorio.reindexa("fafa@email.com", fafa);
+			fail("O e-mail ja era de outro usuario.");
+		} catch (UsuarioJaCadastradoException e) {
+		}
+		assertSame(naza, repositorio.busca("naza@email.com"));
+		assertSame(fafa, repositorio.busca("fafa@email.com"));
+	}
+}